@@ -579,7 +579,19 @@ public class Constants {
 
     public static final String DECODE_IN_IO_THREAD_KEY             = "decode.in.io";
 
+    // unused: without decode.in.io, the place a body is decoded depends on its size, see DECODE_IN_IO_THRESHOLD_KEY.
+    @Deprecated
     public static final boolean DEFAULT_DECODE_IN_IO_THREAD        = true;
+
+    // without decode.in.io, a body smaller than this is decoded in the io thread, a larger one in the business thread.
+    public static final String DECODE_IN_IO_THRESHOLD_KEY          = "decode.in.io.threshold";
+
+    public static final int    DEFAULT_DECODE_IN_IO_THRESHOLD      = 8 * 1024;
+
+    // the microseconds a body may take to decode in the io thread, which lowers the threshold of the slow methods.
+    public static final String DECODE_IN_IO_BUDGET_KEY             = "decode.in.io.budget";
+
+    public static final int    DEFAULT_DECODE_IN_IO_BUDGET         = 100;
     
     public static final String INPUT_KEY                           = "input";
     
@@ -593,6 +605,115 @@ public class Constants {
 
     public static final String GENERIC_SERIALIZATION_BEAN          = "bean";
 
+    public static final String TIMEOUT_TICK_KEY                    = "timeout.tick";
+
+    public static final int    DEFAULT_TIMEOUT_TICK                = 10;
+
+    public static final String TIMEOUT_WHEEL_KEY                   = "timeout.wheel";
+
+    public static final int    DEFAULT_TIMEOUT_WHEEL               = 512;
+
+    public static final String ENCODE_BUFFER_KEY                   = "encode.buffer";
+
+    // encode into a growing dubbo buffer, then copy it out for the transport.
+    public static final String ENCODE_BUFFER_COPY                  = "copy";
+
+    // encode straight into a transport heap buffer.
+    public static final String ENCODE_BUFFER_HEAP                  = "heap";
+
+    // encode straight into a transport direct buffer.
+    public static final String ENCODE_BUFFER_DIRECT                = "direct";
+
+    // encode into a buffer borrowed from the pool, given back once written out.
+    public static final String ENCODE_BUFFER_POOLED                = "pooled";
+
+    public static final String DEFAULT_ENCODE_BUFFER               = ENCODE_BUFFER_COPY;
+
+    public static final String WRITE_COALESCE_KEY                  = "write.coalesce";
+
+    public static final String WRITE_BATCH_SIZE_KEY                = "write.batch.size";
+
+    public static final int    DEFAULT_WRITE_BATCH_SIZE            = 64;
+
+    public static final String WRITE_BATCH_DELAY_KEY               = "write.batch.delay";
+
+    public static final int    DEFAULT_WRITE_BATCH_DELAY           = 0;
+
+    // use the native epoll transport of netty 4 when it is available.
+    public static final String EPOLL_KEY                           = "epoll";
+
+    public static final String EPOLL_MODE_KEY                      = "epoll.mode";
+
+    public static final String EPOLL_MODE_EDGE                     = "edge";
+
+    public static final String EPOLL_MODE_LEVEL                    = "level";
+
+    public static final String DEFAULT_EPOLL_MODE                  = EPOLL_MODE_EDGE;
+
+    public static final String TCP_QUICKACK_KEY                    = "tcp.quickack";
+
+    public static final String REUSEPORT_KEY                       = "reuseport";
+
+    // the number of server sockets bound to the same port, each one accepting in its own loop.
+    public static final String ACCEPTORS_KEY                       = "acceptors";
+
+    public static final int    DEFAULT_ACCEPTORS                   = 1;
+
+    // the frame size of the chunked message framing, 0 to frame a message as a whole.
+    public static final String PAYLOAD_CHUNK_KEY                   = "payload.chunk";
+
+    public static final int    DEFAULT_PAYLOAD_CHUNK               = 0;
+
+    // the size of the io thread group shared by all the clients of the jvm, a system property or in dubbo.properties.
+    public static final String CLIENT_IO_THREADS_KEY               = "dubbo.client.iothreads";
+
+    // the compressor of the message bodies, of a service or a method, none by default.
+    public static final String COMPRESSOR_KEY                      = "compressor";
+
+    // a body smaller than this is sent uncompressed.
+    public static final String COMPRESS_THRESHOLD_KEY              = "compress.threshold";
+
+    public static final int    DEFAULT_COMPRESS_THRESHOLD          = 1024;
+
+    // the attachment by which a client offers the class-descriptor dictionary of the dubbo serialization.
+    public static final String SERIALIZATION_DICTIONARY_KEY        = "serialization.dictionary";
+
+    // the largest buffer of a kryo or fst stream kept for the next message of the thread.
+    public static final String SERIALIZATION_RETAINED_BUFFER_KEY   = "serialization.retained.buffer";
+
+    public static final int    DEFAULT_SERIALIZATION_RETAINED_BUFFER = 64 * 1024;
+
+    // the serialization of the objects that are not protobuf messages in the protobuf serialization.
+    public static final String PROTOBUF_FALLBACK_KEY               = "protobuf.fallback";
+
+    public static final String DEFAULT_PROTOBUF_FALLBACK           = "hessian2";
+
+    // whether the strings of the request envelope are written once per connection and then as indexes.
+    public static final String ENVELOPE_TABLE_KEY                  = "envelope.table";
+
+    // whether the codec takes its temporary byte arrays from streams recycled per thread.
+    public static final String CODEC_RECYCLE_BUFFER_KEY            = "codec.recycle.buffer";
+
+    // the largest buffer of a recycled codec stream kept for the next message of the thread.
+    public static final String CODEC_RETAINED_BUFFER_KEY           = "codec.retained.buffer";
+
+    public static final int    DEFAULT_CODEC_RETAINED_BUFFER       = 64 * 1024;
+
+    // set on an invocation whose method returns a CompletableFuture, the call is then made asynchronously.
+    public static final String FUTURE_RETURNTYPE_KEY               = "future_returntype";
+
+    // the threads of the executor of a service, or of a method of it, with the isolation dispatcher.
+    public static final String ISOLATED_THREADS_KEY                = "isolated.threads";
+
+    // the urls of the exported services, by the service key of their exporter.
+    public static final String EXPORTED_URL_COMPONENT_KEY          = "exported.url";
+
+    // the milliseconds the consumer waits for the response, sent with the request for the deadline dispatcher.
+    public static final String REMAINING_TIMEOUT_KEY               = "remaining.timeout";
+
+    // the priority of the requests of a method, the higher the earlier they run with the deadline dispatcher.
+    public static final String REQUEST_PRIORITY_KEY                = "request.priority";
+
     /*
      * private Constants(){ }
      */
@@ -0,0 +1,71 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.compress;
+
+import java.io.IOException;
+
+import com.alibaba.dubbo.common.extension.SPI;
+
+/**
+ * Compressor of message bodies. (SPI, Singleton, ThreadSafe)
+ * 
+ * The compressed bytes carry no length of their own, the caller keeps the original length for decompression.
+ */
+@SPI("lz4")
+public interface Compressor {
+
+    /**
+     * get content type id, which tells the receiver how the body was compressed.
+     * 
+     * @return content type id
+     */
+    byte getContentTypeId();
+
+    /**
+     * get the size of the destination which holds the compressed bytes of any source of the length.
+     * 
+     * @param length source length
+     * @return max compressed length
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * compress.
+     * 
+     * @param src source
+     * @param srcOffset source offset
+     * @param length source length
+     * @param dest destination, at least {@link #maxCompressedLength(int)} bytes from the offset
+     * @param destOffset destination offset
+     * @return compressed length
+     * @throws IOException
+     */
+    int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException;
+
+    /**
+     * decompress.
+     * 
+     * @param src compressed bytes
+     * @param srcOffset source offset
+     * @param length compressed length
+     * @param dest destination
+     * @param destOffset destination offset
+     * @param originalLength length before compression
+     * @throws IOException if the bytes are corrupt or do not decompress to the original length
+     */
+    void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IOException;
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.compress.support;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.alibaba.dubbo.common.compress.Compressor;
+
+/**
+ * Compresses into the zlib format with the jdk deflater: slower than lz4 or snappy but smaller, for the links where
+ * the bandwidth costs more than the cpu. The deflater and the inflater are kept per thread, as they hold native memory.
+ */
+public class DeflateCompressor implements Compressor {
+
+    private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    public byte getContentTypeId() {
+        return 3;
+    }
+
+    public int maxCompressedLength(int length) {
+        // the bound of zlib, with the stream header and trailer.
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 19;
+    }
+
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(src, srcOffset, length);
+            deflater.finish();
+            int d = destOffset;
+            int max = maxCompressedLength(length);
+            while (! deflater.finished()) {
+                if (d - destOffset >= max) {
+                    throw new IOException("Deflated more than " + max + " bytes from " + length + " bytes");
+                }
+                d += deflater.deflate(dest, d, max - (d - destOffset));
+            }
+            return d - destOffset;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IOException {
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(src, srcOffset, length);
+            int d = destOffset;
+            int destEnd = destOffset + originalLength;
+            while (! inflater.finished()) {
+                if (d == destEnd) {
+                    // the stream still has to end, without a byte more.
+                    if (inflater.inflate(new byte[1]) > 0) {
+                        throw new IOException("Inflated more than " + originalLength + " bytes");
+                    }
+                } else {
+                    d += inflater.inflate(dest, d, destEnd - d);
+                }
+                if (! inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Malformed deflate input, inflated " + (d - destOffset) + " bytes, expect " + originalLength);
+                }
+            }
+            if (d != destEnd) {
+                throw new IOException("Inflated " + (d - destOffset) + " bytes, expect " + originalLength);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Malformed deflate input: " + e.getMessage(), e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+}
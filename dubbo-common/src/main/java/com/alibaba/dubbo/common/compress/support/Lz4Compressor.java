@@ -0,0 +1,216 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.compress.support;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.alibaba.dubbo.common.compress.Compressor;
+
+/**
+ * Compresses into the LZ4 block format: fast and light, for bodies which are compressed on every call.
+ * 
+ * Each sequence is a token, the literals copied as is and the offset and length of a match in the bytes decompressed
+ * before. The table of the last positions of 4-byte hashes is kept per thread.
+ */
+public class Lz4Compressor implements Compressor {
+
+    private static final int             MIN_MATCH     = 4;
+
+    // the last bytes are literals, and the last match starts before them.
+    private static final int             LAST_LITERALS = 5;
+
+    private static final int             MF_LIMIT      = 12;
+
+    private static final int             MAX_DISTANCE  = 0xffff;
+
+    private static final int             HASH_LOG      = 12;
+
+    private static final int             RUN_MASK      = 0x0f;
+
+    private static final ThreadLocal<int[]> HASH_TABLE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1 << HASH_LOG];
+        }
+    };
+
+    public byte getContentTypeId() {
+        return 1;
+    }
+
+    public int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+        int srcEnd = srcOffset + length;
+        int anchor = srcOffset;
+        int d = destOffset;
+        if (length > MF_LIMIT) {
+            int[] table = HASH_TABLE.get();
+            Arrays.fill(table, -1);
+            int mfLimit = srcEnd - MF_LIMIT;
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int s = srcOffset + 1;
+            table[hash(readInt(src, srcOffset))] = srcOffset;
+            while (s < mfLimit) {
+                int h = hash(readInt(src, s));
+                int ref = table[h];
+                table[h] = s;
+                if (ref < 0 || s - ref > MAX_DISTANCE || readInt(src, ref) != readInt(src, s)) {
+                    // skip faster through bytes which do not compress.
+                    s += 1 + ((s - anchor) >>> 6);
+                    continue;
+                }
+                while (s > anchor && ref > srcOffset && src[s - 1] == src[ref - 1]) {
+                    s --;
+                    ref --;
+                }
+                int end = s + MIN_MATCH;
+                while (end < matchLimit && src[end] == src[ref + end - s]) {
+                    end ++;
+                }
+                d = writeSequence(src, anchor, s - anchor, s - ref, end - s - MIN_MATCH, dest, d);
+                anchor = s = end;
+                if (s < mfLimit) {
+                    table[hash(readInt(src, s - 2))] = s - 2;
+                }
+            }
+        }
+        // the last literals, without a match.
+        int literals = srcEnd - anchor;
+        int token = d ++;
+        if (literals >= RUN_MASK) {
+            dest[token] = (byte) (RUN_MASK << 4);
+            d = writeLength(dest, d, literals - RUN_MASK);
+        } else {
+            dest[token] = (byte) (literals << 4);
+        }
+        System.arraycopy(src, anchor, dest, d, literals);
+        return d + literals - destOffset;
+    }
+
+    private static int writeSequence(byte[] src, int anchor, int literals, int offset, int matchLength, byte[] dest, int d) {
+        int token = d ++;
+        int runs;
+        if (literals >= RUN_MASK) {
+            runs = RUN_MASK << 4;
+            d = writeLength(dest, d, literals - RUN_MASK);
+        } else {
+            runs = literals << 4;
+        }
+        System.arraycopy(src, anchor, dest, d, literals);
+        d += literals;
+        dest[d ++] = (byte) offset;
+        dest[d ++] = (byte) (offset >>> 8);
+        if (matchLength >= RUN_MASK) {
+            runs |= RUN_MASK;
+            d = writeLength(dest, d, matchLength - RUN_MASK);
+        } else {
+            runs |= matchLength;
+        }
+        dest[token] = (byte) runs;
+        return d;
+    }
+
+    private static int writeLength(byte[] dest, int d, int length) {
+        while (length >= 0xff) {
+            dest[d ++] = (byte) 0xff;
+            length -= 0xff;
+        }
+        dest[d ++] = (byte) length;
+        return d;
+    }
+
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IOException {
+        int s = srcOffset;
+        int srcEnd = srcOffset + length;
+        int d = destOffset;
+        int destEnd = destOffset + originalLength;
+        while (true) {
+            if (s >= srcEnd) {
+                throw new IOException("Malformed lz4 input at " + (s - srcOffset));
+            }
+            int token = src[s ++] & 0xff;
+            int literals = token >>> 4;
+            if (literals == RUN_MASK) {
+                int b;
+                do {
+                    if (s >= srcEnd) {
+                        throw new IOException("Malformed lz4 input at " + (s - srcOffset));
+                    }
+                    b = src[s ++] & 0xff;
+                    literals += b;
+                } while (b == 0xff);
+            }
+            if (literals > srcEnd - s || literals > destEnd - d) {
+                throw new IOException("Malformed lz4 input at " + (s - srcOffset));
+            }
+            System.arraycopy(src, s, dest, d, literals);
+            s += literals;
+            d += literals;
+            if (s == srcEnd) {
+                break;
+            }
+            if (s + 2 > srcEnd) {
+                throw new IOException("Malformed lz4 input at " + (s - srcOffset));
+            }
+            int offset = (src[s] & 0xff) | (src[s + 1] & 0xff) << 8;
+            s += 2;
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b;
+                do {
+                    if (s >= srcEnd) {
+                        throw new IOException("Malformed lz4 input at " + (s - srcOffset));
+                    }
+                    b = src[s ++] & 0xff;
+                    matchLength += b;
+                } while (b == 0xff);
+            }
+            matchLength += MIN_MATCH;
+            if (offset == 0 || offset > d - destOffset || matchLength > destEnd - d) {
+                throw new IOException("Malformed lz4 input at " + (s - srcOffset));
+            }
+            copyMatch(dest, d - offset, d, matchLength);
+            d += matchLength;
+        }
+        if (d != destEnd) {
+            throw new IOException("Decompressed " + (d - destOffset) + " bytes, expect " + originalLength);
+        }
+    }
+
+    // a match may overlap the bytes it produces, the pattern then repeats.
+    static void copyMatch(byte[] dest, int ref, int d, int length) {
+        if (d - ref >= length) {
+            System.arraycopy(dest, ref, dest, d, length);
+        } else {
+            for (int i = 0; i < length; i ++) {
+                dest[d + i] = dest[ref + i];
+            }
+        }
+    }
+
+    static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    private static int hash(int i) {
+        return (i * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+}
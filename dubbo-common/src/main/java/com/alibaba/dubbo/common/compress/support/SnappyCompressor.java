@@ -0,0 +1,236 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.compress.support;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.alibaba.dubbo.common.compress.Compressor;
+
+/**
+ * Compresses into the raw snappy format, readable by the other snappy implementations.
+ * 
+ * The uncompressed length comes first as a varint, then the literals and the copies of the bytes decompressed
+ * before, each one behind a tag whose low 2 bits tell which.
+ */
+public class SnappyCompressor implements Compressor {
+
+    private static final int             LITERAL       = 0;
+
+    private static final int             COPY_1        = 1;
+
+    private static final int             COPY_2        = 2;
+
+    // no match is looked for in the last bytes.
+    private static final int             INPUT_MARGIN  = 15;
+
+    private static final int             MAX_DISTANCE  = 0xffff;
+
+    private static final int             HASH_LOG      = 14;
+
+    private static final ThreadLocal<int[]> HASH_TABLE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1 << HASH_LOG];
+        }
+    };
+
+    public byte getContentTypeId() {
+        return 2;
+    }
+
+    public int maxCompressedLength(int length) {
+        return 32 + length + length / 6;
+    }
+
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+        int d = writeVarInt(dest, destOffset, length);
+        int srcEnd = srcOffset + length;
+        int anchor = srcOffset;
+        if (length > INPUT_MARGIN) {
+            int[] table = HASH_TABLE.get();
+            Arrays.fill(table, -1);
+            int limit = srcEnd - INPUT_MARGIN;
+            int s = srcOffset + 1;
+            while (s < limit) {
+                int h = hash(Lz4Compressor.readInt(src, s));
+                int ref = table[h];
+                table[h] = s;
+                if (ref < 0 || s - ref > MAX_DISTANCE || Lz4Compressor.readInt(src, ref) != Lz4Compressor.readInt(src, s)) {
+                    s += 1 + ((s - anchor) >>> 5);
+                    continue;
+                }
+                int end = s + 4;
+                while (end < srcEnd && src[end] == src[ref + end - s]) {
+                    end ++;
+                }
+                if (s > anchor) {
+                    d = writeLiteral(src, anchor, s - anchor, dest, d);
+                }
+                d = writeCopy(dest, d, s - ref, end - s);
+                anchor = s = end;
+            }
+        }
+        if (anchor < srcEnd) {
+            d = writeLiteral(src, anchor, srcEnd - anchor, dest, d);
+        }
+        return d - destOffset;
+    }
+
+    private static int writeLiteral(byte[] src, int offset, int length, byte[] dest, int d) {
+        int n = length - 1;
+        if (n < 60) {
+            dest[d ++] = (byte) (LITERAL | n << 2);
+        } else if (n < 1 << 8) {
+            dest[d ++] = (byte) (LITERAL | 60 << 2);
+            dest[d ++] = (byte) n;
+        } else if (n < 1 << 16) {
+            dest[d ++] = (byte) (LITERAL | 61 << 2);
+            dest[d ++] = (byte) n;
+            dest[d ++] = (byte) (n >>> 8);
+        } else if (n < 1 << 24) {
+            dest[d ++] = (byte) (LITERAL | 62 << 2);
+            dest[d ++] = (byte) n;
+            dest[d ++] = (byte) (n >>> 8);
+            dest[d ++] = (byte) (n >>> 16);
+        } else {
+            dest[d ++] = (byte) (LITERAL | 63 << 2);
+            dest[d ++] = (byte) n;
+            dest[d ++] = (byte) (n >>> 8);
+            dest[d ++] = (byte) (n >>> 16);
+            dest[d ++] = (byte) (n >>> 24);
+        }
+        System.arraycopy(src, offset, dest, d, length);
+        return d + length;
+    }
+
+    // a copy is at most 64 bytes long, a longer match is cut into several, none of them shorter than 4 bytes.
+    private static int writeCopy(byte[] dest, int d, int offset, int length) {
+        while (length >= 68) {
+            d = writeCopy64(dest, d, offset, 64);
+            length -= 64;
+        }
+        if (length > 64) {
+            d = writeCopy64(dest, d, offset, 60);
+            length -= 60;
+        }
+        return writeCopy64(dest, d, offset, length);
+    }
+
+    private static int writeCopy64(byte[] dest, int d, int offset, int length) {
+        if (length < 12 && offset < 2048) {
+            dest[d ++] = (byte) (COPY_1 | (length - 4) << 2 | (offset >>> 8) << 5);
+            dest[d ++] = (byte) offset;
+        } else {
+            dest[d ++] = (byte) (COPY_2 | (length - 1) << 2);
+            dest[d ++] = (byte) offset;
+            dest[d ++] = (byte) (offset >>> 8);
+        }
+        return d;
+    }
+
+    private static int writeVarInt(byte[] dest, int d, int value) {
+        while ((value & ~0x7f) != 0) {
+            dest[d ++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        dest[d ++] = (byte) value;
+        return d;
+    }
+
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IOException {
+        int s = srcOffset;
+        int srcEnd = srcOffset + length;
+        // the varint of the uncompressed length.
+        int uncompressed = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (s >= srcEnd || shift > 28) {
+                throw new IOException("Malformed snappy input at " + (s - srcOffset));
+            }
+            int b = src[s ++] & 0xff;
+            uncompressed |= (b & 0x7f) << shift;
+            if (b < 0x80) {
+                break;
+            }
+        }
+        if (uncompressed != originalLength) {
+            throw new IOException("Snappy input of " + uncompressed + " bytes, expect " + originalLength);
+        }
+        int d = destOffset;
+        int destEnd = destOffset + originalLength;
+        while (s < srcEnd) {
+            int tag = src[s ++] & 0xff;
+            int type = tag & 3;
+            if (type == LITERAL) {
+                int n = tag >>> 2;
+                if (n >= 60) {
+                    int bytes = n - 59;
+                    if (s + bytes > srcEnd) {
+                        throw new IOException("Malformed snappy input at " + (s - srcOffset));
+                    }
+                    n = 0;
+                    for (int i = 0; i < bytes; i ++) {
+                        n |= (src[s ++] & 0xff) << (i << 3);
+                    }
+                }
+                int literals = n + 1;
+                if (literals <= 0 || literals > srcEnd - s || literals > destEnd - d) {
+                    throw new IOException("Malformed snappy input at " + (s - srcOffset));
+                }
+                System.arraycopy(src, s, dest, d, literals);
+                s += literals;
+                d += literals;
+                continue;
+            }
+            int copy;
+            int offset;
+            if (type == COPY_1) {
+                if (s >= srcEnd) {
+                    throw new IOException("Malformed snappy input at " + (s - srcOffset));
+                }
+                copy = ((tag >>> 2) & 7) + 4;
+                offset = (tag >>> 5) << 8 | (src[s ++] & 0xff);
+            } else if (type == COPY_2) {
+                if (s + 2 > srcEnd) {
+                    throw new IOException("Malformed snappy input at " + (s - srcOffset));
+                }
+                copy = (tag >>> 2) + 1;
+                offset = (src[s] & 0xff) | (src[s + 1] & 0xff) << 8;
+                s += 2;
+            } else { // copy with a 4-byte offset
+                if (s + 4 > srcEnd) {
+                    throw new IOException("Malformed snappy input at " + (s - srcOffset));
+                }
+                copy = (tag >>> 2) + 1;
+                offset = Lz4Compressor.readInt(src, s);
+                s += 4;
+            }
+            if (offset <= 0 || offset > d - destOffset || copy > destEnd - d) {
+                throw new IOException("Malformed snappy input at " + (s - srcOffset));
+            }
+            Lz4Compressor.copyMatch(dest, d - offset, d, copy);
+            d += copy;
+        }
+        if (d != destEnd) {
+            throw new IOException("Decompressed " + (d - destOffset) + " bytes, expect " + originalLength);
+        }
+    }
+
+    private static int hash(int i) {
+        return (i * 0x1e35a7bd) >>> (32 - HASH_LOG);
+    }
+
+}
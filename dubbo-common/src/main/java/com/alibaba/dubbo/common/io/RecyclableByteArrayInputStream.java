@@ -0,0 +1,66 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.io;
+
+/**
+ * UnsafeByteArrayInputStream over a backing array kept for the next user of the same thread, filled through
+ * buffer() before it is read. It is recycled as RecyclableByteArrayOutputStream is.
+ */
+
+public final class RecyclableByteArrayInputStream extends UnsafeByteArrayInputStream
+{
+	private static final ThreadLocal<RecyclableByteArrayInputStream> CACHE = new ThreadLocal<RecyclableByteArrayInputStream>();
+
+	private RecyclableByteArrayInputStream(int length)
+	{
+		super(new byte[length]);
+	}
+
+	/**
+	 * @return the stream released last by this thread, or a new one, positioned at 0 with length bytes to read.
+	 */
+	public static RecyclableByteArrayInputStream acquire(int length)
+	{
+		RecyclableByteArrayInputStream stream = CACHE.get();
+		if( stream == null )
+			return new RecyclableByteArrayInputStream(length);
+		CACHE.set(null);
+		if( stream.mData.length < length )
+			stream.mData = new byte[length];
+		stream.mPosition = stream.mMark = 0;
+		stream.mLimit = length;
+		return stream;
+	}
+
+	/**
+	 * @return the backing array, to be filled up to the length of the stream.
+	 */
+	public byte[] buffer()
+	{
+		return mData;
+	}
+
+	/**
+	 * gives the stream back to this thread, it must not be used any more.
+	 * 
+	 * @param maxRetained the largest buffer kept, none if negative.
+	 */
+	public void recycle(int maxRetained)
+	{
+		if( mData.length <= maxRetained )
+			CACHE.set(this);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.io;
+
+/**
+ * UnsafeByteArrayOutputStream kept for the next user of the same thread. It is taken out of its thread while in
+ * use, so a nested or a leaked one only costs a new stream, and one that grew over the retained size is left to
+ * the gc, so that a single large message does not pin its buffer.
+ */
+
+public final class RecyclableByteArrayOutputStream extends UnsafeByteArrayOutputStream
+{
+	private static final ThreadLocal<RecyclableByteArrayOutputStream> CACHE = new ThreadLocal<RecyclableByteArrayOutputStream>();
+
+	private RecyclableByteArrayOutputStream(int size)
+	{
+		super(size);
+	}
+
+	/**
+	 * @return the empty stream released last by this thread, or a new one, with room for size bytes.
+	 */
+	public static RecyclableByteArrayOutputStream acquire(int size)
+	{
+		RecyclableByteArrayOutputStream stream = CACHE.get();
+		if( stream == null )
+			return new RecyclableByteArrayOutputStream(size);
+		CACHE.set(null);
+		if( stream.mBuffer.length < size )
+			stream.mBuffer = new byte[size];
+		return stream;
+	}
+
+	/**
+	 * @return the backing array, valid up to size().
+	 */
+	public byte[] buffer()
+	{
+		return mBuffer;
+	}
+
+	/**
+	 * gives the stream back to this thread, it must not be used any more.
+	 * 
+	 * @param maxRetained the largest buffer kept, none if negative.
+	 */
+	public void recycle(int maxRetained)
+	{
+		if( mBuffer.length <= maxRetained )
+		{
+			mCount = 0;
+			CACHE.set(this);
+		}
+	}
+}
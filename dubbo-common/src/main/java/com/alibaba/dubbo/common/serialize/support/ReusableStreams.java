@@ -0,0 +1,51 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+
+/**
+ * Keeps the stream wrapper of a serialization for the next message of the same thread, so that its buffer is
+ * allocated once per thread instead of once per message. A wrapper is taken out while in use, so a nested or a
+ * leaked one only costs a new wrapper, and one whose buffer grew over the retained size is left to the gc.
+ */
+public final class ReusableStreams<T> {
+
+    private final ThreadLocal<T> cache = new ThreadLocal<T>();
+
+    public static int getMaxRetainedBuffer(URL url) {
+        return url == null ? Constants.DEFAULT_SERIALIZATION_RETAINED_BUFFER
+                : url.getParameter(Constants.SERIALIZATION_RETAINED_BUFFER_KEY, Constants.DEFAULT_SERIALIZATION_RETAINED_BUFFER);
+    }
+
+    /**
+     * @return the wrapper released last by this thread, or null.
+     */
+    public T acquire() {
+        T stream = cache.get();
+        if (stream != null) {
+            cache.set(null);
+        }
+        return stream;
+    }
+
+    public void release(T stream, int bufferSize, int maxRetainedBuffer) {
+        if (stream != null && bufferSize <= maxRetainedBuffer) {
+            cache.set(stream);
+        }
+    }
+}
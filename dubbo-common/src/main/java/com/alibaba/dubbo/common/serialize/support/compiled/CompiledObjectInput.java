@@ -0,0 +1,57 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.compiled;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorDictionary;
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorMapper;
+import com.alibaba.dubbo.common.serialize.support.dubbo.GenericObjectInput;
+
+/**
+ * Reads the objects written by {@link CompiledObjectOutput}.
+ */
+public class CompiledObjectInput extends GenericObjectInput {
+
+    private CompiledSerializers serializers;
+
+    public CompiledObjectInput(InputStream is) {
+        this(is, CompiledSerializers.getSerializers());
+    }
+
+    CompiledObjectInput(InputStream is, CompiledSerializers serializers) {
+        super(is, serializers.getDictionary());
+        this.serializers = serializers;
+    }
+
+    @Override
+    public void setClassDescriptorMapper(ClassDescriptorMapper mapper) {
+        super.setClassDescriptorMapper(mapper);
+        serializers = mapper instanceof ClassDescriptorDictionary
+                ? CompiledSerializers.getSerializers((ClassDescriptorDictionary) mapper) : null;
+    }
+
+    @Override
+    protected Object readObjectByDescId(int index) throws IOException {
+        CompiledSerializer serializer = serializers == null ? null : serializers.getSerializer(index);
+        if (serializer != null) {
+            return serializer.parseFrom(this);
+        }
+        return super.readObjectByDescId(index);
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.compiled;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorDictionary;
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorMapper;
+import com.alibaba.dubbo.common.serialize.support.dubbo.GenericObjectOutput;
+
+/**
+ * Writes a registered class by its id and its compiled serializer, and any other object as the dubbo serialization.
+ * Once given a mapper other than a class-descriptor dictionary, it writes all the objects as the dubbo serialization.
+ */
+public class CompiledObjectOutput extends GenericObjectOutput {
+
+    private CompiledSerializers serializers;
+
+    public CompiledObjectOutput(OutputStream out) {
+        this(out, CompiledSerializers.getSerializers());
+    }
+
+    CompiledObjectOutput(OutputStream out, CompiledSerializers serializers) {
+        super(out, serializers.getDictionary());
+        this.serializers = serializers;
+    }
+
+    @Override
+    public void setClassDescriptorMapper(ClassDescriptorMapper mapper) {
+        super.setClassDescriptorMapper(mapper);
+        serializers = mapper instanceof ClassDescriptorDictionary
+                ? CompiledSerializers.getSerializers((ClassDescriptorDictionary) mapper) : null;
+    }
+
+    @Override
+    public void writeObject(Object obj) throws IOException {
+        if (obj != null && serializers != null) {
+            Integer id = serializers.getId(obj.getClass());
+            if (id != null) {
+                write0(OBJECT_DESC_ID);
+                writeUInt(id.intValue());
+                serializers.getSerializer(id.intValue()).writeTo(obj, this);
+                return;
+            }
+        }
+        super.writeObject(obj);
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.compiled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.OptimizedSerialization;
+
+/**
+ * The dubbo serialization, with the classes registered by the SerializationOptimizer written by generated code and
+ * identified by their id in the sorted registration. The dubbo protocol writes the ids only once the peer has agreed on
+ * the fingerprint of the registration, and the names before; elsewhere both sides must register the same classes, as
+ * for kryo.
+ */
+public class CompiledSerialization implements OptimizedSerialization {
+
+    public static final String NAME = "compiled";
+
+    /**
+     * generates the serializers of the classes registered so far, rather than on the next message.
+     */
+    public static void compile() {
+        CompiledSerializers.getSerializers();
+    }
+
+    public byte getContentTypeId() {
+        return 10;
+    }
+
+    public String getContentType() {
+        return "x-application/compiled";
+    }
+
+    public ObjectOutput serialize(URL url, OutputStream out) throws IOException {
+        return new CompiledObjectOutput(out);
+    }
+
+    public ObjectInput deserialize(URL url, InputStream is) throws IOException {
+        return new CompiledObjectInput(is);
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.compiled;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.dubbo.common.bytecode.ClassGenerator;
+import com.alibaba.dubbo.common.utils.ReflectUtils;
+
+/**
+ * The generated, straight-line code that writes and reads the fields of one registered class, sorted by name:
+ * a primitive field through the primitive method of the stream, a String through writeUTF/readUTF, and any other
+ * field through writeObject/readObject. A field is accessed directly when it is visible to the package of the
+ * class, or else through its bean getter and setter. A class with a field reachable neither way, or without a
+ * no-arg constructor, is not compiled.
+ * <p>
+ * A compiled object is written as a tree without references, so a graph with cycles must not contain one.
+ */
+public abstract class CompiledSerializer {
+
+    private static final AtomicLong SERIALIZER_CLASS_COUNTER = new AtomicLong(0);
+
+    private static final Comparator<Field> FIELD_COMPARATOR = new Comparator<Field>() {
+        public int compare(Field f1, Field f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    public abstract Class<?> getType();
+
+    public abstract void writeTo(Object obj, CompiledObjectOutput out) throws IOException;
+
+    public abstract Object parseFrom(CompiledObjectInput in) throws IOException;
+
+    /**
+     * @return the serializer of the class, or null if the class can not be compiled.
+     */
+    static CompiledSerializer newSerializer(Class<?> c) {
+        if (!isCompilable(c)) {
+            return null;
+        }
+        List<Field> fields = new ArrayList<Field>();
+        for (Class<?> t = c; t != Object.class; t = t.getSuperclass()) {
+            for (Field f : t.getDeclaredFields()) {
+                int mod = f.getModifiers();
+                if (!Modifier.isStatic(mod) && !Modifier.isTransient(mod) && !f.isSynthetic()) {
+                    fields.add(f);
+                }
+            }
+        }
+        Collections.sort(fields, FIELD_COMPARATOR);
+
+        String cn = c.getName();
+        StringBuilder cwt = new StringBuilder("public void writeTo(Object obj, ").append(CompiledObjectOutput.class.getName())
+                .append(" out) throws java.io.IOException{ ").append(cn).append(" v = (").append(cn).append(")$1; ");
+        StringBuilder cpf = new StringBuilder("public Object parseFrom(").append(CompiledObjectInput.class.getName())
+                .append(" in) throws java.io.IOException{ ").append(cn).append(" ret = new ").append(cn).append("(); ");
+        for (int i = 0; i < fields.size(); i++) {
+            Field f = fields.get(i);
+            String fn = f.getName();
+            if (i > 0 && fn.equals(fields.get(i - 1).getName())) {
+                return null; // a field hides the one of a super class.
+            }
+            Class<?> ft = f.getType();
+            if (!isVisible(c, ft)) {
+                return null;
+            }
+            String get, set, end;
+            if (isVisible(c, f)) {
+                get = "v." + fn;
+                set = "ret." + fn + " = ";
+                end = ";";
+            } else {
+                Method getter = getter(c, f), setter = setter(c, f);
+                if (getter == null || setter == null) {
+                    return null;
+                }
+                get = "v." + getter.getName() + "()";
+                set = "ret." + setter.getName() + "(";
+                end = ");";
+            }
+            if (ft == boolean.class) {
+                cwt.append("$2.writeBool(").append(get).append(");");
+                cpf.append(set).append("$1.readBool()").append(end);
+            } else if (ft == byte.class) {
+                cwt.append("$2.writeByte(").append(get).append(");");
+                cpf.append(set).append("$1.readByte()").append(end);
+            } else if (ft == char.class) {
+                cwt.append("$2.writeShort((short)").append(get).append(");");
+                cpf.append(set).append("(char)$1.readShort()").append(end);
+            } else if (ft == short.class) {
+                cwt.append("$2.writeShort(").append(get).append(");");
+                cpf.append(set).append("$1.readShort()").append(end);
+            } else if (ft == int.class) {
+                cwt.append("$2.writeInt(").append(get).append(");");
+                cpf.append(set).append("$1.readInt()").append(end);
+            } else if (ft == long.class) {
+                cwt.append("$2.writeLong(").append(get).append(");");
+                cpf.append(set).append("$1.readLong()").append(end);
+            } else if (ft == float.class) {
+                cwt.append("$2.writeFloat(").append(get).append(");");
+                cpf.append(set).append("$1.readFloat()").append(end);
+            } else if (ft == double.class) {
+                cwt.append("$2.writeDouble(").append(get).append(");");
+                cpf.append(set).append("$1.readDouble()").append(end);
+            } else if (ft == String.class) {
+                cwt.append("$2.writeUTF(").append(get).append(");");
+                cpf.append(set).append("$1.readUTF()").append(end);
+            } else {
+                cwt.append("$2.writeObject(").append(get).append(");");
+                cpf.append(set).append("(").append(ReflectUtils.getName(ft)).append(")$1.readObject()").append(end);
+            }
+        }
+        cwt.append(" }");
+        cpf.append(" return ret; }");
+
+        // defined by the loader of the class, so that the code is in the same runtime package.
+        ClassGenerator cg = ClassGenerator.newInstance(c.getClassLoader());
+        cg.setClassName(cn + "$cs" + SERIALIZER_CLASS_COUNTER.getAndIncrement());
+        cg.setSuperClass(CompiledSerializer.class);
+        cg.addDefaultConstructor();
+        cg.addMethod("public Class getType(){ return " + cn + ".class; }");
+        cg.addMethod(cwt.toString());
+        cg.addMethod(cpf.toString());
+        try {
+            return (CompiledSerializer) cg.toClass(c.getClassLoader(), c.getProtectionDomain()).newInstance();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            cg.release();
+        }
+    }
+
+    private static boolean isCompilable(Class<?> c) {
+        int mod = c.getModifiers();
+        if (c.getClassLoader() == null || c.isInterface() || c.isArray() || c.isEnum() || c.isPrimitive()
+                || Modifier.isAbstract(mod) || Modifier.isPrivate(mod) || c.isAnonymousClass() || c.isLocalClass()
+                || (c.getEnclosingClass() != null && !Modifier.isStatic(mod))
+                || Collection.class.isAssignableFrom(c) || Map.class.isAssignableFrom(c)
+                || Throwable.class.isAssignableFrom(c)) {
+            return false;
+        }
+        try {
+            Constructor<?> constructor = c.getDeclaredConstructor();
+            return !Modifier.isPrivate(constructor.getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean isVisible(Class<?> c, Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || Modifier.isPublic(type.getModifiers())) {
+            return true;
+        }
+        return !Modifier.isPrivate(type.getModifiers()) && isSamePackage(c, type);
+    }
+
+    private static boolean isVisible(Class<?> c, Field f) {
+        int mod = f.getModifiers();
+        if (Modifier.isFinal(mod) || Modifier.isPrivate(mod)) {
+            return false;
+        }
+        Class<?> declaring = f.getDeclaringClass();
+        return (Modifier.isPublic(mod) && Modifier.isPublic(declaring.getModifiers())) || isSamePackage(c, declaring);
+    }
+
+    private static boolean isSamePackage(Class<?> c1, Class<?> c2) {
+        return c1.getClassLoader() == c2.getClassLoader() && getPackageName(c1).equals(getPackageName(c2));
+    }
+
+    private static String getPackageName(Class<?> c) {
+        String name = c.getName();
+        int i = name.lastIndexOf('.');
+        return i < 0 ? "" : name.substring(0, i);
+    }
+
+    private static Method getter(Class<?> c, Field f) {
+        String property = Character.toUpperCase(f.getName().charAt(0)) + f.getName().substring(1);
+        Method method = getMethod(c, "get" + property);
+        if (method == null && f.getType() == boolean.class) {
+            method = getMethod(c, "is" + property);
+        }
+        return method != null && method.getReturnType() == f.getType() ? method : null;
+    }
+
+    private static Method setter(Class<?> c, Field f) {
+        String property = Character.toUpperCase(f.getName().charAt(0)) + f.getName().substring(1);
+        Method method = getMethod(c, "set" + property, f.getType());
+        return method != null && method.getReturnType() == void.class ? method : null;
+    }
+
+    private static Method getMethod(Class<?> c, String name, Class<?>... types) {
+        try {
+            return c.getMethod(name, types);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.compiled;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.serialize.support.SerializableClassRegistry;
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorDictionary;
+import com.alibaba.dubbo.common.utils.ConcurrentHashSet;
+import com.alibaba.dubbo.common.utils.ReflectUtils;
+
+/**
+ * The compiled serializers of the registered classes, by their id in the class-descriptor dictionary. There is a set
+ * per dictionary, as a connection keeps the one agreed with its peer while more classes are registered, and a
+ * serializer is generated only once per class.
+ */
+final class CompiledSerializers {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledSerializers.class);
+
+    private static final ConcurrentMap<Class<?>, CompiledSerializer> SERIALIZERS = new ConcurrentHashMap<Class<?>, CompiledSerializer>();
+
+    private static final ConcurrentHashSet<Class<?>> UNCOMPILED = new ConcurrentHashSet<Class<?>>();
+
+    // a dictionary is built each time the registry has grown, so there are no more of them than registered classes.
+    private static final ConcurrentMap<ClassDescriptorDictionary, CompiledSerializers> BY_DICTIONARY = new ConcurrentHashMap<ClassDescriptorDictionary, CompiledSerializers>();
+
+    private final ClassDescriptorDictionary dictionary;
+
+    private final Map<Class<?>, Integer> ids = new HashMap<Class<?>, Integer>();
+
+    private final CompiledSerializer[] serializers;
+
+    private CompiledSerializers(ClassDescriptorDictionary dictionary) {
+        this.dictionary = dictionary;
+        List<CompiledSerializer> list = new ArrayList<CompiledSerializer>();
+        for (Class<?> c : new ArrayList<Class>(SerializableClassRegistry.getRegisteredClasses())) {
+            int id = dictionary.getDescriptorIndex(ReflectUtils.getDesc(c));
+            CompiledSerializer serializer = id < 0 ? null : getSerializer(c);
+            if (serializer != null) {
+                while (list.size() <= id) {
+                    list.add(null);
+                }
+                list.set(id, serializer);
+                ids.put(c, id);
+            }
+        }
+        serializers = list.toArray(new CompiledSerializer[list.size()]);
+    }
+
+    static CompiledSerializers getSerializers() {
+        return getSerializers(ClassDescriptorDictionary.getDictionary());
+    }
+
+    static CompiledSerializers getSerializers(ClassDescriptorDictionary dictionary) {
+        CompiledSerializers serializers = BY_DICTIONARY.get(dictionary);
+        if (serializers == null) {
+            synchronized (CompiledSerializers.class) {
+                serializers = BY_DICTIONARY.get(dictionary);
+                if (serializers == null) {
+                    serializers = new CompiledSerializers(dictionary);
+                    BY_DICTIONARY.put(dictionary, serializers);
+                }
+            }
+        }
+        return serializers;
+    }
+
+    private static CompiledSerializer getSerializer(Class<?> c) {
+        CompiledSerializer serializer = SERIALIZERS.get(c);
+        if (serializer != null || UNCOMPILED.contains(c)) {
+            return serializer;
+        }
+        try {
+            serializer = CompiledSerializer.newSerializer(c);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to compile the serializer of " + c.getName() + ", cause: " + e.getMessage(), e);
+        }
+        if (serializer == null) {
+            if (logger.isInfoEnabled()) {
+                logger.info("The class " + c.getName() + " is not compiled, it is serialized as by the dubbo serialization.");
+            }
+            UNCOMPILED.add(c);
+        } else {
+            SERIALIZERS.put(c, serializer);
+        }
+        return serializer;
+    }
+
+    ClassDescriptorDictionary getDictionary() {
+        return dictionary;
+    }
+
+    Integer getId(Class<?> c) {
+        return ids.get(c);
+    }
+
+    CompiledSerializer getSerializer(int id) {
+        return id < serializers.length ? serializers[id] : null;
+    }
+
+}
@@ -106,6 +106,12 @@ public abstract class Builder<T> implements GenericDataFlags
 		}
 	};
 
+	// the descriptors above are the same in every process, a ClassDescriptorDictionary numbers its own after them.
+	static int getDefaultDescriptorCount()
+	{
+		return mDescList.size();
+	}
+
 	protected Builder(){}
 
 	abstract public Class<T> getType();
@@ -0,0 +1,118 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.dubbo;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.alibaba.dubbo.common.io.Bytes;
+import com.alibaba.dubbo.common.serialize.support.SerializableClassRegistry;
+import com.alibaba.dubbo.common.utils.ReflectUtils;
+
+/**
+ * Class-Descriptor ids of the classes registered by the SerializationOptimizer, numbered after the default ones.
+ * The descriptors are sorted, so two processes which registered the same classes have the same ids and the same
+ * fingerprint, whatever the order of the registration. A peer must agree on the fingerprint before it is sent ids.
+ */
+public final class ClassDescriptorDictionary implements ClassDescriptorMapper
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static volatile ClassDescriptorDictionary mCurrent = new ClassDescriptorDictionary(Collections.<Class>emptySet());
+
+	private final int mBase;
+
+	private final List<String> mDescList;
+
+	private final Map<String, Integer> mDescMap = new HashMap<String, Integer>();
+
+	private final int mClassCount;
+
+	private final String mFingerprint;
+
+	private ClassDescriptorDictionary(Set<Class> classes)
+	{
+		mBase = Builder.getDefaultDescriptorCount();
+		mClassCount = classes.size();
+		mDescList = new ArrayList<String>(mClassCount);
+		for( Class<?> c : classes )
+		{
+			String desc = ReflectUtils.getDesc(c);
+			if( Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER.getDescriptorIndex(desc) < 0 && ! mDescList.contains(desc) )
+				mDescList.add(desc);
+		}
+		Collections.sort(mDescList);
+		StringBuilder buf = new StringBuilder().append(mBase);
+		for(int i=0;i<mDescList.size();i++)
+		{
+			mDescMap.put(mDescList.get(i), mBase + i);
+			buf.append('\n').append(mDescList.get(i));
+		}
+		// a digest of the descriptors, as two dictionaries with the same fingerprint decode the ids alike.
+		mFingerprint = mDescList.size() + ":" + Bytes.bytes2hex(Bytes.getMD5(buf.toString().getBytes(UTF8)));
+	}
+
+	/**
+	 * get the dictionary of the classes registered so far.
+	 * 
+	 * @return dictionary.
+	 */
+	public static ClassDescriptorDictionary getDictionary()
+	{
+		ClassDescriptorDictionary current = mCurrent;
+		Set<Class> classes = SerializableClassRegistry.getRegisteredClasses();
+		if( current.mClassCount != classes.size() )
+		{
+			synchronized( ClassDescriptorDictionary.class )
+			{
+				current = mCurrent;
+				if( current.mClassCount != classes.size() )
+					mCurrent = current = new ClassDescriptorDictionary(classes);
+			}
+		}
+		return current;
+	}
+
+	public boolean isEmpty()
+	{
+		return mDescList.isEmpty();
+	}
+
+	public String getFingerprint()
+	{
+		return mFingerprint;
+	}
+
+	public String getDescriptor(int index)
+	{
+		if( index < mBase )
+			return Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER.getDescriptor(index);
+		if( index - mBase >= mDescList.size() )
+			return null;
+		return mDescList.get(index - mBase);
+	}
+
+	public int getDescriptorIndex(String desc)
+	{
+		Integer ret = mDescMap.get(desc);
+		return ret == null ? Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER.getDescriptorIndex(desc) : ret.intValue();
+	}
+}
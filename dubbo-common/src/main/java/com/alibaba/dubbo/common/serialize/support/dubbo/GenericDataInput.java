@@ -210,31 +210,36 @@ public class GenericDataInput implements DataInput, GenericDataFlags
 
 	protected byte[] read0(int len) throws IOException
 	{
-		int rem = mRead - mPosition;
 		byte[] ret = new byte[len];
+		read0(ret, 0, len);
+		return ret;
+	}
+
+	protected void read0(byte[] b, int off, int len) throws IOException
+	{
+		int rem = mRead - mPosition;
 		if( len <= rem )
 		{
-			System.arraycopy(mBuffer, mPosition, ret, 0, len);
+			System.arraycopy(mBuffer, mPosition, b, off, len);
 			mPosition += len;
 		}
 		else
 		{
-			System.arraycopy(mBuffer, mPosition, ret, 0, rem);
+			System.arraycopy(mBuffer, mPosition, b, off, rem);
 			mPosition = mRead;
 
 			len -= rem;
-			int read, pos = rem;
+			int read, pos = off + rem;
 
 			while( len > 0 )
 			{
-				read = mInput.read(ret, pos, len);
+				read = mInput.read(b, pos, len);
 				if( read == -1 )
 					throw new EOFException();
 				pos += read;
 				len -= read;
 			}
 		}
-		return ret;
 	}
 
 	private int readVarint32() throws IOException
@@ -60,9 +60,13 @@ public class GenericObjectInput extends GenericDataInput implements ObjectInput
 		mMapper = mapper;
 	}
 
+	public void setClassDescriptorMapper(ClassDescriptorMapper mapper)
+	{
+		mMapper = mapper;
+	}
+
 	public Object readObject() throws IOException
 	{
-		String desc;
 		byte b = read0();
 
 		switch( b )
@@ -72,21 +76,24 @@ public class GenericObjectInput extends GenericDataInput implements ObjectInput
 			case OBJECT_DUMMY:
 				return new Object();
 			case OBJECT_DESC:
-			{
-				desc = readUTF();
-				break;
-			}
+				return readObjectByDesc(readUTF());
 			case OBJECT_DESC_ID:
-			{
-				int index = readUInt();
-				desc = mMapper.getDescriptor(index);
-				if( desc == null )
-					throw new IOException("Can not find desc id: " + index );
-				break;
-			}
+				return readObjectByDescId(readUInt());
 			default:
 				throw new IOException("Flag error, expect OBJECT_NULL|OBJECT_DUMMY|OBJECT_DESC|OBJECT_DESC_ID, get " + b);
 		}
+	}
+
+	protected Object readObjectByDescId(int index) throws IOException
+	{
+		String desc = mMapper.getDescriptor(index);
+		if( desc == null )
+			throw new IOException("Can not find desc id: " + index );
+		return readObjectByDesc(desc);
+	}
+
+	private Object readObjectByDesc(String desc) throws IOException
+	{
 		try
 		{
 			Class<?> c = ReflectUtils.desc2class(desc);
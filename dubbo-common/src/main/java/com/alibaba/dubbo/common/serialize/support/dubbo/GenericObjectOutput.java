@@ -66,6 +66,11 @@ public class GenericObjectOutput extends GenericDataOutput implements ObjectOutp
 	    this.isAllowNonSerializable = isAllowNonSerializable;
 	}
 
+	public void setClassDescriptorMapper(ClassDescriptorMapper mapper)
+	{
+		mMapper = mapper;
+	}
+
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public void writeObject(Object obj) throws IOException
 	{
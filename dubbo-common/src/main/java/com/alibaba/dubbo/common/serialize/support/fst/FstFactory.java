@@ -15,11 +15,13 @@
  */
 package com.alibaba.dubbo.common.serialize.support.fst;
 
+import com.alibaba.dubbo.common.serialize.support.ReusableStreams;
 import com.alibaba.dubbo.common.serialize.support.SerializableClassRegistry;
 import de.ruedigermoeller.serialization.FSTConfiguration;
 import de.ruedigermoeller.serialization.FSTObjectInput;
 import de.ruedigermoeller.serialization.FSTObjectOutput;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -32,6 +34,10 @@ public class FstFactory {
 
     private final FSTConfiguration conf = FSTConfiguration.createDefaultConfiguration();
 
+    private final ReusableStreams<FSTObjectOutput> outputs = new ReusableStreams<FSTObjectOutput>();
+
+    private final ReusableStreams<FSTObjectInput> inputs = new ReusableStreams<FSTObjectInput>();
+
 
     public static FstFactory getDefaultFactory() {
         return factory;
@@ -44,10 +50,28 @@ public class FstFactory {
     }
 
     public FSTObjectOutput getObjectOutput(OutputStream outputStream) {
-        return conf.getObjectOutput(outputStream);
+        FSTObjectOutput output = outputs.acquire();
+        if (output == null) {
+            return new FSTObjectOutput(outputStream, conf);
+        }
+        output.resetForReUse(outputStream);
+        return output;
+    }
+
+    public void returnObjectOutput(FSTObjectOutput output, int maxRetainedBuffer) {
+        outputs.release(output, output.getBuffer().length, maxRetainedBuffer);
+    }
+
+    public FSTObjectInput getObjectInput(InputStream inputStream) throws IOException {
+        FSTObjectInput input = inputs.acquire();
+        if (input == null) {
+            return new FSTObjectInput(inputStream, conf);
+        }
+        input.resetForReuse(inputStream);
+        return input;
     }
 
-    public FSTObjectInput getObjectInput(InputStream inputStream) {
-        return conf.getObjectInput(inputStream);
+    public void returnObjectInput(FSTObjectInput input, int size, int maxRetainedBuffer) {
+        inputs.release(input, size, maxRetainedBuffer);
     }
 }
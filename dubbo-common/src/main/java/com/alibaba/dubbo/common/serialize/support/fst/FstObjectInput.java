@@ -15,7 +15,9 @@
  */
 package com.alibaba.dubbo.common.serialize.support.fst;
 
+import com.alibaba.dubbo.common.serialize.Cleanable;
 import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.support.ReusableStreams;
 import de.ruedigermoeller.serialization.FSTObjectInput;
 
 import java.io.IOException;
@@ -25,11 +27,20 @@ import java.lang.reflect.Type;
 /**
  * @author lishen
  */
-public class FstObjectInput implements ObjectInput {
+public class FstObjectInput implements ObjectInput, Cleanable {
 
     private FSTObjectInput input;
+    private final int size;
+    private final int maxRetainedBuffer;
 
-    public FstObjectInput(InputStream inputStream) {
+    public FstObjectInput(InputStream inputStream) throws IOException {
+        this(inputStream, ReusableStreams.getMaxRetainedBuffer(null));
+    }
+
+    public FstObjectInput(InputStream inputStream, int maxRetainedBuffer) throws IOException {
+        this.maxRetainedBuffer = maxRetainedBuffer;
+        // fst reads the whole body into its buffer, which grows to the largest body read.
+        size = inputStream.available();
         input = FstFactory.getDefaultFactory().getObjectInput(inputStream);
     }
 
@@ -92,4 +103,11 @@ public class FstObjectInput implements ObjectInput {
     public <T> T readObject(Class<T> clazz, Type type) throws IOException, ClassNotFoundException {
         return (T) readObject();
     }
+
+    public void cleanup() {
+        if (input != null) {
+            FstFactory.getDefaultFactory().returnObjectInput(input, size, maxRetainedBuffer);
+            input = null;
+        }
+    }
 }
\ No newline at end of file
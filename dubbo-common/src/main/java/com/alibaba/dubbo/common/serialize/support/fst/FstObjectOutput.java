@@ -15,7 +15,9 @@
  */
 package com.alibaba.dubbo.common.serialize.support.fst;
 
+import com.alibaba.dubbo.common.serialize.Cleanable;
 import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.support.ReusableStreams;
 import de.ruedigermoeller.serialization.FSTObjectOutput;
 
 import java.io.IOException;
@@ -24,11 +26,17 @@ import java.io.OutputStream;
 /**
  * @author lishen
  */
-public class FstObjectOutput implements ObjectOutput {
+public class FstObjectOutput implements ObjectOutput, Cleanable {
 
     private FSTObjectOutput output;
+    private final int maxRetainedBuffer;
 
     public FstObjectOutput(OutputStream outputStream) {
+        this(outputStream, ReusableStreams.getMaxRetainedBuffer(null));
+    }
+
+    public FstObjectOutput(OutputStream outputStream, int maxRetainedBuffer) {
+        this.maxRetainedBuffer = maxRetainedBuffer;
         output = FstFactory.getDefaultFactory().getObjectOutput(outputStream);
     }
 
@@ -89,4 +97,11 @@ public class FstObjectOutput implements ObjectOutput {
     public void flushBuffer() throws IOException {
         output.flush();
     }
+
+    public void cleanup() {
+        if (output != null) {
+            FstFactory.getDefaultFactory().returnObjectOutput(output, maxRetainedBuffer);
+            output = null;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.hessian;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.com.caucho.hessian.io.AbstractHessianOutput;
+import com.alibaba.com.caucho.hessian.io.AbstractSerializer;
+import com.alibaba.dubbo.common.bytecode.ClassGenerator;
+
+/**
+ * Writes the same bytes as JavaSerializer for a class without writeReplace, with the class name and the field names
+ * of the definition taken once, and the field values written by a generated Hessian2FieldWriter instead of one
+ * reflective FieldSerializer per field.
+ */
+final class Hessian2FastSerializer extends AbstractSerializer
+{
+	private static final AtomicLong WRITER_CLASS_COUNTER = new AtomicLong(0);
+
+	private final String mType;
+
+	private final Field[] mFields;
+
+	private final Hessian2FieldWriter mWriter;
+
+	private Hessian2FastSerializer(Class<?> cl, Field[] fields, Hessian2FieldWriter writer)
+	{
+		mType = cl.getName();
+		mFields = fields;
+		mWriter = writer;
+	}
+
+	@Override
+	public void writeObject(Object obj, AbstractHessianOutput out) throws IOException
+	{
+		if (out.addRef(obj))
+			return;
+
+		int ref = out.writeObjectBegin(mType);
+		if (ref < -1)
+		{
+			// hessian 1 writes the object as a map.
+			for (Field field : mFields)
+			{
+				out.writeString(field.getName());
+				try
+				{
+					out.writeObject(field.get(obj));
+				}
+				catch (IllegalAccessException e)
+				{
+					throw new IllegalStateException(e.getMessage(), e);
+				}
+			}
+			out.writeMapEnd();
+			return;
+		}
+		if (ref == -1)
+		{
+			out.writeClassFieldLength(mFields.length);
+			for (Field field : mFields)
+				out.writeString(field.getName());
+			out.writeObjectBegin(mType);
+		}
+		mWriter.writeFields(obj, out);
+	}
+
+	/**
+	 * @return the serializer of the class, or null if the class is left to JavaSerializer.
+	 */
+	static Hessian2FastSerializer newSerializer(Class<?> cl, ClassLoader loader)
+	{
+		if (Hessian2FieldWriter.UNSAFE == null || hasWriteReplace(cl, loader))
+			return null;
+
+		// the order of JavaSerializer: the primitive and java.lang fields, then the others, all reversed.
+		List<Field> primitiveFields = new ArrayList<Field>();
+		List<Field> compoundFields = new ArrayList<Field>();
+		for (Class<?> t = cl; t != null; t = t.getSuperclass())
+		{
+			for (Field field : t.getDeclaredFields())
+			{
+				if (Modifier.isTransient(field.getModifiers()) || Modifier.isStatic(field.getModifiers()))
+					continue;
+				field.setAccessible(true);
+				Class<?> type = field.getType();
+				if (type.isPrimitive() || (type.getName().startsWith("java.lang.") && !type.equals(Object.class)))
+					primitiveFields.add(field);
+				else
+					compoundFields.add(field);
+			}
+		}
+		List<Field> fields = new ArrayList<Field>();
+		fields.addAll(primitiveFields);
+		fields.addAll(compoundFields);
+		Collections.reverse(fields);
+
+		StringBuilder code = new StringBuilder("public void writeFields(Object obj, ")
+				.append(AbstractHessianOutput.class.getName()).append(" out) throws java.io.IOException{ ")
+				.append("sun.misc.Unsafe u = ").append(Hessian2FieldWriter.class.getName()).append(".UNSAFE; ");
+		for (Field field : fields)
+		{
+			Class<?> type = field.getType();
+			String offset = "$1, " + Hessian2FieldWriter.UNSAFE.objectFieldOffset(field) + "L";
+			String get = Modifier.isVolatile(field.getModifiers()) ? "Volatile(" : "(";
+			if (type == int.class)
+				code.append("$2.writeInt(u.getInt").append(get).append(offset).append("));");
+			else if (type == byte.class)
+				code.append("$2.writeInt(u.getByte").append(get).append(offset).append("));");
+			else if (type == short.class)
+				code.append("$2.writeInt(u.getShort").append(get).append(offset).append("));");
+			else if (type == long.class)
+				code.append("$2.writeLong(u.getLong").append(get).append(offset).append("));");
+			else if (type == double.class)
+				code.append("$2.writeDouble(u.getDouble").append(get).append(offset).append("));");
+			else if (type == float.class)
+				code.append("$2.writeDouble((double)u.getFloat").append(get).append(offset).append("));");
+			else if (type == boolean.class)
+				code.append("$2.writeBoolean(u.getBoolean").append(get).append(offset).append("));");
+			else if (type == char.class)
+				code.append("$2.writeObject(Character.valueOf(u.getChar").append(get).append(offset).append(")));");
+			else if (type == String.class)
+				code.append("$2.writeString((String)u.getObject").append(get).append(offset).append("));");
+			else if (type == java.util.Date.class || type == java.sql.Date.class || type == java.sql.Time.class
+					|| type == java.sql.Timestamp.class)
+				code.append(Hessian2FieldWriter.class.getName()).append(".writeDate($2, u.getObject").append(get)
+						.append(offset).append("));");
+			else
+				code.append("$2.writeObject(u.getObject").append(get).append(offset).append("));");
+		}
+		code.append(" }");
+
+		// the generated code refers to no type of the class, so that it is defined by the loader of the writer.
+		ClassLoader writerLoader = Hessian2FieldWriter.class.getClassLoader();
+		ClassGenerator cg = ClassGenerator.newInstance(writerLoader);
+		cg.setClassName(Hessian2FieldWriter.class.getName() + "$fw" + WRITER_CLASS_COUNTER.getAndIncrement());
+		cg.setSuperClass(Hessian2FieldWriter.class);
+		cg.addDefaultConstructor();
+		cg.addMethod(code.toString());
+		try
+		{
+			Hessian2FieldWriter writer = (Hessian2FieldWriter) cg.toClass(writerLoader,
+					Hessian2FieldWriter.class.getProtectionDomain()).newInstance();
+			return new Hessian2FastSerializer(cl, fields.toArray(new Field[fields.size()]), writer);
+		}
+		catch (RuntimeException e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		finally
+		{
+			cg.release();
+		}
+	}
+
+	private static boolean hasWriteReplace(Class<?> cl, ClassLoader loader)
+	{
+		try
+		{
+			Class.forName(cl.getName() + "HessianSerializer", false, loader);
+			return true;
+		}
+		catch (Throwable t)
+		{
+		}
+		for (Class<?> t = cl; t != null; t = t.getSuperclass())
+		{
+			for (Method method : t.getDeclaredMethods())
+			{
+				if (method.getName().equals("writeReplace") && method.getParameterTypes().length == 0)
+					return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.hessian;
+
+import com.alibaba.com.caucho.hessian.io.JavaSerializer;
+import com.alibaba.com.caucho.hessian.io.Serializer;
+import com.alibaba.com.caucho.hessian.io.SerializerFactory;
+
+/**
+ * Serializes a class with a cached Hessian2FastSerializer wherever Hessian2SerializerFactory would use
+ * JavaSerializer; the deserializers are left as they are.
+ */
+public class Hessian2FastSerializerFactory extends Hessian2SerializerFactory {
+
+	public static final SerializerFactory SERIALIZER_FACTORY = new Hessian2FastSerializerFactory();
+
+	private Hessian2FastSerializerFactory() {
+	}
+
+	@Override
+	protected Serializer getDefaultSerializer(Class cl) {
+		Serializer serializer = super.getDefaultSerializer(cl);
+		if (serializer instanceof JavaSerializer) {
+			Serializer fast = Hessian2FastSerializer.newSerializer(cl, getClassLoader());
+			if (fast != null) {
+				return fast;
+			}
+		}
+		return serializer;
+	}
+
+}
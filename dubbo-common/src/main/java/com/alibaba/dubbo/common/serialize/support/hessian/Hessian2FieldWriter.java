@@ -0,0 +1,64 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.hessian;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+import com.alibaba.com.caucho.hessian.io.AbstractHessianOutput;
+
+/**
+ * The generated code that writes the field values of one class in the order of the class definition, each read at
+ * its field offset.
+ * 
+ * @see Hessian2FastSerializer
+ */
+public abstract class Hessian2FieldWriter
+{
+	/**
+	 * null if the unsafe is not accessible, in which case nothing is generated.
+	 */
+	public static final Unsafe UNSAFE = getUnsafe();
+
+	public abstract void writeFields(Object obj, AbstractHessianOutput out) throws IOException;
+
+	/**
+	 * write the value of a date field as JavaSerializer does.
+	 */
+	public static void writeDate(AbstractHessianOutput out, Object value) throws IOException
+	{
+		if (value == null)
+			out.writeNull();
+		else
+			out.writeUTCDate(((java.util.Date) value).getTime());
+	}
+
+	private static Unsafe getUnsafe()
+	{
+		try
+		{
+			Field field = Unsafe.class.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return (Unsafe) field.get(null);
+		}
+		catch (Throwable t)
+		{
+			return null;
+		}
+	}
+}
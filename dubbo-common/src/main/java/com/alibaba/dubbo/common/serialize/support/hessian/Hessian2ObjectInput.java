@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.lang.reflect.Type;
 
 import com.alibaba.com.caucho.hessian.io.Hessian2Input;
+import com.alibaba.com.caucho.hessian.io.SerializerFactory;
 import com.alibaba.dubbo.common.serialize.ObjectInput;
 
 /**
@@ -33,9 +34,14 @@ public class Hessian2ObjectInput implements ObjectInput
 	private final Hessian2Input mH2i;
 
 	public Hessian2ObjectInput(InputStream is)
+	{
+		this(is, Hessian2SerializerFactory.SERIALIZER_FACTORY);
+	}
+
+	public Hessian2ObjectInput(InputStream is, SerializerFactory factory)
 	{
 		mH2i = new Hessian2Input(is);
-		mH2i.setSerializerFactory(Hessian2SerializerFactory.SERIALIZER_FACTORY);
+		mH2i.setSerializerFactory(factory);
 	}
 
 	public boolean readBool() throws IOException
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import com.alibaba.com.caucho.hessian.io.Hessian2Output;
+import com.alibaba.com.caucho.hessian.io.SerializerFactory;
 import com.alibaba.dubbo.common.serialize.ObjectOutput;
 
 /**
@@ -32,9 +33,14 @@ public class Hessian2ObjectOutput implements ObjectOutput
 	private final Hessian2Output mH2o;
 
 	public Hessian2ObjectOutput(OutputStream os)
+	{
+		this(os, Hessian2SerializerFactory.SERIALIZER_FACTORY);
+	}
+
+	public Hessian2ObjectOutput(OutputStream os, SerializerFactory factory)
 	{
 		mH2o = new Hessian2Output(os);
-		mH2o.setSerializerFactory(Hessian2SerializerFactory.SERIALIZER_FACTORY);
+		mH2o.setSerializerFactory(factory);
 	}
 
 	public void writeBool(boolean v) throws IOException
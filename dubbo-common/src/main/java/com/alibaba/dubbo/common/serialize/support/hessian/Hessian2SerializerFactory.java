@@ -21,7 +21,7 @@ public class Hessian2SerializerFactory extends SerializerFactory {
 
 	public static final SerializerFactory SERIALIZER_FACTORY = new Hessian2SerializerFactory();
 
-	private Hessian2SerializerFactory() {
+	protected Hessian2SerializerFactory() {
 	}
 
 	@Override
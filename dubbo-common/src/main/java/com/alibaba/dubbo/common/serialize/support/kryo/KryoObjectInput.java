@@ -17,6 +17,7 @@ package com.alibaba.dubbo.common.serialize.support.kryo;
 
 import com.alibaba.dubbo.common.serialize.Cleanable;
 import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.support.ReusableStreams;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Input;
@@ -30,11 +31,24 @@ import java.lang.reflect.Type;
  */
 public class KryoObjectInput implements ObjectInput, Cleanable {
 
+    private static final ReusableStreams<Input> inputs = new ReusableStreams<Input>();
+
     private Kryo kryo = KryoFactory.getDefaultFactory().getKryo();
     private Input input;
+    private final int maxRetainedBuffer;
 
     public KryoObjectInput(InputStream inputStream) {
-        input = new Input(inputStream);
+        this(inputStream, ReusableStreams.getMaxRetainedBuffer(null));
+    }
+
+    public KryoObjectInput(InputStream inputStream, int maxRetainedBuffer) {
+        this.maxRetainedBuffer = maxRetainedBuffer;
+        input = inputs.acquire();
+        if (input == null) {
+            input = new Input(inputStream);
+        } else {
+            input.setInputStream(inputStream);
+        }
     }
 
     public boolean readBool() throws IOException {
@@ -154,5 +168,9 @@ public class KryoObjectInput implements ObjectInput, Cleanable {
     public void cleanup() {
         KryoFactory.getDefaultFactory().returnKryo(kryo);
         kryo = null;
+        if (input != null) {
+            inputs.release(input, input.getBuffer().length, maxRetainedBuffer);
+            input = null;
+        }
     }
 }
\ No newline at end of file
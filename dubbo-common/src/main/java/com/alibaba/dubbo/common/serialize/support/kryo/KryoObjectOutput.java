@@ -17,6 +17,7 @@ package com.alibaba.dubbo.common.serialize.support.kryo;
 
 import com.alibaba.dubbo.common.serialize.Cleanable;
 import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.support.ReusableStreams;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
 
@@ -28,11 +29,24 @@ import java.io.OutputStream;
  */
 public class KryoObjectOutput implements ObjectOutput, Cleanable {
 
+    private static final ReusableStreams<Output> outputs = new ReusableStreams<Output>();
+
     private Kryo kryo = KryoFactory.getDefaultFactory().getKryo();
     private Output output;
+    private final int maxRetainedBuffer;
 
     public KryoObjectOutput(OutputStream outputStream) {
-        output = new Output(outputStream);
+        this(outputStream, ReusableStreams.getMaxRetainedBuffer(null));
+    }
+
+    public KryoObjectOutput(OutputStream outputStream, int maxRetainedBuffer) {
+        this.maxRetainedBuffer = maxRetainedBuffer;
+        output = outputs.acquire();
+        if (output == null) {
+            output = new Output(outputStream);
+        } else {
+            output.setOutputStream(outputStream);
+        }
     }
 
     public void writeBool(boolean v) throws IOException {
@@ -98,5 +112,9 @@ public class KryoObjectOutput implements ObjectOutput, Cleanable {
     public void cleanup() {
         KryoFactory.getDefaultFactory().returnKryo(kryo);
         kryo = null;
+        if (output != null) {
+            outputs.release(output, output.getBuffer().length, maxRetainedBuffer);
+            output = null;
+        }
     }
 }
\ No newline at end of file
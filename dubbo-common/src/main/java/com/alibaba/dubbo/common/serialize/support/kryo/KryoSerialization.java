@@ -19,6 +19,7 @@ import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.serialize.ObjectInput;
 import com.alibaba.dubbo.common.serialize.ObjectOutput;
 import com.alibaba.dubbo.common.serialize.OptimizedSerialization;
+import com.alibaba.dubbo.common.serialize.support.ReusableStreams;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,10 +41,10 @@ public class KryoSerialization implements OptimizedSerialization {
     }
 
     public ObjectOutput serialize(URL url, OutputStream out) throws IOException {
-        return new KryoObjectOutput(out);
+        return new KryoObjectOutput(out, ReusableStreams.getMaxRetainedBuffer(url));
     }
 
     public ObjectInput deserialize(URL url, InputStream is) throws IOException {
-        return new KryoObjectInput(is);
+        return new KryoObjectInput(is, ReusableStreams.getMaxRetainedBuffer(url));
     }
 }
\ No newline at end of file
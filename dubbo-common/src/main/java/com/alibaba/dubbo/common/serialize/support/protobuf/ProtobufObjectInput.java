@@ -0,0 +1,160 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.protobuf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.io.UnsafeByteArrayInputStream;
+import com.alibaba.dubbo.common.serialize.Cleanable;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.Serialization;
+import com.alibaba.dubbo.common.utils.ClassHelper;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+/**
+ * Protobuf object input.
+ */
+public class ProtobufObjectInput implements ObjectInput {
+
+    private static final ConcurrentMap<String, Parser<?>> PARSERS = new ConcurrentHashMap<String, Parser<?>>();
+
+    private final CodedInputStream input;
+
+    private final URL url;
+
+    private final Serialization fallback;
+
+    public ProtobufObjectInput(InputStream is, URL url, Serialization fallback) {
+        this.input = CodedInputStream.newInstance(is);
+        // the size of the body is already checked by the codec.
+        this.input.setSizeLimit(Integer.MAX_VALUE);
+        this.url = url;
+        this.fallback = fallback;
+    }
+
+    public boolean readBool() throws IOException {
+        return input.readBool();
+    }
+
+    public byte readByte() throws IOException {
+        return input.readRawByte();
+    }
+
+    public short readShort() throws IOException {
+        return (short) input.readSInt32();
+    }
+
+    public int readInt() throws IOException {
+        return input.readSInt32();
+    }
+
+    public long readLong() throws IOException {
+        return input.readSInt64();
+    }
+
+    public float readFloat() throws IOException {
+        return input.readFloat();
+    }
+
+    public double readDouble() throws IOException {
+        return input.readDouble();
+    }
+
+    public String readUTF() throws IOException {
+        byte[] bytes = readBytes();
+        return bytes == null ? null : new String(bytes, ProtobufObjectOutput.UTF_8);
+    }
+
+    public byte[] readBytes() throws IOException {
+        int length = input.readUInt32();
+        return length == 0 ? null : input.readRawBytes(length - 1);
+    }
+
+    public Object readObject() throws IOException, ClassNotFoundException {
+        return readObject(null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T readObject(Class<T> cls) throws IOException, ClassNotFoundException {
+        return (T) readObject(cls, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T readObject(Class<T> cls, Type type) throws IOException, ClassNotFoundException {
+        byte tag = input.readRawByte();
+        switch (tag) {
+            case ProtobufObjectOutput.NULL:
+                return null;
+            case ProtobufObjectOutput.MESSAGE:
+                Parser<?> parser = getParser(readUTF());
+                int limit = input.pushLimit(input.readUInt32());
+                Object message = parser.parseFrom(input);
+                input.popLimit(limit);
+                return (T) message;
+            case ProtobufObjectOutput.STRING:
+                return (T) readUTF();
+            case ProtobufObjectOutput.STRING_MAP:
+                int size = input.readUInt32();
+                Map<String, String> map = new HashMap<String, String>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    map.put(readUTF(), readUTF());
+                }
+                return (T) map;
+            case ProtobufObjectOutput.FALLBACK:
+                byte[] bytes = input.readRawBytes(input.readUInt32());
+                ObjectInput in = fallback.deserialize(url, new UnsafeByteArrayInputStream(bytes));
+                try {
+                    if (cls == null) {
+                        return (T) in.readObject();
+                    }
+                    return type == null ? in.readObject(cls) : in.readObject(cls, type);
+                } finally {
+                    if (in instanceof Cleanable) {
+                        ((Cleanable) in).cleanup();
+                    }
+                }
+            default:
+                throw new IOException("Unknown protobuf object tag " + tag);
+        }
+    }
+
+    private static Parser<?> getParser(String className) throws IOException, ClassNotFoundException {
+        Parser<?> parser = PARSERS.get(className);
+        if (parser == null) {
+            Class<?> cls = ClassHelper.forNameWithThreadContextClassLoader(className);
+            if (!MessageLite.class.isAssignableFrom(cls)) {
+                throw new IOException("Class " + className + " is not a protobuf message");
+            }
+            try {
+                parser = ((MessageLite) cls.getMethod("getDefaultInstance").invoke(null)).getParserForType();
+            } catch (Exception e) {
+                throw new IOException("Failed to get the parser of protobuf message " + className, e);
+            }
+            PARSERS.putIfAbsent(className, parser);
+        }
+        return parser;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.protobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.io.UnsafeByteArrayOutputStream;
+import com.alibaba.dubbo.common.serialize.Cleanable;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.Serialization;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+/**
+ * Protobuf object output.
+ */
+public class ProtobufObjectOutput implements ObjectOutput {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final byte NULL = 0;
+
+    static final byte MESSAGE = 1;
+
+    static final byte STRING = 2;
+
+    static final byte STRING_MAP = 3;
+
+    static final byte FALLBACK = 4;
+
+    private final CodedOutputStream output;
+
+    private final URL url;
+
+    private final Serialization fallback;
+
+    public ProtobufObjectOutput(OutputStream out, URL url, Serialization fallback) {
+        this.output = CodedOutputStream.newInstance(out);
+        this.url = url;
+        this.fallback = fallback;
+    }
+
+    public void writeBool(boolean v) throws IOException {
+        output.writeBoolNoTag(v);
+    }
+
+    public void writeByte(byte v) throws IOException {
+        output.writeRawByte(v);
+    }
+
+    public void writeShort(short v) throws IOException {
+        output.writeSInt32NoTag(v);
+    }
+
+    public void writeInt(int v) throws IOException {
+        output.writeSInt32NoTag(v);
+    }
+
+    public void writeLong(long v) throws IOException {
+        output.writeSInt64NoTag(v);
+    }
+
+    public void writeFloat(float v) throws IOException {
+        output.writeFloatNoTag(v);
+    }
+
+    public void writeDouble(double v) throws IOException {
+        output.writeDoubleNoTag(v);
+    }
+
+    public void writeUTF(String v) throws IOException {
+        if (v == null) {
+            output.writeUInt32NoTag(0);
+        } else {
+            writeBytes(v.getBytes(UTF_8));
+        }
+    }
+
+    public void writeBytes(byte[] v) throws IOException {
+        if (v == null) {
+            output.writeUInt32NoTag(0);
+        } else {
+            writeBytes(v, 0, v.length);
+        }
+    }
+
+    public void writeBytes(byte[] v, int off, int len) throws IOException {
+        if (v == null) {
+            output.writeUInt32NoTag(0);
+        } else {
+            // the length is shifted by one to tell an empty array from null.
+            output.writeUInt32NoTag(len + 1);
+            output.writeRawBytes(v, off, len);
+        }
+    }
+
+    public void writeObject(Object obj) throws IOException {
+        if (obj == null) {
+            output.writeRawByte(NULL);
+        } else if (obj instanceof MessageLite) {
+            output.writeRawByte(MESSAGE);
+            writeUTF(obj.getClass().getName());
+            output.writeMessageNoTag((MessageLite) obj);
+        } else if (obj instanceof String) {
+            output.writeRawByte(STRING);
+            writeUTF((String) obj);
+        } else if (obj.getClass() == HashMap.class && isStringMap((Map<?, ?>) obj)) {
+            output.writeRawByte(STRING_MAP);
+            Map<?, ?> map = (Map<?, ?>) obj;
+            output.writeUInt32NoTag(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeUTF((String) entry.getKey());
+                writeUTF((String) entry.getValue());
+            }
+        } else {
+            output.writeRawByte(FALLBACK);
+            UnsafeByteArrayOutputStream bos = new UnsafeByteArrayOutputStream();
+            ObjectOutput out = fallback.serialize(url, bos);
+            try {
+                out.writeObject(obj);
+                out.flushBuffer();
+            } finally {
+                if (out instanceof Cleanable) {
+                    ((Cleanable) out).cleanup();
+                }
+            }
+            output.writeUInt32NoTag(bos.size());
+            output.writeRawBytes(bos.toByteArray());
+        }
+    }
+
+    public void flushBuffer() throws IOException {
+        output.flush();
+    }
+
+    private static boolean isStringMap(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String)
+                    || (entry.getValue() != null && !(entry.getValue() instanceof String))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
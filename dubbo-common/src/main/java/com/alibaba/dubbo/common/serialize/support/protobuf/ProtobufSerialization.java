@@ -0,0 +1,58 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support.protobuf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.Serialization;
+
+/**
+ * Writes protobuf messages with their own wire format, straight into the stream, and the strings and the string maps
+ * of the invocation envelope as length-delimited fields. Any other object is written by the fallback serialization
+ * (protobuf.fallback, hessian2 by default) as a length-delimited field.
+ */
+public class ProtobufSerialization implements Serialization {
+
+    public byte getContentTypeId() {
+        return 11;
+    }
+
+    public String getContentType() {
+        return "x-application/protobuf";
+    }
+
+    public ObjectOutput serialize(URL url, OutputStream out) throws IOException {
+        return new ProtobufObjectOutput(out, url, getFallback(url));
+    }
+
+    public ObjectInput deserialize(URL url, InputStream is) throws IOException {
+        return new ProtobufObjectInput(is, url, getFallback(url));
+    }
+
+    private static Serialization getFallback(URL url) {
+        String name = url == null ? Constants.DEFAULT_PROTOBUF_FALLBACK
+                : url.getParameter(Constants.PROTOBUF_FALLBACK_KEY, Constants.DEFAULT_PROTOBUF_FALLBACK);
+        return ExtensionLoader.getExtensionLoader(Serialization.class).getExtension(name);
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alibaba.dubbo.common.threadpool.support.eager;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ThreadPoolExecutor working with {@link TaskQueue}: it counts the submitted and not yet
+ * finished tasks, so that the queue knows whether an idle thread can take a task.
+ */
+public class EagerThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final AtomicInteger submittedTaskCount = new AtomicInteger(0);
+
+    public EagerThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                   TaskQueue workQueue, ThreadFactory threadFactory, RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+    }
+
+    public int getSubmittedTaskCount() {
+        return submittedTaskCount.get();
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        submittedTaskCount.decrementAndGet();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        submittedTaskCount.incrementAndGet();
+        try {
+            super.execute(command);
+        } catch (RejectedExecutionException e) {
+            // a thread may have finished since the queue refused the task.
+            TaskQueue queue = (TaskQueue) super.getQueue();
+            boolean queued = false;
+            try {
+                queued = queue.retryOffer(command, 0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (RejectedExecutionException shutdown) {
+            }
+            if (! queued) {
+                submittedTaskCount.decrementAndGet();
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            submittedTaskCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+}
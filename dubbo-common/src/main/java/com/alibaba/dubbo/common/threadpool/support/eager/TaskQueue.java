@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alibaba.dubbo.common.threadpool.support.eager;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refuses offers while the executor can still start a thread, so that
+ * ThreadPoolExecutor grows to the maximum pool size before queueing.
+ */
+public class TaskQueue extends LinkedBlockingQueue<Runnable> {
+
+    private static final long serialVersionUID = -2635853580887179627L;
+
+    private EagerThreadPoolExecutor executor;
+
+    public TaskQueue(int capacity) {
+        super(capacity);
+    }
+
+    public void setExecutor(EagerThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (executor == null) {
+            throw new RejectedExecutionException("The task queue does not have executor!");
+        }
+        int poolSize = executor.getPoolSize();
+        // an idle thread takes it right away.
+        if (executor.getSubmittedTaskCount() < poolSize) {
+            return super.offer(runnable);
+        }
+        // let the executor start a new thread.
+        if (poolSize < executor.getMaximumPoolSize()) {
+            return false;
+        }
+        return super.offer(runnable);
+    }
+
+    /**
+     * offer to the queue itself, for a task rejected while threads were finishing.
+     */
+    public boolean retryOffer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor is shutdown!");
+        }
+        return super.offer(runnable, timeout, unit);
+    }
+
+}
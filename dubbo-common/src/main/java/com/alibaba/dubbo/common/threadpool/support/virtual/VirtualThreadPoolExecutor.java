@@ -0,0 +1,226 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alibaba.dubbo.common.threadpool.support.virtual;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.ConcurrentHashSet;
+
+/**
+ * Runs every task on its own virtual thread, or on a work-stealing pool when the
+ * JVM has no virtual threads. A semaphore caps the concurrently running tasks,
+ * a task over the cap is rejected instead of queued.
+ */
+public class VirtualThreadPoolExecutor extends AbstractExecutorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPoolExecutor.class);
+
+    private final String name;
+
+    private final URL url;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private final ThreadFactory virtualThreadFactory;
+
+    private final ForkJoinPool workStealingPool;
+
+    private final Set<Thread> runningThreads = new ConcurrentHashSet<Thread>();
+
+    private final AtomicInteger largestCount = new AtomicInteger();
+
+    private final AtomicLong taskCount = new AtomicLong();
+
+    private final AtomicLong completedTaskCount = new AtomicLong();
+
+    private volatile boolean shutdown;
+
+    public VirtualThreadPoolExecutor(final String name, int maxConcurrency, URL url) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency <= 0");
+        }
+        this.name = name;
+        this.url = url;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        this.virtualThreadFactory = newVirtualThreadFactory(name);
+        if (virtualThreadFactory == null) {
+            this.workStealingPool = new ForkJoinPool(Math.min(maxConcurrency, 0x7fff),
+                    new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setName(name + "-thread-" + (thread.getPoolIndex() + 1));
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }, null, true);
+        } else {
+            this.workStealingPool = null;
+        }
+    }
+
+    /**
+     * Thread.ofVirtual().name(prefix, 1).factory(), null on JVMs without (enabled) virtual threads.
+     */
+    static ThreadFactory newVirtualThreadFactory(String name) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-thread-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    public void execute(final Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown || ! permits.tryAcquire()) {
+            reject();
+        }
+        Runnable task = new Runnable() {
+            public void run() {
+                Thread thread = Thread.currentThread();
+                runningThreads.add(thread);
+                int active = runningThreads.size();
+                for (int largest = largestCount.get(); active > largest; largest = largestCount.get()) {
+                    if (largestCount.compareAndSet(largest, active)) {
+                        break;
+                    }
+                }
+                try {
+                    command.run();
+                } finally {
+                    runningThreads.remove(thread);
+                    completedTaskCount.incrementAndGet();
+                    permits.release();
+                }
+            }
+        };
+        taskCount.incrementAndGet();
+        try {
+            if (virtualThreadFactory != null) {
+                Thread thread = virtualThreadFactory.newThread(task);
+                if (thread == null) {
+                    throw new RejectedExecutionException("Failed to create virtual thread for " + name);
+                }
+                thread.start();
+            } else {
+                workStealingPool.execute(task);
+            }
+        } catch (RuntimeException e) {
+            taskCount.decrementAndGet();
+            permits.release();
+            throw e;
+        } catch (Error e) {
+            taskCount.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void reject() {
+        String msg = String.format("Thread pool is EXHAUSTED!" +
+                " Thread Name: %s, Pool Size: %d (active: %d, max: %d, largest: %d), Task: %d (completed: %d)," +
+                " Executor status:(isShutdown:%s, isTerminated:%s, virtual:%s), in %s://%s:%d!",
+                name, getPoolSize(), getActiveCount(), maxConcurrency, getLargestPoolSize(),
+                getTaskCount(), getCompletedTaskCount(), isShutdown(), isTerminated(), isVirtual(),
+                url.getProtocol(), url.getIp(), url.getPort());
+        logger.warn(msg);
+        throw new RejectedExecutionException(msg);
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        if (workStealingPool != null) {
+            workStealingPool.shutdown();
+        }
+    }
+
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        for (Thread thread : runningThreads) {
+            thread.interrupt();
+        }
+        return new ArrayList<Runnable>();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isTerminated() {
+        return shutdown && permits.availablePermits() == maxConcurrency;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (! permits.tryAcquire(maxConcurrency, timeout, unit)) {
+            return false;
+        }
+        permits.release(maxConcurrency);
+        return shutdown;
+    }
+
+    public boolean isVirtual() {
+        return virtualThreadFactory != null;
+    }
+
+    /**
+     * tasks accepted and not yet finished, including those waiting for a carrier thread.
+     */
+    public int getPoolSize() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getActiveCount() {
+        return runningThreads.size();
+    }
+
+    public int getMaximumPoolSize() {
+        return maxConcurrency;
+    }
+
+    public int getLargestPoolSize() {
+        return largestCount.get();
+    }
+
+    public long getTaskCount() {
+        return taskCount.get();
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTaskCount.get();
+    }
+
+}
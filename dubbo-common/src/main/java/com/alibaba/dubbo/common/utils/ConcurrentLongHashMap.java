@@ -0,0 +1,296 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Concurrent hash map keyed by a primitive long, the keys are never boxed.
+ * <p>
+ * The map is split into independently locked sections, each one is an open addressing table
+ * with linear probing and backward shift deletion, so removals leave no tombstones behind.
+ * Null values are not allowed.
+ */
+public class ConcurrentLongHashMap<V> {
+
+    private static final float FILL_FACTOR = 0.66f;
+
+    private static final int DEFAULT_EXPECTED_ITEMS = 256;
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Section<V>[] sections;
+
+    public ConcurrentLongHashMap() {
+        this(DEFAULT_EXPECTED_ITEMS);
+    }
+
+    public ConcurrentLongHashMap(int expectedItems) {
+        this(expectedItems, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongHashMap(int expectedItems, int concurrencyLevel) {
+        if (expectedItems <= 0) {
+            throw new IllegalArgumentException("expectedItems must be greater than 0");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be greater than 0");
+        }
+        int numSections = alignToPowerOfTwo(concurrencyLevel);
+        int perSectionCapacity = (int) (Math.max(1, expectedItems / numSections) / FILL_FACTOR);
+        sections = new Section[numSections];
+        for (int i = 0; i < numSections; i++) {
+            sections[i] = new Section<V>(perSectionCapacity);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Section<V> section : sections) {
+            size += section.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (Section<V> section : sections) {
+            if (section.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V get(long key) {
+        long h = hash(key);
+        return getSection(h).get(key, (int) h);
+    }
+
+    /**
+     * @return the previous value, or null if there was none.
+     */
+    public V put(long key, V value) {
+        checkValue(value);
+        long h = hash(key);
+        return getSection(h).put(key, value, (int) h, false);
+    }
+
+    /**
+     * @return the current value, or null if the value has been put.
+     */
+    public V putIfAbsent(long key, V value) {
+        checkValue(value);
+        long h = hash(key);
+        return getSection(h).put(key, value, (int) h, true);
+    }
+
+    /**
+     * @return the removed value, or null if there was none.
+     */
+    public V remove(long key) {
+        long h = hash(key);
+        return getSection(h).remove(key, null, (int) h);
+    }
+
+    /**
+     * Removes the key only if it is currently mapped to the given value (by identity).
+     */
+    public boolean remove(long key, V value) {
+        checkValue(value);
+        long h = hash(key);
+        return getSection(h).remove(key, value, (int) h) != null;
+    }
+
+    public void clear() {
+        for (Section<V> section : sections) {
+            section.clear();
+        }
+    }
+
+    /**
+     * @return a snapshot of the values, each section is copied atomically.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<V>(size());
+        for (Section<V> section : sections) {
+            section.copyValues(values);
+        }
+        return values;
+    }
+
+    private Section<V> getSection(long hash) {
+        // the high 32 bits pick the section, the low 32 bits pick the bucket.
+        return sections[(int) (hash >>> 32) & (sections.length - 1)];
+    }
+
+    private static void checkValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException("value == null");
+        }
+    }
+
+    static long hash(long key) {
+        long hash = key * 0xc6a4a7935bd1e995L;
+        hash ^= hash >>> 47;
+        hash *= 0xc6a4a7935bd1e995L;
+        return hash;
+    }
+
+    static int alignToPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private static final class Section<V> {
+
+        private long[] keys;
+
+        private V[] values;
+
+        private int resizeThreshold;
+
+        private volatile int size;
+
+        Section(int capacity) {
+            allocate(alignToPowerOfTwo(Math.max(2, capacity)));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = (V[]) new Object[capacity];
+            resizeThreshold = (int) (capacity * FILL_FACTOR);
+        }
+
+        synchronized V get(long key, int keyHash) {
+            int mask = keys.length - 1;
+            for (int bucket = keyHash & mask; ; bucket = (bucket + 1) & mask) {
+                V value = values[bucket];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[bucket] == key) {
+                    return value;
+                }
+            }
+        }
+
+        synchronized V put(long key, V value, int keyHash, boolean onlyIfAbsent) {
+            int mask = keys.length - 1;
+            int bucket = keyHash & mask;
+            for (; ; bucket = (bucket + 1) & mask) {
+                V current = values[bucket];
+                if (current == null) {
+                    break;
+                }
+                if (keys[bucket] == key) {
+                    if (! onlyIfAbsent) {
+                        values[bucket] = value;
+                    }
+                    return current;
+                }
+            }
+            keys[bucket] = key;
+            values[bucket] = value;
+            if (++ size > resizeThreshold) {
+                rehash(keys.length << 1);
+            }
+            return null;
+        }
+
+        synchronized V remove(long key, V expected, int keyHash) {
+            int mask = keys.length - 1;
+            for (int bucket = keyHash & mask; ; bucket = (bucket + 1) & mask) {
+                V current = values[bucket];
+                if (current == null) {
+                    return null;
+                }
+                if (keys[bucket] == key) {
+                    if (expected != null && expected != current) {
+                        return null;
+                    }
+                    values[bucket] = null;
+                    size --;
+                    shiftBack(bucket);
+                    return current;
+                }
+            }
+        }
+
+        // moves the following entries of the probe sequence into the freed bucket, so lookups never stop early.
+        private void shiftBack(int gap) {
+            int mask = keys.length - 1;
+            for (int bucket = (gap + 1) & mask; ; bucket = (bucket + 1) & mask) {
+                V value = values[bucket];
+                if (value == null) {
+                    return;
+                }
+                int ideal = (int) hash(keys[bucket]) & mask;
+                boolean movable = gap <= bucket ? (ideal <= gap || ideal > bucket) : (ideal <= gap && ideal > bucket);
+                if (movable) {
+                    keys[gap] = keys[bucket];
+                    values[gap] = value;
+                    values[bucket] = null;
+                    gap = bucket;
+                }
+            }
+        }
+
+        private void rehash(int newCapacity) {
+            long[] oldKeys = keys;
+            V[] oldValues = values;
+            allocate(newCapacity);
+            int mask = newCapacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                V value = oldValues[i];
+                if (value != null) {
+                    long key = oldKeys[i];
+                    int bucket = (int) hash(key) & mask;
+                    while (values[bucket] != null) {
+                        bucket = (bucket + 1) & mask;
+                    }
+                    keys[bucket] = key;
+                    values[bucket] = value;
+                }
+            }
+        }
+
+        synchronized void clear() {
+            if (size > 0) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = null;
+                }
+                size = 0;
+            }
+        }
+
+        synchronized void copyValues(List<V> list) {
+            if (size > 0) {
+                for (V value : values) {
+                    if (value != null) {
+                        list.add(value);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+
+public class CompressorTest {
+
+    private static final String[] NAMES = {"lz4", "snappy", "deflate"};
+
+    private static byte[] compressible(int length) {
+        byte[] data = new byte[length];
+        String text = "{\"id\":\"abc\",\"bidFloor\":1.1,\"city\":\"beijing\",\"country\":\"china\"}";
+        for (int i = 0; i < length; i ++) {
+            data[i] = (byte) text.charAt((i + i / 1000) % text.length());
+        }
+        return data;
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] roundTrip(Compressor compressor, byte[] data) throws IOException {
+        byte[] compressed = new byte[3 + compressor.maxCompressedLength(data.length)];
+        int length = compressor.compress(data, 0, data.length, compressed, 3);
+        assertTrue(length <= compressor.maxCompressedLength(data.length));
+        byte[] decompressed = new byte[data.length + 2];
+        compressor.decompress(compressed, 3, length, decompressed, 2, data.length);
+        byte[] result = new byte[data.length];
+        System.arraycopy(decompressed, 2, result, 0, data.length);
+        assertArrayEquals(data, result);
+        return compressed;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String name : NAMES) {
+            Compressor compressor = ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(name);
+            for (int length : new int[] {0, 1, 5, 13, 64, 1000, 65536, 300000}) {
+                roundTrip(compressor, compressible(length));
+                roundTrip(compressor, random(length));
+            }
+            byte[] zeros = new byte[100000];
+            roundTrip(compressor, zeros);
+        }
+    }
+
+    @Test
+    public void testCompressRatio() throws Exception {
+        byte[] data = compressible(100000);
+        for (String name : NAMES) {
+            Compressor compressor = ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(name);
+            byte[] compressed = new byte[compressor.maxCompressedLength(data.length)];
+            int length = compressor.compress(data, 0, data.length, compressed, 0);
+            assertTrue(name + " compressed to " + length, length * 5 < data.length);
+        }
+    }
+
+    @Test
+    public void testUniqueId() throws Exception {
+        for (int i = 0; i < NAMES.length; i ++) {
+            for (int j = i + 1; j < NAMES.length; j ++) {
+                assertTrue(ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(NAMES[i]).getContentTypeId()
+                        != ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(NAMES[j]).getContentTypeId());
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptInput() throws Exception {
+        byte[] data = compressible(10000);
+        for (String name : NAMES) {
+            Compressor compressor = ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(name);
+            byte[] compressed = new byte[compressor.maxCompressedLength(data.length)];
+            int length = compressor.compress(data, 0, data.length, compressed, 0);
+            try {
+                compressor.decompress(compressed, 0, length / 2, new byte[data.length], 0, data.length);
+                fail(name);
+            } catch (IOException expected) {
+            }
+            try {
+                compressor.decompress(compressed, 0, length, new byte[data.length * 2], 0, data.length * 2);
+                fail(name);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+}
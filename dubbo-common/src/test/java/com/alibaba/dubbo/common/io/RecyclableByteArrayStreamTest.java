@@ -0,0 +1,92 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RecyclableByteArrayStreamTest {
+
+    @Test
+    public void testOutputRecycled() throws Exception {
+        RecyclableByteArrayOutputStream os = RecyclableByteArrayOutputStream.acquire(16);
+        os.write(new byte[] {1, 2, 3}, 0, 3);
+        byte[] buffer = os.buffer();
+        os.recycle(1024);
+
+        RecyclableByteArrayOutputStream next = RecyclableByteArrayOutputStream.acquire(8);
+        assertSame(os, next);
+        assertSame(buffer, next.buffer());
+        assertEquals(0, next.size());
+
+        // taken out while in use, so a nested stream is a new one.
+        RecyclableByteArrayOutputStream nested = RecyclableByteArrayOutputStream.acquire(8);
+        assertNotSame(next, nested);
+        nested.recycle(1024);
+        next.recycle(1024);
+        assertSame(next, RecyclableByteArrayOutputStream.acquire(8));
+    }
+
+    @Test
+    public void testOutputOverRetainedDropped() throws Exception {
+        RecyclableByteArrayOutputStream os = RecyclableByteArrayOutputStream.acquire(16);
+        os.write(new byte[64], 0, 64);
+        os.recycle(32);
+        assertNotSame(os, RecyclableByteArrayOutputStream.acquire(16));
+
+        os = RecyclableByteArrayOutputStream.acquire(16);
+        os.recycle(-1);
+        assertNotSame(os, RecyclableByteArrayOutputStream.acquire(16));
+    }
+
+    @Test
+    public void testOutputGrownOnAcquire() throws Exception {
+        RecyclableByteArrayOutputStream.acquire(16).recycle(1024);
+        RecyclableByteArrayOutputStream os = RecyclableByteArrayOutputStream.acquire(100);
+        assertTrue(os.buffer().length >= 100);
+        os.recycle(1024);
+    }
+
+    @Test
+    public void testInputRecycled() throws Exception {
+        RecyclableByteArrayInputStream is = RecyclableByteArrayInputStream.acquire(4);
+        is.buffer()[0] = 7;
+        is.buffer()[3] = 9;
+        assertEquals(4, is.available());
+        assertEquals(7, is.read());
+        is.skip(2);
+        assertEquals(9, is.read());
+        assertEquals(-1, is.read());
+        is.recycle(1024);
+
+        RecyclableByteArrayInputStream next = RecyclableByteArrayInputStream.acquire(2);
+        assertSame(is, next);
+        assertEquals(0, next.position());
+        assertEquals(2, next.available());
+        next.recycle(1024);
+
+        next = RecyclableByteArrayInputStream.acquire(100);
+        assertEquals(100, next.available());
+        assertTrue(next.buffer().length >= 100);
+        next.recycle(50);
+        assertNotSame(next, RecyclableByteArrayInputStream.acquire(2));
+    }
+
+}
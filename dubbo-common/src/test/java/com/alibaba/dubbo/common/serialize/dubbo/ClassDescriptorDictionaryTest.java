@@ -0,0 +1,95 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.dubbo;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.io.UnsafeByteArrayInputStream;
+import com.alibaba.dubbo.common.io.UnsafeByteArrayOutputStream;
+import com.alibaba.dubbo.common.serialize.support.SerializableClassRegistry;
+import com.alibaba.dubbo.common.serialize.support.dubbo.Builder;
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorDictionary;
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorMapper;
+import com.alibaba.dubbo.common.serialize.support.dubbo.GenericObjectInput;
+import com.alibaba.dubbo.common.serialize.support.dubbo.GenericObjectOutput;
+import com.alibaba.dubbo.common.utils.ReflectUtils;
+
+public class ClassDescriptorDictionaryTest
+{
+	@Test
+	public void testRegisteredClass() throws Exception
+	{
+		SerializableClassRegistry.registerClass(SimpleDO.class);
+		ClassDescriptorDictionary dictionary = ClassDescriptorDictionary.getDictionary();
+		assertTrue(!dictionary.isEmpty());
+		assertSame(dictionary, ClassDescriptorDictionary.getDictionary());
+
+		String desc = ReflectUtils.getDesc(SimpleDO.class);
+		int index = dictionary.getDescriptorIndex(desc);
+		assertTrue(index >= 0);
+		assertEquals(-1, Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER.getDescriptorIndex(desc));
+		assertEquals(desc, dictionary.getDescriptor(index));
+
+		// the default descriptors keep their ids.
+		String string = ReflectUtils.getDesc(String.class);
+		assertEquals(Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER.getDescriptorIndex(string), dictionary.getDescriptorIndex(string));
+	}
+
+	@Test
+	public void testWriteWithDictionary() throws Exception
+	{
+		SerializableClassRegistry.registerClass(SimpleDO.class);
+		ClassDescriptorDictionary dictionary = ClassDescriptorDictionary.getDictionary();
+		SimpleDO sd = new SimpleDO();
+		sd.a = 1;
+		sd.str3 = 3;
+
+		byte[] names = write(sd, Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER);
+		byte[] ids = write(sd, dictionary);
+		assertTrue(ids.length < names.length);
+
+		GenericObjectInput in = new GenericObjectInput(new UnsafeByteArrayInputStream(ids));
+		in.setClassDescriptorMapper(dictionary);
+		SimpleDO read = (SimpleDO) in.readObject();
+		assertEquals(1, read.a);
+		assertEquals(3, read.str3);
+
+		try
+		{
+			new GenericObjectInput(new UnsafeByteArrayInputStream(ids)).readObject();
+			fail();
+		}
+		catch(IOException expected)
+		{
+		}
+	}
+
+	private static byte[] write(Object obj, ClassDescriptorMapper mapper) throws IOException
+	{
+		UnsafeByteArrayOutputStream os = new UnsafeByteArrayOutputStream();
+		GenericObjectOutput out = new GenericObjectOutput(os, mapper);
+		out.writeObject(obj);
+		out.flushBuffer();
+		return os.toByteArray();
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.support.hessian.Hessian2FastSerialization;
+import com.alibaba.dubbo.common.serialize.support.hessian.Hessian2Serialization;
+
+public class Hessian2FastSerializationTest extends Hessian2SerializationTest {
+
+    {
+        serialization = new Hessian2FastSerialization();
+    }
+
+    @Test
+    public void test_SameBytesAsHessian2() throws Exception {
+        FieldTypes data = new FieldTypes();
+        data.bigPerson = bigPerson;
+        data.self = data;
+
+        ObjectOutput objectOutput = serialization.serialize(url, byteArrayOutputStream);
+        objectOutput.writeObject(data);
+        objectOutput.writeObject(new FieldTypes());
+        objectOutput.flushBuffer();
+        byte[] fast = byteArrayOutputStream.toByteArray();
+
+        byteArrayOutputStream.reset();
+        objectOutput = new Hessian2Serialization().serialize(url, byteArrayOutputStream);
+        objectOutput.writeObject(data);
+        objectOutput.writeObject(new FieldTypes());
+        objectOutput.flushBuffer();
+        assertArrayEquals(byteArrayOutputStream.toByteArray(), fast);
+
+        ObjectInput deserialize = serialization.deserialize(url, new ByteArrayInputStream(fast));
+        FieldTypes result = (FieldTypes) deserialize.readObject();
+        assertEquals(data.i, result.i);
+        assertEquals(data.s, result.s);
+        assertEquals(data.c, result.c);
+        assertEquals(data.date, result.date);
+        assertEquals(data.v, result.v);
+        assertEquals(data.superField, result.superField);
+        assertEquals(bigPerson, result.bigPerson);
+        assertEquals(result, result.self);
+    }
+
+    static class SuperFieldTypes implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        protected String superField = "super";
+    }
+
+    static class FieldTypes extends SuperFieldTypes {
+        private static final long serialVersionUID = 1L;
+
+        private int i = -1;
+        private byte b = 2;
+        private short sh = 3;
+        private long l = Long.MAX_VALUE;
+        private float f = 1.5F;
+        private double d = -2.5D;
+        private boolean z = true;
+        private char c = 'c';
+        private String s = "string";
+        private Integer boxed = 7;
+        private Date date = new Date(1234567L);
+        private java.sql.Timestamp nullDate;
+        private volatile long v = 8;
+        private transient int ignored = 9;
+        private Object bigPerson;
+        private FieldTypes self;
+    }
+
+}
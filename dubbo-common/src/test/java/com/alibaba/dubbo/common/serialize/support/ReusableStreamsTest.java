@@ -0,0 +1,53 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.serialize.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+
+public class ReusableStreamsTest {
+
+    @Test
+    public void testReuse() {
+        ReusableStreams<Object> streams = new ReusableStreams<Object>();
+        assertNull(streams.acquire());
+        Object stream = new Object();
+        streams.release(stream, 4096, 4096);
+        assertSame(stream, streams.acquire());
+        // taken out while in use.
+        assertNull(streams.acquire());
+    }
+
+    @Test
+    public void testLargeBufferNotRetained() {
+        ReusableStreams<Object> streams = new ReusableStreams<Object>();
+        streams.release(new Object(), 4097, 4096);
+        assertNull(streams.acquire());
+    }
+
+    @Test
+    public void testMaxRetainedBuffer() {
+        assertEquals(Constants.DEFAULT_SERIALIZATION_RETAINED_BUFFER, ReusableStreams.getMaxRetainedBuffer(null));
+        assertEquals(0, ReusableStreams.getMaxRetainedBuffer(
+                URL.valueOf("dubbo://127.0.0.1:20880?" + Constants.SERIALIZATION_RETAINED_BUFFER_KEY + "=0")));
+    }
+}
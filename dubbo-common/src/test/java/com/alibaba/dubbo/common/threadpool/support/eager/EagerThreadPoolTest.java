@@ -0,0 +1,70 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.threadpool.support.eager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+
+public class EagerThreadPoolTest {
+
+    @Test
+    public void testThreadsBeforeQueue() throws Exception {
+        URL url = URL.valueOf("dubbo://127.0.0.1:20880?" + Constants.THREADS_KEY + "=3&" + Constants.QUEUES_KEY + "=2");
+        EagerThreadPoolExecutor executor = (EagerThreadPoolExecutor) new EagerThreadPool().getExecutor(url);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        for (int i = 0; i < 3; i ++) {
+            executor.execute(blocking);
+            assertEquals(i + 1, executor.getPoolSize());
+            assertEquals(0, executor.getQueue().size());
+        }
+        executor.execute(blocking);
+        executor.execute(blocking);
+        assertEquals(3, executor.getPoolSize());
+        assertEquals(2, executor.getQueue().size());
+        try {
+            executor.execute(blocking);
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(5, executor.getSubmittedTaskCount());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getSubmittedTaskCount());
+        assertEquals(5, executor.getCompletedTaskCount());
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.threadpool.support.virtual;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.threadpool.ThreadPool;
+
+public class VirtualThreadPoolTest {
+
+    @Test
+    public void testConcurrencyCap() throws Exception {
+        URL url = URL.valueOf("dubbo://127.0.0.1:20880?" + Constants.THREADPOOL_KEY + "=virtual&" + Constants.THREADS_KEY + "=2");
+        Executor executor = ExtensionLoader.getExtensionLoader(ThreadPool.class).getAdaptiveExtension().getExecutor(url);
+        assertTrue(executor instanceof VirtualThreadPoolExecutor);
+        VirtualThreadPoolExecutor pool = (VirtualThreadPoolExecutor) executor;
+
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        pool.execute(blocking);
+        pool.execute(blocking);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(2, pool.getActiveCount());
+        try {
+            pool.execute(blocking);
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(pool.isTerminated());
+        assertEquals(2, pool.getTaskCount());
+        assertEquals(2, pool.getCompletedTaskCount());
+        assertEquals(2, pool.getLargestPoolSize());
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            timer.newTimeout(new TimerTask() {
+                public void run(Timeout timeout) {
+                    latch.countDown();
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AtomicInteger fired = new AtomicInteger();
+        TimerTask task = new TimerTask() {
+            public void run(Timeout timeout) {
+                fired.incrementAndGet();
+            }
+        };
+        Timeout cancelled = timer.newTimeout(task, 50, TimeUnit.MILLISECONDS);
+        Timeout expired = timer.newTimeout(task, 50, TimeUnit.MILLISECONDS);
+        assertEquals(2, timer.pendingTimeouts());
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+
+        Thread.sleep(300);
+        assertEquals(1, fired.get());
+        assertTrue(expired.isExpired());
+        assertFalse(expired.cancel());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void testDelayLongerThanWheel() throws Exception {
+        HashedWheelTimer small = new HashedWheelTimer(new NamedThreadFactory("SmallWheel", true),
+                10, TimeUnit.MILLISECONDS, 4);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            long start = System.currentTimeMillis();
+            small.newTimeout(new TimerTask() {
+                public void run(Timeout timeout) {
+                    latch.countDown();
+                }
+            }, 200, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start >= 200);
+        } finally {
+            small.stop();
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        TimerTask task = new TimerTask() {
+            public void run(Timeout timeout) {
+            }
+        };
+        timer.newTimeout(task, 10, TimeUnit.SECONDS);
+        timer.newTimeout(task, 10, TimeUnit.SECONDS);
+        assertEquals(2, timer.stop().size());
+        assertTrue(timer.isStop());
+        try {
+            timer.newTimeout(task, 1, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+}
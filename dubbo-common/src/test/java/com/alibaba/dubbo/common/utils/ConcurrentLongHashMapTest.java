@@ -0,0 +1,71 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ConcurrentLongHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<String>(4, 2);
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.putIfAbsent(1, "one"));
+        assertNull(map.putIfAbsent(2, "two"));
+        assertEquals(2, map.size());
+        assertEquals("uno", map.get(1));
+        assertFalse(map.remove(2, "deux"));
+        assertTrue(map.remove(2, map.get(2)));
+        assertEquals("uno", map.remove(1));
+        assertNull(map.remove(1));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(2, 1);
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, key), map.put(key, key));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.values().size());
+        for (long key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(expected.isEmpty() ? 0 : expected.keySet().iterator().next()));
+    }
+
+}
@@ -18,6 +18,7 @@ package com.alibaba.dubbo.config;
 import java.util.Map;
 
 import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.compress.Compressor;
 import com.alibaba.dubbo.config.support.Parameter;
 import com.alibaba.dubbo.rpc.cluster.LoadBalance;
 
@@ -61,6 +62,9 @@ public abstract class AbstractMethodConfig extends AbstractConfig {
     // 服务接口的失败mock实现类名
     protected String              validation;
 
+    // 消息体压缩器
+    protected String              compressor;
+
     // 自定义参数
     protected Map<String, String> parameters;
 
@@ -159,6 +163,15 @@ public abstract class AbstractMethodConfig extends AbstractConfig {
         this.validation = validation;
     }
 
+    public String getCompressor() {
+        return compressor;
+    }
+
+    public void setCompressor(String compressor) {
+        checkExtension(Compressor.class, Constants.COMPRESSOR_KEY, compressor);
+        this.compressor = compressor;
+    }
+
     public Map<String, String> getParameters() {
         return parameters;
     }
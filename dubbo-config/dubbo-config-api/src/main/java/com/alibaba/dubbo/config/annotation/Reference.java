@@ -96,6 +96,8 @@ public @interface Reference {
 
     String cache() default "";
 
+    String compressor() default "";
+
     String[] filter() default {};
 
     String[] listener() default {};
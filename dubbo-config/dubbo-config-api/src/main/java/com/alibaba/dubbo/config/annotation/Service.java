@@ -100,6 +100,8 @@ public @interface Service {
 
     String cache() default "";
 
+    String compressor() default "";
+
     String[] filter() default {};
 
     String[] listener() default {};
@@ -0,0 +1,44 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting;
+
+/**
+ * A message that tells the service and the method it invokes before it is decoded in full,
+ * so that a dispatcher can route it without decoding the arguments.
+ */
+public interface Routable {
+
+    /**
+     * @return the path of the service, null if unknown.
+     */
+    String getRoutePath();
+
+    /**
+     * @return the name of the method, null if unknown.
+     */
+    String getRouteMethod();
+
+    /**
+     * @return the version of the service, null if none.
+     */
+    String getRouteVersion();
+
+    /**
+     * @return the group of the service, null if none or unknown.
+     */
+    String getRouteGroup();
+
+}
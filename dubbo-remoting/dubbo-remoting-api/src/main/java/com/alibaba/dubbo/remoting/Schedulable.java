@@ -0,0 +1,34 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting;
+
+/**
+ * A request that tells how long its sender still waits for the response, and how urgent it is,
+ * so that a dispatcher can order the queued requests and drop the ones nobody waits for.
+ */
+public interface Schedulable {
+
+    /**
+     * @return the milliseconds the sender still waits for the response, 0 if unknown.
+     */
+    int getRemainingTimeout();
+
+    /**
+     * @return the priority, the higher the earlier it runs.
+     */
+    int getPriority();
+
+}
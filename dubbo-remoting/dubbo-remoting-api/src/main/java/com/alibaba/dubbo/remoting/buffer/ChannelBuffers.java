@@ -91,6 +91,18 @@ public final class ChannelBuffers {
         return buffer;
     }
 
+    /**
+     * Returns a buffer borrowed from a {@link PooledChannelBufferFactory}, or a dynamic buffer growing in one, to the
+     * pool. The buffer must not be used afterwards. Does nothing for the other buffers.
+     */
+    public static void release(ChannelBuffer buffer) {
+        if (buffer instanceof PooledChannelBufferFactory.PooledChannelBuffer) {
+            ((PooledChannelBufferFactory.PooledChannelBuffer) buffer).release();
+        } else if (buffer instanceof DynamicChannelBuffer) {
+            ((DynamicChannelBuffer) buffer).release();
+        }
+    }
+
     public static boolean equals(ChannelBuffer bufferA, ChannelBuffer bufferB) {
         final int aLen = bufferA.readableBytes();
         if (aLen != bufferB.readableBytes()) {
@@ -65,7 +65,17 @@ public class DynamicChannelBuffer extends AbstractChannelBuffer {
 
         ChannelBuffer newBuffer = factory().getBuffer(newCapacity);
         newBuffer.writeBytes(buffer, 0, writerIndex());
+        ChannelBuffer oldBuffer = buffer;
         buffer = newBuffer;
+        // give the outgrown buffer back if it is pooled.
+        ChannelBuffers.release(oldBuffer);
+    }
+
+    void release() {
+        ChannelBuffer oldBuffer = buffer;
+        buffer = ChannelBuffers.EMPTY_BUFFER;
+        clear();
+        ChannelBuffers.release(oldBuffer);
     }
 
     @Override
@@ -0,0 +1,285 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.dubbo.remoting.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Lends buffers out of a pool instead of allocating them, to take the short lived encode buffers off the gc.
+ * <p>
+ * The capacity is rounded up to a power of two size class, from {@link #MIN_CAPACITY} to {@link #MAX_CAPACITY},
+ * larger buffers are not pooled. A buffer released by the thread which borrowed it goes to the cache of that thread,
+ * and one released by another thread, such as the io thread writing it out, goes to the arena of the borrower, so
+ * that it is not stranded in the cache of a thread which never borrows. When the arenas are full it goes to the gc.
+ * A thread borrows from its cache first, then from its own arena and then from the others. A buffer is returned by
+ * {@link ChannelBuffers#release(ChannelBuffer)} and must not be touched afterwards, a buffer which is never
+ * released is simply collected.
+ *
+ * @see DynamicChannelBuffer
+ */
+public class PooledChannelBufferFactory implements ChannelBufferFactory {
+
+    public static final int MIN_CAPACITY = 512;
+
+    public static final int MAX_CAPACITY = 256 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CAPACITY);
+
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_CAPACITY) - MIN_SHIFT + 1;
+
+    // the bytes a thread keeps of each size class, the larger classes are only kept by the arenas.
+    private static final int THREAD_CACHE_BYTES = 128 * 1024;
+
+    private static final int MAX_THREAD_CACHE_BUFFERS = 32;
+
+    // the bytes an arena keeps of each size class.
+    private static final int ARENA_CACHE_BYTES = 512 * 1024;
+
+    private static final int ARENAS = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+    private static final PooledChannelBufferFactory HEAP_INSTANCE = new PooledChannelBufferFactory(false);
+
+    private static final PooledChannelBufferFactory DIRECT_INSTANCE = new PooledChannelBufferFactory(true);
+
+    public static ChannelBufferFactory getInstance() {
+        return HEAP_INSTANCE;
+    }
+
+    public static ChannelBufferFactory getDirectInstance() {
+        return DIRECT_INSTANCE;
+    }
+
+    private final boolean direct;
+
+    private final Stack[][] arenas;
+
+    private final ThreadLocal<Stack[]> threadCaches = new ThreadLocal<Stack[]>() {
+        @Override
+        protected Stack[] initialValue() {
+            Stack[] cache = new Stack[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES; i ++) {
+                cache[i] = new Stack(Math.min(MAX_THREAD_CACHE_BUFFERS, THREAD_CACHE_BYTES / capacityOf(i)));
+            }
+            return cache;
+        }
+    };
+
+    public PooledChannelBufferFactory(boolean direct) {
+        this.direct = direct;
+        this.arenas = new Stack[ARENAS][SIZE_CLASSES];
+        for (Stack[] arena : arenas) {
+            for (int i = 0; i < SIZE_CLASSES; i ++) {
+                arena[i] = new Stack(Math.max(2, ARENA_CACHE_BYTES / capacityOf(i)));
+            }
+        }
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public ChannelBuffer getBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        if (capacity == 0) {
+            return ChannelBuffers.EMPTY_BUFFER;
+        }
+        if (capacity > MAX_CAPACITY) {
+            return direct ? ChannelBuffers.directBuffer(capacity) : ChannelBuffers.buffer(capacity);
+        }
+        int sizeClass = sizeClass(capacity);
+        Thread owner = Thread.currentThread();
+        Object memory = threadCaches.get()[sizeClass].pop();
+        int first = arenaIndex(owner);
+        for (int i = 0; memory == null && i < arenas.length; i ++) {
+            Stack shared = arenas[(first + i) % arenas.length][sizeClass];
+            synchronized (shared) {
+                memory = shared.pop();
+            }
+        }
+        if (direct) {
+            ByteBuffer buffer = memory == null ? ByteBuffer.allocateDirect(capacityOf(sizeClass)) : (ByteBuffer) memory;
+            buffer.clear();
+            return new PooledDirectChannelBuffer(this, sizeClass, owner, buffer);
+        }
+        return new PooledHeapChannelBuffer(this, sizeClass, owner, memory == null ? new byte[capacityOf(sizeClass)] : (byte[]) memory);
+    }
+
+    public ChannelBuffer getBuffer(byte[] array, int offset, int length) {
+        if (array == null) {
+            throw new NullPointerException("array");
+        }
+        if (offset < 0) {
+            throw new IndexOutOfBoundsException("offset: " + offset);
+        }
+        if (length == 0) {
+            return ChannelBuffers.EMPTY_BUFFER;
+        }
+        if (offset + length > array.length) {
+            throw new IndexOutOfBoundsException("length: " + length);
+        }
+
+        ChannelBuffer buf = getBuffer(length);
+        buf.writeBytes(array, offset, length);
+        return buf;
+    }
+
+    public ChannelBuffer getBuffer(ByteBuffer nioBuffer) {
+        ChannelBuffer buf = getBuffer(nioBuffer.remaining());
+        int pos = nioBuffer.position();
+        buf.writeBytes(nioBuffer);
+        nioBuffer.position(pos);
+        return buf;
+    }
+
+    private void recycle(int sizeClass, Object memory, Thread owner) {
+        if (owner == Thread.currentThread() && threadCaches.get()[sizeClass].push(memory)) {
+            return;
+        }
+        int first = arenaIndex(owner);
+        for (int i = 0; i < arenas.length; i ++) {
+            Stack shared = arenas[(first + i) % arenas.length][sizeClass];
+            synchronized (shared) {
+                if (shared.push(memory)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int arenaIndex(Thread thread) {
+        return (int) (thread.getId() % arenas.length);
+    }
+
+    static int sizeClass(int capacity) {
+        if (capacity <= MIN_CAPACITY) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+
+    static int capacityOf(int sizeClass) {
+        return MIN_CAPACITY << sizeClass;
+    }
+
+    /**
+     * A buffer lent by a {@link PooledChannelBufferFactory}.
+     */
+    interface PooledChannelBuffer {
+
+        /**
+         * Returns the memory of the buffer to the pool, only the first call does.
+         */
+        void release();
+
+    }
+
+    private static final class PooledHeapChannelBuffer extends HeapChannelBuffer implements PooledChannelBuffer {
+
+        private static final AtomicIntegerFieldUpdater<PooledHeapChannelBuffer> RELEASED_UPDATER
+            = AtomicIntegerFieldUpdater.newUpdater(PooledHeapChannelBuffer.class, "released");
+
+        private final PooledChannelBufferFactory pool;
+
+        private final int sizeClass;
+
+        // the thread which borrowed the buffer.
+        private final Thread owner;
+
+        private volatile int released;
+
+        PooledHeapChannelBuffer(PooledChannelBufferFactory pool, int sizeClass, Thread owner, byte[] array) {
+            super(array, 0, 0);
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.owner = owner;
+        }
+
+        public void release() {
+            if (RELEASED_UPDATER.compareAndSet(this, 0, 1)) {
+                pool.recycle(sizeClass, array, owner);
+            }
+        }
+
+    }
+
+    private static final class PooledDirectChannelBuffer extends ByteBufferBackedChannelBuffer implements PooledChannelBuffer {
+
+        private static final AtomicIntegerFieldUpdater<PooledDirectChannelBuffer> RELEASED_UPDATER
+            = AtomicIntegerFieldUpdater.newUpdater(PooledDirectChannelBuffer.class, "released");
+
+        private final PooledChannelBufferFactory pool;
+
+        private final int sizeClass;
+
+        // the thread which borrowed the buffer.
+        private final Thread owner;
+
+        private final ByteBuffer memory;
+
+        private volatile int released;
+
+        PooledDirectChannelBuffer(PooledChannelBufferFactory pool, int sizeClass, Thread owner, ByteBuffer memory) {
+            super(memory);
+            clear();
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.owner = owner;
+            this.memory = memory;
+        }
+
+        public void release() {
+            if (RELEASED_UPDATER.compareAndSet(this, 0, 1)) {
+                pool.recycle(sizeClass, memory, owner);
+            }
+        }
+
+    }
+
+    // a bounded stack of the pooled memory of one size class.
+    private static final class Stack {
+
+        private final Object[] elements;
+
+        private int            size;
+
+        Stack(int capacity) {
+            elements = new Object[capacity];
+        }
+
+        Object pop() {
+            if (size == 0) {
+                return null;
+            }
+            Object element = elements[-- size];
+            elements[size] = null;
+            return element;
+        }
+
+        boolean push(Object element) {
+            if (size == elements.length) {
+                return false;
+            }
+            elements[size ++] = element;
+            return true;
+        }
+
+    }
+
+}
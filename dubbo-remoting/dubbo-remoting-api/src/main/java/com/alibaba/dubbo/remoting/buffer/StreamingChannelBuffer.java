@@ -0,0 +1,33 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.dubbo.remoting.buffer;
+
+import java.io.IOException;
+
+/**
+ * A buffer given to the codec by a transport which can send a message out before it is completely encoded.
+ * A codec framing a large message flushes it at the frame boundaries, so that the message is never in memory
+ * as a whole.
+ */
+public interface StreamingChannelBuffer extends ChannelBuffer {
+
+    /**
+     * Sends the readable bytes to the transport, the buffer is cleared afterwards.
+     */
+    void flush() throws IOException;
+
+}
@@ -42,6 +42,11 @@ public class Response {
      */
     public static final byte SERVER_TIMEOUT    = 31;
 
+    /**
+     * channel inactive, the request is failed directly without waiting for the timeout.
+     */
+    public static final byte CHANNEL_INACTIVE  = 35;
+
     /**
      * request format error.
      */
@@ -15,6 +15,8 @@
  */
 package com.alibaba.dubbo.remoting.exchange;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.alibaba.dubbo.remoting.RemotingException;
 
 /**
@@ -56,4 +58,24 @@ public interface ResponseFuture {
      */
     boolean isDone();
 
+    /**
+     * get the completable future view, completed with the result or exceptionally with the
+     * RemotingException get() would throw, in the thread which receives the response.
+     * the default bridges through setCallback, so it takes the callback of this future.
+     * 
+     * @return completable future.
+     */
+    default CompletableFuture<Object> getCompletableFuture() {
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+        setCallback(new ResponseCallback() {
+            public void done(Object response) {
+                future.complete(response);
+            }
+            public void caught(Throwable exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
+
 }
\ No newline at end of file
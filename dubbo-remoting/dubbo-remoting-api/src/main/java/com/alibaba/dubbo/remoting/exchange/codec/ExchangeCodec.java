@@ -17,9 +17,16 @@ package com.alibaba.dubbo.remoting.exchange.codec;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.compress.Compressor;
 import com.alibaba.dubbo.common.io.Bytes;
 import com.alibaba.dubbo.common.io.StreamUtils;
+import com.alibaba.dubbo.common.io.RecyclableByteArrayInputStream;
+import com.alibaba.dubbo.common.io.RecyclableByteArrayOutputStream;
 import com.alibaba.dubbo.common.logger.Logger;
 import com.alibaba.dubbo.common.logger.LoggerFactory;
 import com.alibaba.dubbo.common.serialize.Cleanable;
@@ -31,7 +38,7 @@ import com.alibaba.dubbo.remoting.Channel;
 import com.alibaba.dubbo.remoting.RemotingException;
 import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
 import com.alibaba.dubbo.remoting.buffer.ChannelBufferInputStream;
-import com.alibaba.dubbo.remoting.buffer.ChannelBufferOutputStream;
+import com.alibaba.dubbo.remoting.buffer.StreamingChannelBuffer;
 import com.alibaba.dubbo.remoting.exchange.Request;
 import com.alibaba.dubbo.remoting.exchange.Response;
 import com.alibaba.dubbo.remoting.exchange.support.DefaultFuture;
@@ -67,6 +74,30 @@ public class ExchangeCodec extends TelnetCodec {
 
     protected static final int      SERIALIZATION_MASK = 0x1f;
 
+    // set in the length of the header instead of the length of the body, when the body is cut into chunks.
+    protected static final int      FLAG_CHUNKED       = 0x80000000;
+
+    // set on a channel whose peer sent a chunked message, so it takes chunked responses too.
+    private static final String     CHUNKED_PEER_KEY   = ExchangeCodec.class.getName() + ".CHUNKED_PEER";
+
+    // how far the chunks of a message were scanned by the reads before, so that a read scans the new chunks only.
+    private static final String     CHUNKED_SCAN_KEY   = ExchangeCodec.class.getName() + ".CHUNKED_SCAN";
+
+    // the length ending a chunked message which the sender gave up on.
+    private static final int        CHUNK_ABORTED      = -1;
+
+    // set in the length of the header when the body is compressed.
+    protected static final int      FLAG_COMPRESSED    = 0x40000000;
+
+    // the length of a body which is not chunked shares the header with the flags, so it stays below them.
+    protected static final int      MAX_PLAIN_LENGTH   = FLAG_COMPRESSED - 1;
+
+    // a compressed body starts with the id of its compressor and its original length.
+    private static final int        COMPRESSED_HEADER_LENGTH = 5;
+
+    // the compressors of the requests received on a channel, by request id, so that their responses go alike.
+    private static final String     COMPRESSORS_KEY    = ExchangeCodec.class.getName() + ".COMPRESSORS";
+
     public Short getMagicCode() {
         return MAGIC;
     }
@@ -120,6 +151,12 @@ public class ExchangeCodec extends TelnetCodec {
 
         // get data length.
         int len = Bytes.bytes2int(header, 12);
+        if ((len & FLAG_CHUNKED) != 0) {
+            return decodeChunked(channel, buffer, readable, header);
+        }
+        if ((len & FLAG_COMPRESSED) != 0) {
+            return decodeCompressed(channel, buffer, readable, header, len & ~FLAG_COMPRESSED);
+        }
         checkPayload(channel, len);
 
         int tt = len + HEADER_LENGTH;
@@ -146,6 +183,156 @@ public class ExchangeCodec extends TelnetCodec {
         }
     }
 
+    /**
+     * The body of a chunked message is a run of chunks, each one preceded by its length, ended by a zero length.
+     * A message the sender gave up on in the middle ends by {@link #CHUNK_ABORTED} instead. The body is decoded
+     * once all its chunks are in the buffer, so it is bounded by the payload like any other body.
+     */
+    private Object decodeChunked(Channel channel, ChannelBuffer buffer, int readable, byte[] header) throws IOException {
+        int payload = getPayload(channel);
+        int start = buffer.readerIndex();
+        int end = start + readable - HEADER_LENGTH;
+        long id = Bytes.bytes2long(header, 4);
+        ChunkedScan scan = (ChunkedScan) channel.getAttribute(CHUNKED_SCAN_KEY);
+        if (scan != null) {
+            channel.removeAttribute(CHUNKED_SCAN_KEY);
+        }
+        if (scan == null || scan.id != id || scan.offset > end - start) {
+            scan = new ChunkedScan(id);
+        }
+        int index = start + scan.offset;
+        long len = scan.length;
+        int chunk;
+        do {
+            if (end - index < 4) {
+                return scan.pause(channel, index - start, len);
+            }
+            chunk = getInt(buffer, index);
+            if (chunk > 0) {
+                checkPayload(channel, payload, len + chunk);
+                if (end - index - 4 < chunk) {
+                    return scan.pause(channel, index - start, len);
+                }
+                len += chunk;
+                index += 4 + chunk;
+            } else if (chunk == 0 || chunk == CHUNK_ABORTED) {
+                index += 4;
+            } else {
+                throw new IOException("Illegal chunk length " + chunk + " in message " + id
+                        + " from " + channel.getRemoteAddress());
+            }
+        } while (chunk > 0);
+        if (! Boolean.TRUE.equals(channel.getAttribute(CHUNKED_PEER_KEY))) {
+            channel.setAttribute(CHUNKED_PEER_KEY, Boolean.TRUE);
+        }
+        if (chunk == CHUNK_ABORTED) {
+            buffer.readerIndex(index);
+            return decodeAborted(channel, header);
+        }
+        try {
+            return decodeBody(channel, new ChunkedInputStream(buffer, (int) len), header);
+        } finally {
+            buffer.readerIndex(index);
+        }
+    }
+
+    private Object decodeCompressed(Channel channel, ChannelBuffer buffer, int readable, byte[] header, int len) throws IOException {
+        checkPayload(channel, len);
+        if (readable < len + HEADER_LENGTH) {
+            return DecodeResult.NEED_MORE_INPUT;
+        }
+        int end = buffer.readerIndex() + len;
+        try {
+            if (len < COMPRESSED_HEADER_LENGTH) {
+                throw new IOException("Malformed compressed body of " + len + " bytes");
+            }
+            byte id = buffer.readByte();
+            byte[] bytes = new byte[4];
+            buffer.readBytes(bytes);
+            int length = Bytes.bytes2int(bytes);
+            if (length < 0) {
+                throw new IOException("Malformed compressed body of " + length + " bytes");
+            }
+            checkPayload(channel, length);
+            Compressor compressor = CodecSupport.getCompressorById(id);
+            if (compressor == null) {
+                throw new IOException("Unsupported compressor id " + id + " from " + channel.getRemoteAddress());
+            }
+            int compressed = len - COMPRESSED_HEADER_LENGTH;
+            int retained = CodecSupport.getRetainedBuffer(channel.getUrl());
+            RecyclableByteArrayInputStream body = RecyclableByteArrayInputStream.acquire(length);
+            try {
+                if (buffer.hasArray()) {
+                    compressor.decompress(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), compressed,
+                                          body.buffer(), 0, length);
+                } else {
+                    RecyclableByteArrayInputStream src = RecyclableByteArrayInputStream.acquire(compressed);
+                    try {
+                        buffer.getBytes(buffer.readerIndex(), src.buffer(), 0, compressed);
+                        compressor.decompress(src.buffer(), 0, compressed, body.buffer(), 0, length);
+                    } finally {
+                        src.recycle(retained);
+                    }
+                }
+                byte flag = header[2];
+                if ((flag & FLAG_REQUEST) != 0 && (flag & FLAG_TWOWAY) != 0 && (flag & FLAG_EVENT) == 0) {
+                    getCompressors(channel).put(Bytes.bytes2long(header, 4), compressor);
+                }
+                // the body is decoded, or copied to be decoded later, before it is recycled.
+                return decodeBody(channel, body, header);
+            } finally {
+                body.recycle(retained);
+            }
+        } finally {
+            buffer.readerIndex(end);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<Long, Compressor> getCompressors(Channel channel) {
+        ConcurrentMap<Long, Compressor> compressors = (ConcurrentMap<Long, Compressor>) channel.getAttribute(COMPRESSORS_KEY);
+        if (compressors == null) {
+            // only the io thread of the channel decodes, so no other map is set meanwhile.
+            compressors = new ConcurrentHashMap<Long, Compressor>();
+            channel.setAttribute(COMPRESSORS_KEY, compressors);
+        }
+        return compressors;
+    }
+
+    /**
+     * An aborted request is a broken one, so a two way request is answered at once. An aborted response is the
+     * failure of its request, the sender sends nothing else for it.
+     */
+    private Object decodeAborted(Channel channel, byte[] header) {
+        byte flag = header[2];
+        long id = Bytes.bytes2long(header, 4);
+        if (logger.isWarnEnabled()) {
+            logger.warn("Message " + id + " aborted by " + channel.getRemoteAddress());
+        }
+        if ((flag & FLAG_REQUEST) == 0) {
+            Response res = new Response(id);
+            if ((flag & FLAG_EVENT) != 0) {
+                res.setEvent(Response.HEARTBEAT_EVENT);
+            } else {
+                res.setStatus(Response.BAD_RESPONSE);
+                res.setErrorMessage("Response " + id + " aborted by " + channel.getRemoteAddress()
+                        + " after its first chunks were sent");
+            }
+            return res;
+        }
+        Request req = new Request(id);
+        req.setVersion("2.0.0");
+        req.setTwoWay((flag & FLAG_TWOWAY) != 0);
+        req.setBroken(true);
+        req.setData(new IOException("Message " + id + " aborted by the sender"));
+        return req;
+    }
+
+    private static int getInt(ChannelBuffer buffer, int index) {
+        return (buffer.getByte(index) & 0xff) << 24 | (buffer.getByte(index + 1) & 0xff) << 16
+                | (buffer.getByte(index + 2) & 0xff) << 8 | (buffer.getByte(index + 3) & 0xff);
+    }
+
     protected Object decodeBody(Channel channel, InputStream is, byte[] header) throws IOException {
         byte flag = header[2], proto = (byte) (flag & SERIALIZATION_MASK);
         Serialization s = CodecSupport.getSerialization(channel.getUrl(), proto);
@@ -169,7 +356,7 @@ public class ExchangeCodec extends TelnetCodec {
                     } else if (res.isEvent()) {
                         data = decodeEventData(channel, in);
                     } else {
-                        data = decodeResponseData(channel, in, getRequestData(id));
+                        data = decodeResponseData(channel, in, getRequestData(channel, id));
                     }
                     res.setResult(data);
                 } catch (Throwable t) {
@@ -207,8 +394,8 @@ public class ExchangeCodec extends TelnetCodec {
         }
     }
 
-    protected Object getRequestData(long id) {
-        DefaultFuture future = DefaultFuture.getFuture(id);
+    protected Object getRequestData(Channel channel, long id) {
+        DefaultFuture future = DefaultFuture.getFuture(channel, id);
         if (future == null)
             return null;
         Request req = future.getRequest();
@@ -233,38 +420,71 @@ public class ExchangeCodec extends TelnetCodec {
         // set request id.
         Bytes.long2bytes(req.getId(), header, 4);
 
-        // encode request data.
-        int savedWriteIndex = buffer.writerIndex();
-        buffer.writerIndex(savedWriteIndex + HEADER_LENGTH);
-        ChannelBufferOutputStream bos = new ChannelBufferOutputStream(buffer);
-        ObjectOutput out = serialization.serialize(channel.getUrl(), bos);
+        // set the status, which requests leave to the protocol.
+        if (! req.isEvent()) {
+            header[3] = getRequestStatus(channel, req);
+        }
+
+        // encode request data, chunked if the url of the consumer's channel sets payload.chunk.
+        int chunkSize = channel.getUrl().getParameter(Constants.PAYLOAD_CHUNK_KEY, Constants.DEFAULT_PAYLOAD_CHUNK);
+        PayloadOutputStream bos = new PayloadOutputStream(channel, buffer, header, chunkSize);
+        if (! req.isEvent()) {
+            bos.setCompressor(getCompressor(channel, req), getCompressThreshold(channel, req));
+        }
+        ObjectOutput out = null;
+        boolean encoded = false;
         try {
+            out = serialization.serialize(channel.getUrl(), bos);
             if (req.isEvent()) {
                 encodeEventData(channel, out, req.getData());
             } else {
-                encodeRequestData(channel, out, req.getData());
+                encodeRequestData(channel, out, req.getData(), header[3]);
             }
             out.flushBuffer();
+            bos.finish();
+            encoded = true;
         } finally {
             // modified by lishen
             if (out instanceof Cleanable) {
                 ((Cleanable) out).cleanup();
             }
+            if (! encoded) {
+                bos.abort();
+            }
         }
+    }
 
-        bos.flush();
-        bos.close();
-        int len = bos.writtenBytes();
-        checkPayload(channel, len);
-        Bytes.int2bytes(len, header, 12);
+    /**
+     * get the status byte of the request header, unused by the exchange layer.
+     * 
+     * @return the flags the protocol decodes the request body with.
+     */
+    protected byte getRequestStatus(Channel channel, Request req) {
+        return 0;
+    }
 
-        // write
-        buffer.writerIndex(savedWriteIndex);
-        buffer.writeBytes(header); // write header.
-        buffer.writerIndex(savedWriteIndex + HEADER_LENGTH + len);
+    /**
+     * get the compressor of the request body.
+     * 
+     * @return null to send the body uncompressed.
+     */
+    protected Compressor getCompressor(Channel channel, Request req) {
+        return CodecSupport.getCompressor(channel.getUrl(), null);
     }
 
+    /**
+     * get the size from which the request body is compressed, from the url its compressor is configured in.
+     * 
+     * @return the compress threshold.
+     */
+    protected int getCompressThreshold(Channel channel, Request req) {
+        return CodecSupport.getCompressThreshold(channel.getUrl(), null);
+    }
+
+    @SuppressWarnings("unchecked")
     protected void encodeResponse(Channel channel, ChannelBuffer buffer, Response res) throws IOException {
+        // once chunks are flushed, the terminator of the response tells the peer that it failed.
+        boolean abortSent = false;
         try {
             Serialization serialization = getSerialization(channel);
             // header.
@@ -280,11 +500,22 @@ public class ExchangeCodec extends TelnetCodec {
             // set request id.
             Bytes.long2bytes(res.getId(), header, 4);
 
-            int savedWriteIndex = buffer.writerIndex();
-            buffer.writerIndex(savedWriteIndex + HEADER_LENGTH);
-            ChannelBufferOutputStream bos = new ChannelBufferOutputStream(buffer);
-            ObjectOutput out = serialization.serialize(channel.getUrl(), bos);
+            // chunked only to a peer which sent chunked messages, the others may not understand them.
+            int chunkSize = Boolean.TRUE.equals(channel.getAttribute(CHUNKED_PEER_KEY))
+                    ? channel.getUrl().getParameter(Constants.PAYLOAD_CHUNK_KEY, Constants.DEFAULT_PAYLOAD_CHUNK) : 0;
+            PayloadOutputStream bos = new PayloadOutputStream(channel, buffer, header, chunkSize);
+            if (! res.isEvent()) {
+                // compressed as its request was.
+                Object compressors = channel.getAttribute(COMPRESSORS_KEY);
+                if (compressors != null) {
+                    bos.setCompressor(((ConcurrentMap<?, Compressor>) compressors).remove(res.getId()),
+                            CodecSupport.getCompressThreshold(channel.getUrl(), null));
+                }
+            }
+            ObjectOutput out = null;
+            boolean encoded = false;
             try {
+                out = serialization.serialize(channel.getUrl(), bos);
                 // encode response data or error message.
                 if (status == Response.OK) {
                     if (res.isHeartbeat()) {
@@ -295,24 +526,23 @@ public class ExchangeCodec extends TelnetCodec {
                 }
                 else out.writeUTF(res.getErrorMessage());
                 out.flushBuffer();
+                bos.finish();
+                encoded = true;
             } finally {
                 // modified by lishen
                 if (out instanceof Cleanable) {
                     ((Cleanable) out).cleanup();
                 }
+                if (! encoded) {
+                    abortSent = bos.abort();
+                }
             }
-
-            bos.flush();
-            bos.close();
-
-            int len = bos.writtenBytes();
-            checkPayload(channel, len);
-            Bytes.int2bytes(len, header, 12);
-            // write
-            buffer.writerIndex(savedWriteIndex);
-            buffer.writeBytes(header); // write header.
-            buffer.writerIndex(savedWriteIndex + HEADER_LENGTH + len);
         } catch (Throwable t) {
+            if (abortSent) {
+                // a message sent from here would be written before the terminator still in the buffer.
+                logger.warn("Fail to encode response: " + res + ", aborted it after its first chunks, cause: " + t.getMessage(), t);
+                return;
+            }
             // 发送失败信息给Consumer，否则Consumer只能等超时了
             if (! res.isEvent() && res.getStatus() != Response.BAD_RESPONSE) {
                 try {
@@ -446,8 +676,297 @@ public class ExchangeCodec extends TelnetCodec {
         encodeRequestData(out, data);
     }
 
+    protected void encodeRequestData(Channel channel, ObjectOutput out, Object data, byte status) throws IOException {
+        encodeRequestData(channel, out, data);
+    }
+
     protected void encodeResponseData(Channel channel, ObjectOutput out, Object data) throws IOException {
         encodeResponseData(out, data);
     }
 
+
+    /**
+     * Writes the body of a message behind its header, checking the payload as it goes so that an oversized
+     * message is given up before it is completely serialized.
+     * <p>
+     * With a chunk size the body is cut into chunks of that size, each one preceded by its length and the last one
+     * followed by a zero length, and the length of the header is {@link #FLAG_CHUNKED}. A
+     * {@link StreamingChannelBuffer} is flushed at every chunk, so that a large message is sent as it is serialized.
+     * <p>
+     * Without chunks, a body of at least the threshold of its compressor is compressed once it is complete, if
+     * that makes it smaller. Its length in the header is then flagged with {@link #FLAG_COMPRESSED}. Such a body
+     * is limited to {@link #MAX_PLAIN_LENGTH} whatever the payload, a larger one has to be chunked.
+     */
+    private static final class PayloadOutputStream extends OutputStream {
+
+        private static final byte[] EMPTY_LENGTH = new byte[4];
+
+        private final Channel       channel;
+
+        private final ChannelBuffer buffer;
+
+        private final byte[]        header;
+
+        private final int           headerIndex;
+
+        private final int           payload;
+
+        private final int           chunkSize;
+
+        private final byte[]        length = new byte[4];
+
+        private long                written;
+
+        // where the length of the current chunk goes.
+        private int                 chunkIndex;
+
+        private boolean             flushed;
+
+        private Compressor          compressor;
+
+        private int                 compressThreshold;
+
+        PayloadOutputStream(Channel channel, ChannelBuffer buffer, byte[] header, int chunkSize) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.header = header;
+            this.headerIndex = buffer.writerIndex();
+            int payload = getPayload(channel);
+            if (chunkSize <= 0 && (payload <= 0 || payload > MAX_PLAIN_LENGTH)) {
+                payload = MAX_PLAIN_LENGTH;
+            }
+            this.payload = payload;
+            this.chunkSize = chunkSize;
+            if (chunkSize > 0) {
+                Bytes.int2bytes(FLAG_CHUNKED, header, 12);
+                buffer.writeBytes(header);
+                startChunk();
+            } else {
+                buffer.writerIndex(headerIndex + HEADER_LENGTH);
+            }
+        }
+
+        void setCompressor(Compressor compressor, int compressThreshold) {
+            this.compressor = compressor;
+            this.compressThreshold = compressThreshold;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            count(1);
+            if (chunkSize > 0 && buffer.writerIndex() - chunkIndex - 4 == chunkSize) {
+                nextChunk();
+            }
+            buffer.writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count(len);
+            if (chunkSize <= 0) {
+                buffer.writeBytes(b, off, len);
+                return;
+            }
+            while (len > 0) {
+                int room = chunkSize - (buffer.writerIndex() - chunkIndex - 4);
+                if (room == 0) {
+                    nextChunk();
+                    continue;
+                }
+                int n = Math.min(room, len);
+                buffer.writeBytes(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void count(int len) throws IOException {
+            written += len;
+            checkPayload(channel, payload, written);
+        }
+
+        private void startChunk() {
+            chunkIndex = buffer.writerIndex();
+            buffer.writeBytes(EMPTY_LENGTH);
+        }
+
+        private int endChunk() {
+            int len = buffer.writerIndex() - chunkIndex - 4;
+            Bytes.int2bytes(len, length);
+            buffer.setBytes(chunkIndex, length);
+            return len;
+        }
+
+        private void nextChunk() throws IOException {
+            endChunk();
+            if (buffer instanceof StreamingChannelBuffer) {
+                ((StreamingChannelBuffer) buffer).flush();
+                flushed = true;
+            }
+            startChunk();
+        }
+
+        /**
+         * Completes the message.
+         */
+        void finish() throws IOException {
+            if (chunkSize > 0) {
+                // an empty last chunk is the end already.
+                if (endChunk() > 0) {
+                    buffer.writeBytes(EMPTY_LENGTH);
+                }
+                return;
+            }
+            int len = (int) written;
+            int flag = 0;
+            if (compressor != null && len >= compressThreshold) {
+                int compressed = compress(len);
+                if (compressed < len) {
+                    len = compressed;
+                    flag = FLAG_COMPRESSED;
+                }
+            }
+            Bytes.int2bytes(len | flag, header, 12);
+            buffer.writerIndex(headerIndex);
+            buffer.writeBytes(header); // write header.
+            buffer.writerIndex(headerIndex + HEADER_LENGTH + len);
+        }
+
+        // replaces the body by its compressed bytes, unless they are no fewer.
+        private int compress(int length) throws IOException {
+            int bodyIndex = headerIndex + HEADER_LENGTH;
+            int retained = CodecSupport.getRetainedBuffer(channel.getUrl());
+            RecyclableByteArrayInputStream src = null;
+            RecyclableByteArrayOutputStream dest = RecyclableByteArrayOutputStream.acquire(
+                    COMPRESSED_HEADER_LENGTH + compressor.maxCompressedLength(length));
+            try {
+                int len;
+                if (buffer.hasArray()) {
+                    len = compressor.compress(buffer.array(), buffer.arrayOffset() + bodyIndex, length,
+                                              dest.buffer(), COMPRESSED_HEADER_LENGTH);
+                } else {
+                    src = RecyclableByteArrayInputStream.acquire(length);
+                    buffer.getBytes(bodyIndex, src.buffer(), 0, length);
+                    len = compressor.compress(src.buffer(), 0, length, dest.buffer(), COMPRESSED_HEADER_LENGTH);
+                }
+                len += COMPRESSED_HEADER_LENGTH;
+                if (len >= length) {
+                    return length;
+                }
+                dest.buffer()[0] = compressor.getContentTypeId();
+                Bytes.int2bytes(length, dest.buffer(), 1);
+                buffer.setBytes(bodyIndex, dest.buffer(), 0, len);
+                return len;
+            } finally {
+                dest.recycle(retained);
+                if (src != null) {
+                    src.recycle(retained);
+                }
+            }
+        }
+
+        /**
+         * Gives the message up, it is dropped from the buffer, or ended as aborted when a part of it is sent.
+         * 
+         * @return whether the message is ended as aborted.
+         */
+        boolean abort() {
+            if (! flushed) {
+                buffer.writerIndex(headerIndex);
+                return false;
+            }
+            buffer.writerIndex(chunkIndex);
+            Bytes.int2bytes(CHUNK_ABORTED, length);
+            buffer.writeBytes(length);
+            return true;
+        }
+
+    }
+
+    /**
+     * The chunks of a message scanned so far, kept on the channel while the rest of the message is awaited.
+     */
+    private static final class ChunkedScan {
+
+        private final long id;
+
+        // from the end of the header to the length of the first chunk not scanned.
+        private int        offset;
+
+        // of the chunks scanned.
+        private long       length;
+
+        ChunkedScan(long id) {
+            this.id = id;
+        }
+
+        Object pause(Channel channel, int offset, long length) {
+            this.offset = offset;
+            this.length = length;
+            channel.setAttribute(CHUNKED_SCAN_KEY, this);
+            return DecodeResult.NEED_MORE_INPUT;
+        }
+
+    }
+
+    /**
+     * Reads the body of a chunked message, which is all in the buffer, from its first chunk on.
+     */
+    private static final class ChunkedInputStream extends InputStream {
+
+        private final ChannelBuffer buffer;
+
+        // left in the current chunk, -1 at the end of the body.
+        private int                 remaining;
+
+        // left in the body.
+        private int                 available;
+
+        ChunkedInputStream(ChannelBuffer buffer, int length) {
+            this.buffer = buffer;
+            this.available = length;
+        }
+
+        private boolean hasRemaining() {
+            if (remaining == 0) {
+                int len = getInt(buffer, buffer.readerIndex());
+                buffer.skipBytes(4);
+                remaining = len > 0 ? len : -1;
+            }
+            return remaining > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (! hasRemaining()) {
+                return -1;
+            }
+            remaining --;
+            available --;
+            return buffer.readByte() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            // reads on across the chunks, the callers may take a short read for the end of the body.
+            int read = 0;
+            while (read < len && hasRemaining()) {
+                int n = Math.min(len - read, remaining);
+                buffer.readBytes(b, off + read, n);
+                remaining -= n;
+                available -= n;
+                read += n;
+            }
+            return read > 0 ? read : -1;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return available;
+        }
+
+    }
 }
\ No newline at end of file
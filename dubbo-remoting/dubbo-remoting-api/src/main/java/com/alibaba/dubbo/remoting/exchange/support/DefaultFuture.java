@@ -18,15 +18,23 @@ package com.alibaba.dubbo.remoting.exchange.support;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.logger.Logger;
 import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.timer.HashedWheelTimer;
+import com.alibaba.dubbo.common.timer.Timeout;
+import com.alibaba.dubbo.common.timer.Timer;
+import com.alibaba.dubbo.common.timer.TimerTask;
+import com.alibaba.dubbo.common.utils.ConcurrentLongHashMap;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
 import com.alibaba.dubbo.remoting.Channel;
 import com.alibaba.dubbo.remoting.RemotingException;
 import com.alibaba.dubbo.remoting.TimeoutException;
@@ -45,23 +53,68 @@ public class DefaultFuture implements ResponseFuture {
 
     private static final Logger                   logger = LoggerFactory.getLogger(DefaultFuture.class);
 
-    private static final Map<Long, Channel>       CHANNELS   = new ConcurrentHashMap<Long, Channel>();
+    // the pending futures of a connection, kept as an attribute of the transport channel,
+    // which a client shares with its current connection.
+    private static final String                   FUTURES_KEY = DefaultFuture.class.getName() + ".FUTURES";
 
-    private static final Map<Long, DefaultFuture> FUTURES   = new ConcurrentHashMap<Long, DefaultFuture>();
+    private static final Object                   FUTURES_LOCK = new Object();
+
+    // <tick/wheel, timer>, futures are expired by a hashed wheel instead of scanning all pending futures.
+    private static final ConcurrentMap<String, Timer> TIMERS = new ConcurrentHashMap<String, Timer>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Run shutdown hook of response timeout timers now.");
+                }
+                for (Map.Entry<String, Timer> entry : TIMERS.entrySet()) {
+                    TIMERS.remove(entry.getKey(), entry.getValue());
+                    try {
+                        entry.getValue().stop();
+                    } catch (Throwable t) {
+                        logger.warn(t.getMessage());
+                    }
+                }
+            }
+        }, "DubboShutdownHook-ResponseTimeoutTimer"));
+    }
+
+    private static final AtomicReferenceFieldUpdater<DefaultFuture, Response> RESPONSE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultFuture.class, Response.class, "response");
+
+    private static final AtomicReferenceFieldUpdater<DefaultFuture, ResponseCallback> CALLBACK_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultFuture.class, ResponseCallback.class, "callback");
+
+    private static final AtomicReferenceFieldUpdater<DefaultFuture, WaitNode> WAITERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultFuture.class, WaitNode.class, "waiters");
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final AtomicReferenceFieldUpdater<DefaultFuture, CompletableFuture<Object>> COMPLETABLE_FUTURE_UPDATER =
+            (AtomicReferenceFieldUpdater) AtomicReferenceFieldUpdater.newUpdater(DefaultFuture.class, CompletableFuture.class, "completableFuture");
+
+    // the callback has been handed to the response, no more callback can be queued.
+    private static final ResponseCallback CALLBACK_CONSUMED = new ResponseCallback() {
+        public void done(Object response) {
+        }
+        public void caught(Throwable exception) {
+        }
+    };
+
+    // the waiters have been released by the response, no more waiter can be queued.
+    private static final WaitNode WAITERS_RELEASED = new WaitNode(null);
 
     // invoke id.
     private final long                            id;
 
     private final Channel                         channel;
+
+    private final ConcurrentLongHashMap<DefaultFuture> futures;
     
     private final Request                         request;
 
     private final int                             timeout;
 
-    private final Lock                            lock = new ReentrantLock();
-
-    private final Condition                       done = lock.newCondition();
-
     private final long                            start = System.currentTimeMillis();
 
     private volatile long                         sent;
@@ -70,14 +123,60 @@ public class DefaultFuture implements ResponseFuture {
 
     private volatile ResponseCallback             callback;
 
+    // stack of the threads blocked in get().
+    private volatile WaitNode                     waiters;
+
+    private volatile CompletableFuture<Object>    completableFuture;
+
+    private volatile Timeout                      timeoutCheck;
+
     public DefaultFuture(Channel channel, Request request, int timeout){
         this.channel = channel;
         this.request = request;
         this.id = request.getId();
         this.timeout = timeout > 0 ? timeout : channel.getUrl().getPositiveParameter(Constants.TIMEOUT_KEY, Constants.DEFAULT_TIMEOUT);
-        // put into waiting map.
-        FUTURES.put(id, this);
-        CHANNELS.put(id, channel);
+        // put into the waiting table of the connection.
+        this.futures = getFutures(channel, true);
+        futures.put(id, this);
+        // schedule the timeout check.
+        timeoutCheck = getTimer(channel.getUrl()).newTimeout(new TimeoutCheckTask(this), this.timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentLongHashMap<DefaultFuture> getFutures(Channel channel, boolean create) {
+        ConcurrentLongHashMap<DefaultFuture> futures = (ConcurrentLongHashMap<DefaultFuture>) channel.getAttribute(FUTURES_KEY);
+        if (futures == null && create) {
+            // only once per connection, the attribute of a client and its connection can not be locked in common otherwise.
+            synchronized (FUTURES_LOCK) {
+                futures = (ConcurrentLongHashMap<DefaultFuture>) channel.getAttribute(FUTURES_KEY);
+                if (futures == null) {
+                    futures = new ConcurrentLongHashMap<DefaultFuture>(16, 4);
+                    channel.setAttribute(FUTURES_KEY, futures);
+                }
+            }
+        }
+        return futures;
+    }
+
+    private static Timer getTimer(URL url) {
+        int tick = url == null ? Constants.DEFAULT_TIMEOUT_TICK
+                : url.getPositiveParameter(Constants.TIMEOUT_TICK_KEY, Constants.DEFAULT_TIMEOUT_TICK);
+        int wheel = url == null ? Constants.DEFAULT_TIMEOUT_WHEEL
+                : url.getPositiveParameter(Constants.TIMEOUT_WHEEL_KEY, Constants.DEFAULT_TIMEOUT_WHEEL);
+        String key = tick + "/" + wheel;
+        Timer timer = TIMERS.get(key);
+        if (timer == null) {
+            Timer created = new HashedWheelTimer(
+                    new NamedThreadFactory("DubboResponseTimeoutTimer", true), tick, TimeUnit.MILLISECONDS, wheel);
+            timer = TIMERS.putIfAbsent(key, created);
+            if (timer == null) {
+                timer = created;
+            } else {
+                // its worker thread is started lazily, so a timer losing the race has nothing running yet.
+                created.stop();
+            }
+        }
+        return timer;
     }
     
     public Object get() throws RemotingException {
@@ -89,19 +188,31 @@ public class DefaultFuture implements ResponseFuture {
             timeout = Constants.DEFAULT_TIMEOUT;
         }
         if (! isDone()) {
-            long start = System.currentTimeMillis();
-            lock.lock();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            WaitNode node = null;
+            boolean queued = false;
             try {
+                // the response usually arrives while the node is created, so park only as the last resort.
                 while (! isDone()) {
-                    done.await(timeout, TimeUnit.MILLISECONDS);
-                    if (isDone() || System.currentTimeMillis() - start > timeout) {
-                        break;
+                    if (node == null) {
+                        node = new WaitNode(Thread.currentThread());
+                    } else if (! queued) {
+                        queued = pushWaiter(node);
+                    } else {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        LockSupport.parkNanos(this, remaining);
+                        if (Thread.interrupted()) {
+                            throw new RuntimeException(new InterruptedException());
+                        }
                     }
                 }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
             } finally {
-                lock.unlock();
+                if (node != null) {
+                    node.thread = null;
+                }
             }
             if (! isDone()) {
                 throw new TimeoutException(sent > 0, channel, getTimeoutMessage(false));
@@ -111,11 +222,19 @@ public class DefaultFuture implements ResponseFuture {
     }
     
     public void cancel(){
-        Response errorResult = new Response(id);
+        Response errorResult = new Response(id);
+        errorResult.setStatus(Response.CLIENT_ERROR);
         errorResult.setErrorMessage("request future has been canceled.");
-        response = errorResult ;
-        FUTURES.remove(id);
-        CHANNELS.remove(id);
+        futures.remove(id, this);
+        cancelTimeoutCheck();
+        doReceived(errorResult);
+    }
+
+    private void cancelTimeoutCheck() {
+        Timeout t = timeoutCheck;
+        if (t != null) {
+            t.cancel();
+        }
     }
 
     public boolean isDone() {
@@ -124,23 +243,58 @@ public class DefaultFuture implements ResponseFuture {
 
     public void setCallback(ResponseCallback callback) {
         if (isDone()) {
-            invokeCallback(callback);
+            invokeCallback(callback);
+            return;
+        }
+        for (;;) {
+            ResponseCallback current = this.callback;
+            if (current == CALLBACK_CONSUMED) {
+                // the response has arrived in the meantime.
+                invokeCallback(callback);
+                return;
+            }
+            if (CALLBACK_UPDATER.compareAndSet(this, current, callback)) {
+                break;
+            }
+        }
+        // whoever swaps the callback out invokes it, so it runs exactly once.
+        if (isDone() && CALLBACK_UPDATER.compareAndSet(this, callback, CALLBACK_CONSUMED)) {
+            invokeCallback(callback);
+        }
+    }
+
+    public CompletableFuture<Object> getCompletableFuture() {
+        CompletableFuture<Object> future = completableFuture;
+        if (future == null) {
+            COMPLETABLE_FUTURE_UPDATER.compareAndSet(this, null, new CompletableFuture<Object>());
+            future = completableFuture;
+        }
+        if (isDone()) {
+            completeFuture(future);
+        }
+        return future;
+    }
+
+    private void completeFuture(CompletableFuture<Object> future) {
+        Response res = response;
+        if (res.getStatus() == Response.OK) {
+            future.complete(res.getResult());
         } else {
-            boolean isdone = false;
-            lock.lock();
-            try{
-                if (!isDone()) {
-                    this.callback = callback;
-                } else {
-                    isdone = true;
-                }
-            }finally {
-                lock.unlock();
+            future.completeExceptionally(toException(res));
+        }
+    }
+
+    private boolean pushWaiter(WaitNode node) {
+        for (;;) {
+            WaitNode head = waiters;
+            if (head == WAITERS_RELEASED) {
+                return false;
             }
-            if (isdone){
-                invokeCallback(callback);
+            node.next = head;
+            if (WAITERS_UPDATER.compareAndSet(this, head, node)) {
+                return true;
             }
-        }
+        }
     }
     private void invokeCallback(ResponseCallback c){
         ResponseCallback callbackCopy = c;
@@ -184,20 +338,20 @@ public class DefaultFuture implements ResponseFuture {
         if (res.getStatus() == Response.OK) {
             return res.getResult();
         }
+        throw toException(res);
+    }
+
+    private RemotingException toException(Response res) {
         if (res.getStatus() == Response.CLIENT_TIMEOUT || res.getStatus() == Response.SERVER_TIMEOUT) {
-            throw new TimeoutException(res.getStatus() == Response.SERVER_TIMEOUT, channel, res.getErrorMessage());
+            return new TimeoutException(res.getStatus() == Response.SERVER_TIMEOUT, channel, res.getErrorMessage());
         }
-        throw new RemotingException(channel, res.getErrorMessage());
+        return new RemotingException(channel, res.getErrorMessage());
     }
 
     private long getId() {
         return id;
     }
     
-    private Channel getChannel() {
-        return channel;
-    }
-    
     private boolean isSent() {
         return sent > 0;
     }
@@ -206,69 +360,89 @@ public class DefaultFuture implements ResponseFuture {
         return request;
     }
 
-    private int getTimeout() {
-        return timeout;
-    }
-
-    private long getStartTimestamp() {
-        return start;
-    }
+    public static DefaultFuture getFuture(Channel channel, long id) {
+        ConcurrentLongHashMap<DefaultFuture> futures = getFutures(channel, false);
+        return futures == null ? null : futures.get(id);
+    }
 
-    public static DefaultFuture getFuture(long id) {
-        return FUTURES.get(id);
+    public static boolean hasFuture(Channel channel) {
+        ConcurrentLongHashMap<DefaultFuture> futures = getFutures(channel, false);
+        return futures != null && ! futures.isEmpty();
+    }
+
+    public static void sent(Channel channel, Request request) {
+        DefaultFuture future = getFuture(channel, request.getId());
+        if (future != null) {
+            future.doSent();
+        }
+    }
+
+    /**
+     * fail all the pending futures of the channel at once, instead of waiting for their timeouts.
+     */
+    public static void closeChannel(Channel channel) {
+        ConcurrentLongHashMap<DefaultFuture> futures = getFutures(channel, false);
+        if (futures == null || futures.isEmpty()) {
+            return;
+        }
+        for (DefaultFuture future : futures.values()) {
+            if (futures.remove(future.getId(), future)) {
+                Response disconnectResponse = new Response(future.getId());
+                disconnectResponse.setStatus(Response.CHANNEL_INACTIVE);
+                disconnectResponse.setErrorMessage("Channel " + channel.getLocalAddress() + " -> " + channel.getRemoteAddress()
+                        + " is inactive. Directly return the unfinished request : " + future.getRequest());
+                future.cancelTimeoutCheck();
+                future.doReceived(disconnectResponse);
+            }
+        }
     }
-
-    public static boolean hasFuture(Channel channel) {
-        return CHANNELS.containsValue(channel);
-    }
-
-    public static void sent(Channel channel, Request request) {
-        DefaultFuture future = FUTURES.get(request.getId());
-        if (future != null) {
-            future.doSent();
-        }
-    }
 
     private void doSent() {
         sent = System.currentTimeMillis();
     }
 
     public static void received(Channel channel, Response response) {
-        try {
-            DefaultFuture future = FUTURES.remove(response.getId());
-            if (future != null) {
-                future.doReceived(response);
-            } else {
-                logger.warn("The timeout response finally returned at " 
-                            + (new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date())) 
-                            + ", response " + response 
-                            + (channel == null ? "" : ", channel: " + channel.getLocalAddress() 
-                                + " -> " + channel.getRemoteAddress()));
-            }
-        } finally {
-            CHANNELS.remove(response.getId());
+        ConcurrentLongHashMap<DefaultFuture> futures = getFutures(channel, false);
+        DefaultFuture future = futures == null ? null : futures.remove(response.getId());
+        if (future != null) {
+            future.cancelTimeoutCheck();
+            future.doReceived(response);
+        } else {
+            logger.warn("The timeout response finally returned at " 
+                        + (new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date())) 
+                        + ", response " + response 
+                        + (channel == null ? "" : ", channel: " + channel.getLocalAddress() 
+                            + " -> " + channel.getRemoteAddress()));
         }
     }
 
-    private void doReceived(Response res) {
-        lock.lock();
-        try {
-            response = res;
-            if (done != null) {
-                done.signal();
-            }
-        } finally {
-            lock.unlock();
-        }
-        if (callback != null) {
-            invokeCallback(callback);
-        }
+    private void doReceived(Response res) {
+        if (! RESPONSE_UPDATER.compareAndSet(this, null, res)) {
+            return;
+        }
+        WaitNode node = WAITERS_UPDATER.getAndSet(this, WAITERS_RELEASED);
+        while (node != null) {
+            Thread thread = node.thread;
+            if (thread != null) {
+                node.thread = null;
+                LockSupport.unpark(thread);
+            }
+            node = node.next;
+        }
+        ResponseCallback c = CALLBACK_UPDATER.getAndSet(this, CALLBACK_CONSUMED);
+        if (c != null && c != CALLBACK_CONSUMED) {
+            invokeCallback(c);
+        }
+        CompletableFuture<Object> future = completableFuture;
+        if (future != null) {
+            completeFuture(future);
+        }
     }
 
-    private String getTimeoutMessage(boolean scan) {
+    private String getTimeoutMessage(boolean timer) {
         long nowTimestamp = System.currentTimeMillis();
         return (sent > 0 ? "Waiting server-side response timeout" : "Sending request timeout in client-side")
-                    + (scan ? " by scan timer" : "") + ". start time: " 
+                    + (timer ? " by timeout timer" : "") + ". start time: " 
                     + (new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(start))) + ", end time: " 
                     + (new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date())) + ","
                     + (sent > 0 ? " client elapsed: " + (sent - start) 
@@ -278,37 +452,39 @@ public class DefaultFuture implements ResponseFuture {
                     + " -> " + channel.getRemoteAddress();
     }
 
-    private static class RemotingInvocationTimeoutScan implements Runnable {
+    private static final class WaitNode {
 
-        public void run() {
-            while (true) {
-                try {
-                    for (DefaultFuture future : FUTURES.values()) {
-                        if (future == null || future.isDone()) {
-                            continue;
-                        }
-                        if (System.currentTimeMillis() - future.getStartTimestamp() > future.getTimeout()) {
-                            // create exception response.
-                            Response timeoutResponse = new Response(future.getId());
-                            // set timeout status.
-                            timeoutResponse.setStatus(future.isSent() ? Response.SERVER_TIMEOUT : Response.CLIENT_TIMEOUT);
-                            timeoutResponse.setErrorMessage(future.getTimeoutMessage(true));
-                            // handle response.
-                            DefaultFuture.received(future.getChannel(), timeoutResponse);
-                        }
-                    }
-                    Thread.sleep(30);
-                } catch (Throwable e) {
-                    logger.error("Exception when scan the timeout invocation of remoting.", e);
-                }
-            }
+        volatile Thread thread;
+
+        WaitNode next;
+
+        WaitNode(Thread thread) {
+            this.thread = thread;
         }
     }
 
-    static {
-        Thread th = new Thread(new RemotingInvocationTimeoutScan(), "DubboResponseTimeoutScanTimer");
-        th.setDaemon(true);
-        th.start();
+    private static class TimeoutCheckTask implements TimerTask {
+
+        private final DefaultFuture future;
+
+        TimeoutCheckTask(DefaultFuture future) {
+            this.future = future;
+        }
+
+        public void run(Timeout timeout) {
+            if (future.isDone()) {
+                return;
+            }
+            // create exception response.
+            Response timeoutResponse = new Response(future.getId());
+            // set timeout status.
+            timeoutResponse.setStatus(future.isSent() ? Response.SERVER_TIMEOUT : Response.CLIENT_TIMEOUT);
+            timeoutResponse.setErrorMessage(future.getTimeoutMessage(true));
+            // handle response, the table registered with is used as the connection may have been replaced.
+            if (future.futures.remove(future.getId(), future)) {
+                future.doReceived(timeoutResponse);
+            }
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -15,6 +15,8 @@
  */
 package com.alibaba.dubbo.remoting.exchange.support;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.alibaba.dubbo.remoting.RemotingException;
 import com.alibaba.dubbo.remoting.exchange.ResponseCallback;
 import com.alibaba.dubbo.remoting.exchange.ResponseFuture;
@@ -48,4 +50,8 @@ public class SimpleFuture implements ResponseFuture {
         return true;
     }
 
+    public CompletableFuture<Object> getCompletableFuture() {
+        return CompletableFuture.completedFuture(value);
+    }
+
 }
\ No newline at end of file
@@ -123,6 +123,8 @@ final class HeaderExchangeChannel implements ExchangeChannel {
 
     public void close() {
         try {
+            // the responses of the pending requests will never arrive once the channel is closed.
+            DefaultFuture.closeChannel(channel);
             channel.close();
         } catch (Throwable e) {
             logger.warn(e.getMessage(), e);
@@ -137,7 +139,7 @@ final class HeaderExchangeChannel implements ExchangeChannel {
         closed = true;
         if (timeout > 0) {
             long start = System.currentTimeMillis();
-            while (DefaultFuture.hasFuture(HeaderExchangeChannel.this) 
+            while (DefaultFuture.hasFuture(channel) 
                     && System.currentTimeMillis() - start < timeout) {
                 try {
                     Thread.sleep(10);
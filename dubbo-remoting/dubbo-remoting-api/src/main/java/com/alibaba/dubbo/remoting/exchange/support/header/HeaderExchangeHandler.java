@@ -16,6 +16,8 @@
 package com.alibaba.dubbo.remoting.exchange.support.header;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
@@ -82,6 +84,11 @@ public class HeaderExchangeHandler implements ChannelHandlerDelegate {
         try {
             // handle data.
             Object result = handler.reply(channel, msg);
+            if (result instanceof CompletableFuture) {
+                // the response is sent when the future completes, no thread waits for it.
+                sendWhenComplete(channel, res, (CompletableFuture<?>) result);
+                return null;
+            }
             res.setStatus(Response.OK);
             res.setResult(result);
         } catch (Throwable e) {
@@ -91,6 +98,25 @@ public class HeaderExchangeHandler implements ChannelHandlerDelegate {
         return res;
     }
 
+    private static void sendWhenComplete(final ExchangeChannel channel, final Response res, CompletableFuture<?> future) {
+        future.whenComplete(new BiConsumer<Object, Throwable>() {
+            public void accept(Object result, Throwable t) {
+                if (t == null) {
+                    res.setStatus(Response.OK);
+                    res.setResult(result);
+                } else {
+                    res.setStatus(Response.SERVICE_ERROR);
+                    res.setErrorMessage(StringUtils.toString(t));
+                }
+                try {
+                    channel.send(res);
+                } catch (RemotingException e) {
+                    logger.warn("Failed to send response " + res + " to " + channel + ", cause: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
     static void handleResponse(Channel channel, Response response) throws RemotingException {
         if (response != null && !response.isHeartbeat()) {
             DefaultFuture.received(channel, response);
@@ -115,6 +141,7 @@ public class HeaderExchangeHandler implements ChannelHandlerDelegate {
         try {
             handler.disconnected(exchangeChannel);
         } finally {
+            DefaultFuture.closeChannel(channel);
             HeaderExchangeChannel.removeChannelIfDisconnected(channel);
         }
     }
@@ -168,7 +195,9 @@ public class HeaderExchangeHandler implements ChannelHandlerDelegate {
                 } else {
                     if (request.isTwoWay()) {
                         Response response = handleRequest(exchangeChannel, request);
-                        channel.send(response);
+                        if (response != null) {
+                            channel.send(response);
+                        }
                     } else {
                         handler.received(exchangeChannel, request.getData());
                     }
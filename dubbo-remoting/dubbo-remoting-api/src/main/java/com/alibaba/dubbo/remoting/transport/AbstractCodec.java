@@ -41,10 +41,18 @@ public abstract class AbstractCodec implements Codec2 {
     }
 
     protected static void checkPayload(Channel channel, long size) throws IOException {
+        checkPayload(channel, getPayload(channel), size);
+    }
+
+    protected static int getPayload(Channel channel) {
         int payload = Constants.DEFAULT_PAYLOAD;
         if (channel != null && channel.getUrl() != null) {
             payload = channel.getUrl().getParameter(Constants.PAYLOAD_KEY, Constants.DEFAULT_PAYLOAD);
         }
+        return payload;
+    }
+
+    protected static void checkPayload(Channel channel, int payload, long size) throws IOException {
         if (payload > 0 && size > payload) {
         	IOException e = new IOException("Data length too large: " + size + ", max payload: " + payload + ", channel: " + channel);
         	logger.error(e);
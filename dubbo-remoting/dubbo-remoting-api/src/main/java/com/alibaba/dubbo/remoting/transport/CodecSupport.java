@@ -22,6 +22,7 @@ import java.util.Set;
 
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.compress.Compressor;
 import com.alibaba.dubbo.common.extension.ExtensionLoader;
 import com.alibaba.dubbo.common.logger.Logger;
 import com.alibaba.dubbo.common.logger.LoggerFactory;
@@ -45,6 +46,9 @@ public class CodecSupport {
             Serialization serialization = ExtensionLoader.getExtensionLoader(Serialization.class).getExtension(name);
             byte idByte = serialization.getContentTypeId();
             if (ID_SERIALIZATION_MAP.containsKey(idByte)) {
+                if (serialization.getContentType().equals(ID_SERIALIZATION_MAP.get(idByte).getContentType())) {
+                    continue; // the same bytes written in another way, either one reads them
+                }
                 logger.error("Serialization extension " + serialization.getClass().getName()
                                  + " has duplicate id to Serialization extension "
                                  + ID_SERIALIZATION_MAP.get(idByte).getClass().getName()
@@ -55,6 +59,24 @@ public class CodecSupport {
         }
     }
 
+    private static Map<Byte, Compressor> ID_COMPRESSOR_MAP = new HashMap<Byte, Compressor>();
+
+    static {
+        Set<String> supportedExtensions = ExtensionLoader.getExtensionLoader(Compressor.class).getSupportedExtensions();
+        for (String name : supportedExtensions) {
+            Compressor compressor = ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(name);
+            byte idByte = compressor.getContentTypeId();
+            if (ID_COMPRESSOR_MAP.containsKey(idByte)) {
+                logger.error("Compressor extension " + compressor.getClass().getName()
+                                 + " has duplicate id to Compressor extension "
+                                 + ID_COMPRESSOR_MAP.get(idByte).getClass().getName()
+                                 + ", ignore this Compressor extension");
+                continue;
+            }
+            ID_COMPRESSOR_MAP.put(idByte, compressor);
+        }
+    }
+
     public static Serialization getSerializationById(Byte id) {
         return ID_SERIALIZATION_MAP.get(id);
     }
@@ -72,4 +94,41 @@ public class CodecSupport {
         return result;
     }
 
+    /**
+     * @return the largest buffer of a recyclable stream kept for the next message of the thread, or -1 if the codec
+     *         does not recycle its buffers.
+     */
+    public static int getRetainedBuffer(URL url) {
+        if (url == null || ! url.getParameter(Constants.CODEC_RECYCLE_BUFFER_KEY, false)) {
+            return -1;
+        }
+        return url.getParameter(Constants.CODEC_RETAINED_BUFFER_KEY, Constants.DEFAULT_CODEC_RETAINED_BUFFER);
+    }
+
+    public static Compressor getCompressorById(Byte id) {
+        return ID_COMPRESSOR_MAP.get(id);
+    }
+
+    /**
+     * get the compressor of the method, or of the url if the method is null.
+     * 
+     * @return null if none is configured.
+     */
+    public static Compressor getCompressor(URL url, String method) {
+        String name = method == null ? url.getParameter(Constants.COMPRESSOR_KEY)
+                : url.getMethodParameter(method, Constants.COMPRESSOR_KEY);
+        if (name == null || name.length() == 0) {
+            return null;
+        }
+        return ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(name);
+    }
+
+    /**
+     * get the size from which a body is compressed, of the method, or of the url if the method is null.
+     */
+    public static int getCompressThreshold(URL url, String method) {
+        return method == null ? url.getParameter(Constants.COMPRESS_THRESHOLD_KEY, Constants.DEFAULT_COMPRESS_THRESHOLD)
+                : url.getMethodParameter(method, Constants.COMPRESS_THRESHOLD_KEY, Constants.DEFAULT_COMPRESS_THRESHOLD);
+    }
+
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport;
+
+/**
+ * Flush statistics of a channel which coalesces its writes, published as the channel attribute {@link #KEY}.
+ */
+public class FlushStatistics {
+
+    public static final String KEY = FlushStatistics.class.getName();
+
+    private long flushes;
+
+    private long flushedMessages;
+
+    private long flushedBytes;
+
+    // the second being counted, and the flushes of it and of the second before.
+    private long currentSecond;
+
+    private long currentSecondFlushes;
+
+    private long lastSecondFlushes;
+
+    public synchronized void flushed(int messages, int bytes) {
+        flushes ++;
+        flushedMessages += messages;
+        flushedBytes += bytes;
+        long second = System.currentTimeMillis() / 1000;
+        if (second != currentSecond) {
+            lastSecondFlushes = second == currentSecond + 1 ? currentSecondFlushes : 0;
+            currentSecond = second;
+            currentSecondFlushes = 0;
+        }
+        currentSecondFlushes ++;
+    }
+
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    public synchronized long getFlushedMessages() {
+        return flushedMessages;
+    }
+
+    public synchronized long getFlushedBytes() {
+        return flushedBytes;
+    }
+
+    public synchronized long getBytesPerFlush() {
+        return flushes == 0 ? 0 : flushedBytes / flushes;
+    }
+
+    /**
+     * @return the flushes of the last complete second.
+     */
+    public synchronized long getFlushesPerSecond() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second == currentSecond) {
+            return lastSecondFlushes;
+        }
+        return second == currentSecond + 1 ? currentSecondFlushes : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "flushes/s:" + getFlushesPerSecond() + ",bytes/flush:" + getBytesPerFlush();
+    }
+
+}
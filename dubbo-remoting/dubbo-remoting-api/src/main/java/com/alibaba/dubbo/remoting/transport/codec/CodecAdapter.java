@@ -18,13 +18,14 @@ package com.alibaba.dubbo.remoting.transport.codec;
 
 import java.io.IOException;
 
-import com.alibaba.dubbo.common.io.UnsafeByteArrayInputStream;
-import com.alibaba.dubbo.common.io.UnsafeByteArrayOutputStream;
+import com.alibaba.dubbo.common.io.RecyclableByteArrayInputStream;
+import com.alibaba.dubbo.common.io.RecyclableByteArrayOutputStream;
 import com.alibaba.dubbo.common.utils.Assert;
 import com.alibaba.dubbo.remoting.Channel;
 import com.alibaba.dubbo.remoting.Codec;
 import com.alibaba.dubbo.remoting.Codec2;
 import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
+import com.alibaba.dubbo.remoting.transport.CodecSupport;
 
 /**
  * @author <a href="mailto:gang.lvg@alibaba-inc.com">kimi</a>
@@ -40,19 +41,27 @@ public class CodecAdapter implements Codec2 {
 
     public void encode(Channel channel, ChannelBuffer buffer, Object message)
         throws IOException {
-        UnsafeByteArrayOutputStream os = new UnsafeByteArrayOutputStream(1024);
-        codec.encode(channel, os, message);
-        buffer.writeBytes(os.toByteArray());
+        RecyclableByteArrayOutputStream os = RecyclableByteArrayOutputStream.acquire(1024);
+        try {
+            codec.encode(channel, os, message);
+            buffer.writeBytes(os.buffer(), 0, os.size());
+        } finally {
+            os.recycle(CodecSupport.getRetainedBuffer(channel.getUrl()));
+        }
     }
 
     public Object decode(Channel channel, ChannelBuffer buffer) throws IOException {
-        byte[] bytes = new byte[buffer.readableBytes()];
-        int savedReaderIndex = buffer.readerIndex();
-        buffer.readBytes(bytes);
-        UnsafeByteArrayInputStream is = new UnsafeByteArrayInputStream(bytes);
-        Object result = codec.decode(channel, is);
-        buffer.readerIndex(savedReaderIndex + is.position());
-        return result == Codec.NEED_MORE_INPUT ? DecodeResult.NEED_MORE_INPUT : result;
+        int readable = buffer.readableBytes();
+        RecyclableByteArrayInputStream is = RecyclableByteArrayInputStream.acquire(readable);
+        try {
+            int savedReaderIndex = buffer.readerIndex();
+            buffer.readBytes(is.buffer(), 0, readable);
+            Object result = codec.decode(channel, is);
+            buffer.readerIndex(savedReaderIndex + is.position());
+            return result == Codec.NEED_MORE_INPUT ? DecodeResult.NEED_MORE_INPUT : result;
+        } finally {
+            is.recycle(CodecSupport.getRetainedBuffer(channel.getUrl()));
+        }
     }
     
     public Codec getCodec() {
@@ -68,7 +68,7 @@ public class AllChannelHandler extends WrappedChannelHandler {
         }
     }
 
-    private ExecutorService getExecutorService() {
+    protected ExecutorService getExecutorService() {
         ExecutorService cexecutor = executor;
         if (cexecutor == null || cexecutor.isShutdown()) { 
             cexecutor = SHARED_EXECUTOR;
@@ -0,0 +1,150 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.dispatcher.deadline;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.ExecutionException;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.Schedulable;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.remoting.exchange.Response;
+import com.alibaba.dubbo.remoting.transport.dispatcher.ChannelEventRunnable;
+import com.alibaba.dubbo.remoting.transport.dispatcher.ChannelEventRunnable.ChannelState;
+import com.alibaba.dubbo.remoting.transport.dispatcher.all.AllChannelHandler;
+
+/**
+ * Keeps the received requests in a priority queue, by {@link Schedulable#getPriority()} and then by deadline,
+ * and submits a task for each of them that runs the first one in the queue. A request whose deadline has passed
+ * when its turn comes is answered with {@link Response#SERVER_TIMEOUT} instead of being run.
+ * <p>
+ * The queue holds no more requests than the thread pool takes tasks: with the default queues=0 a task is only taken
+ * by an idle thread, so a request never waits behind another one. The ordering and the expiry only take effect with
+ * queues &gt; 0.
+ */
+public class DeadlineChannelHandler extends AllChannelHandler {
+
+    private final PriorityBlockingQueue<QueuedRequest> queue = new PriorityBlockingQueue<QueuedRequest>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public DeadlineChannelHandler(ChannelHandler handler, URL url) {
+        super(handler, url);
+    }
+
+    @Override
+    public void received(Channel channel, Object message) throws RemotingException {
+        if (! (message instanceof Request) || ((Request) message).isEvent()) {
+            super.received(channel, message);
+            return;
+        }
+        QueuedRequest queued = new QueuedRequest(channel, (Request) message, sequence.getAndIncrement());
+        queue.offer(queued);
+        ExecutorService cexecutor = getExecutorService();
+        try {
+            cexecutor.execute(new Runnable() {
+                public void run() {
+                    runQueued();
+                }
+            });
+        } catch (Throwable t) {
+            // if it is gone, a running task took it and runs it, so it is not failed.
+            if (queue.remove(queued)) {
+                throw new ExecutionException(message, channel, getClass() + " error when process received event .", t);
+            }
+        }
+    }
+
+    private void runQueued() {
+        QueuedRequest queued;
+        while ((queued = queue.poll()) != null) {
+            if (queued.isExpired()) {
+                drop(queued);
+            } else {
+                new ChannelEventRunnable(queued.channel, handler, ChannelState.RECEIVED, queued.request).run();
+            }
+        }
+    }
+
+    private void drop(QueuedRequest queued) {
+        Request request = queued.request;
+        if (! request.isTwoWay()) {
+            return;
+        }
+        Response response = new Response(request.getId(), request.getVersion());
+        response.setStatus(Response.SERVER_TIMEOUT);
+        response.setErrorMessage("Dropped the request past its deadline, it waited "
+                + (System.currentTimeMillis() - queued.received) + "ms for the timeout of " + queued.timeout
+                + "ms in the queue of " + url.getAddress());
+        try {
+            queued.channel.send(response);
+        } catch (RemotingException e) {
+            logger.warn("Failed to send timeout response " + response + " to " + queued.channel + ", cause: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class QueuedRequest implements Comparable<QueuedRequest> {
+
+        final Channel channel;
+
+        final Request request;
+
+        final long sequence;
+
+        final long received = System.currentTimeMillis();
+
+        final int timeout;
+
+        final int priority;
+
+        final long deadline;
+
+        QueuedRequest(Channel channel, Request request, long sequence) {
+            this.channel = channel;
+            this.request = request;
+            this.sequence = sequence;
+            Object data = request.getData();
+            if (data instanceof Schedulable) {
+                this.timeout = ((Schedulable) data).getRemainingTimeout();
+                this.priority = ((Schedulable) data).getPriority();
+            } else {
+                this.timeout = 0;
+                this.priority = 0;
+            }
+            this.deadline = timeout > 0 ? received + timeout : Long.MAX_VALUE;
+        }
+
+        boolean isExpired() {
+            return deadline != Long.MAX_VALUE && System.currentTimeMillis() >= deadline;
+        }
+
+        public int compareTo(QueuedRequest o) {
+            if (priority != o.priority) {
+                return priority > o.priority ? -1 : 1;
+            }
+            if (deadline != o.deadline) {
+                return deadline < o.deadline ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+
+}
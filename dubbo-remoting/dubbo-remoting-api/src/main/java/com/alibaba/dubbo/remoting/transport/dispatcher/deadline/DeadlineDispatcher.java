@@ -0,0 +1,34 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.dispatcher.deadline;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.Dispatcher;
+
+/**
+ * 同all, 但排队的请求按优先级及截止时间执行, 已超过调用方超时时间的请求不再执行
+ * 需配置queues &gt; 0, 默认queues=0时请求不排队
+ */
+public class DeadlineDispatcher implements Dispatcher {
+
+    public static final String NAME = "deadline";
+
+    public ChannelHandler dispatch(ChannelHandler handler, URL url) {
+        return new DeadlineChannelHandler(handler, url);
+    }
+
+}
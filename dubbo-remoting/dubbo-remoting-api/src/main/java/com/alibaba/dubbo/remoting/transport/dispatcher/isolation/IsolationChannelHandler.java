@@ -0,0 +1,182 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.dispatcher.isolation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.store.DataStore;
+import com.alibaba.dubbo.common.threadpool.ThreadPool;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.ExecutionException;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.Routable;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.remoting.transport.dispatcher.ChannelEventRunnable;
+import com.alibaba.dubbo.remoting.transport.dispatcher.ChannelEventRunnable.ChannelState;
+import com.alibaba.dubbo.remoting.transport.dispatcher.all.AllChannelHandler;
+
+/**
+ * Runs a request on the executor of its service, or of its method, when the exported url of the
+ * service sets {@link Constants#ISOLATED_THREADS_KEY} (for a method listed in "methods": "method.isolated.threads").
+ * The other requests and the channel events run on the shared executor of the server.
+ */
+public class IsolationChannelHandler extends AllChannelHandler {
+
+    // by the service key of the exported services only, as the path, the version and the group come from the peer.
+    private final ConcurrentMap<String, IsolatedService> isolatedServices = new ConcurrentHashMap<String, IsolatedService>();
+
+    private volatile boolean closed;
+
+    public IsolationChannelHandler(ChannelHandler handler, URL url) {
+        super(handler, url);
+    }
+
+    @Override
+    public void received(Channel channel, Object message) throws RemotingException {
+        ExecutorService cexecutor = getIsolatedExecutor(message);
+        if (cexecutor == null) {
+            super.received(channel, message);
+            return;
+        }
+        try {
+            cexecutor.execute(new ChannelEventRunnable(channel, handler, ChannelState.RECEIVED, message));
+        } catch (Throwable t) {
+            throw new ExecutionException(message, channel, getClass() + " error when process received event .", t);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        super.close();
+        for (IsolatedService service : isolatedServices.values()) {
+            shutdown(service.executor);
+            for (ExecutorService isolated : service.methodExecutors.values()) {
+                shutdown(isolated);
+            }
+        }
+    }
+
+    private void shutdown(ExecutorService isolated) {
+        if (isolated != executor) {
+            try {
+                isolated.shutdown();
+            } catch (Throwable t) {
+                logger.warn("fail to destroy isolated thread pool of server: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    private ExecutorService getIsolatedExecutor(Object message) {
+        if (! (message instanceof Request) || ! (((Request) message).getData() instanceof Routable)) {
+            return null;
+        }
+        Routable routable = (Routable) ((Request) message).getData();
+        String path = routable.getRoutePath();
+        if (path == null) {
+            return null;
+        }
+        String key = serviceKey(url.getPort(), path, routable.getRouteVersion(), routable.getRouteGroup());
+        IsolatedService service = isolatedServices.get(key);
+        if (service == null) {
+            service = createIsolatedService(key, path);
+            if (service == null) {
+                return null;
+            }
+        }
+        String method = routable.getRouteMethod();
+        ExecutorService isolated = method == null ? null : service.methodExecutors.get(method);
+        if (isolated == null) {
+            isolated = service.executor;
+        }
+        // the shared executor stands for the requests that are not isolated.
+        if (isolated == executor || isolated.isShutdown()) {
+            return null;
+        }
+        return isolated;
+    }
+
+    private synchronized IsolatedService createIsolatedService(String key, String path) {
+        IsolatedService service = isolatedServices.get(key);
+        if (service != null) {
+            return service;
+        }
+        DataStore dataStore = ExtensionLoader.getExtensionLoader(DataStore.class).getDefaultExtension();
+        URL serviceUrl = (URL) dataStore.get(Constants.EXPORTED_URL_COMPONENT_KEY, key);
+        if (closed || serviceUrl == null) {
+            return null;
+        }
+        Map<String, ExecutorService> methodExecutors = new HashMap<String, ExecutorService>();
+        String[] methods = serviceUrl.getParameter(Constants.METHODS_KEY, new String[0]);
+        for (String method : methods) {
+            int threads = serviceUrl.getParameter(method + "." + Constants.ISOLATED_THREADS_KEY, 0);
+            if (threads > 0) {
+                methodExecutors.put(method, createExecutor(dataStore, serviceUrl, key + "#" + method, path + "#" + method, threads));
+            }
+        }
+        int threads = serviceUrl.getParameter(Constants.ISOLATED_THREADS_KEY, 0);
+        service = new IsolatedService(threads > 0 ? createExecutor(dataStore, serviceUrl, key, path, threads) : executor,
+                methodExecutors);
+        isolatedServices.put(key, service);
+        return service;
+    }
+
+    private ExecutorService createExecutor(DataStore dataStore, URL serviceUrl, String key, String name, int threads) {
+        String threadName = url.getParameter(Constants.THREAD_NAME_KEY, Constants.DEFAULT_THREAD_NAME) + "-" + name;
+        ExecutorService isolated = (ExecutorService) ExtensionLoader.getExtensionLoader(ThreadPool.class).getAdaptiveExtension()
+                .getExecutor(serviceUrl.addParameter(Constants.THREADS_KEY, threads)
+                        .addParameter(Constants.THREAD_NAME_KEY, threadName));
+        dataStore.put(Constants.EXECUTOR_SERVICE_COMPONENT_KEY, key, isolated);
+        return isolated;
+    }
+
+    /**
+     * the key the protocol exports a service with, group/path:version:port as in ProtocolUtils#serviceKey.
+     */
+    private static String serviceKey(int port, String path, String version, String group) {
+        StringBuilder buf = new StringBuilder();
+        if (group != null && group.length() > 0) {
+            buf.append(group).append("/");
+        }
+        buf.append(path);
+        if (version != null && version.length() > 0 && ! "0.0.0".equals(version)) {
+            buf.append(":").append(version);
+        }
+        buf.append(":").append(port);
+        return buf.toString();
+    }
+
+    private static final class IsolatedService {
+
+        final ExecutorService executor;
+
+        final Map<String, ExecutorService> methodExecutors;
+
+        IsolatedService(ExecutorService executor, Map<String, ExecutorService> methodExecutors) {
+            this.executor = executor;
+            this.methodExecutors = methodExecutors;
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.dispatcher.isolation;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.Dispatcher;
+
+/**
+ * 按服务(或方法)隔离线程池, 未配置隔离的请求及其它事件使用共享线程池
+ */
+public class IsolationDispatcher implements Dispatcher {
+
+    public static final String NAME = "isolation";
+
+    public ChannelHandler dispatch(ChannelHandler handler, URL url) {
+        return new IsolationChannelHandler(handler, url);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.dubbo.remoting.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PooledChannelBufferFactoryTest {
+
+    @Test
+    public void testCapacityIsRoundedToSizeClass() {
+        ChannelBufferFactory factory = new PooledChannelBufferFactory(false);
+        assertEquals(PooledChannelBufferFactory.MIN_CAPACITY, factory.getBuffer(1).capacity());
+        assertEquals(PooledChannelBufferFactory.MIN_CAPACITY, factory.getBuffer(PooledChannelBufferFactory.MIN_CAPACITY).capacity());
+        assertEquals(16 * 1024, factory.getBuffer(10 * 1024).capacity());
+        assertEquals(64 * 1024, factory.getBuffer(50 * 1024).capacity());
+        assertEquals(PooledChannelBufferFactory.MAX_CAPACITY + 1, factory.getBuffer(PooledChannelBufferFactory.MAX_CAPACITY + 1).capacity());
+        assertSame(ChannelBuffers.EMPTY_BUFFER, factory.getBuffer(0));
+    }
+
+    @Test
+    public void testReleasedHeapBufferIsReused() {
+        ChannelBufferFactory factory = new PooledChannelBufferFactory(false);
+        ChannelBuffer buffer = factory.getBuffer(20 * 1024);
+        byte[] array = buffer.array();
+        buffer.writeBytes(new byte[] {1, 2, 3, 4});
+        ChannelBuffers.release(buffer);
+        // a second release must not put the memory in the pool twice.
+        ChannelBuffers.release(buffer);
+
+        ChannelBuffer reused = factory.getBuffer(30 * 1024);
+        assertSame(array, reused.array());
+        assertEquals(0, reused.readerIndex());
+        assertEquals(0, reused.writerIndex());
+        assertNotSame(array, factory.getBuffer(30 * 1024).array());
+    }
+
+    @Test
+    public void testReleasedDirectBufferIsReused() {
+        ChannelBufferFactory factory = new PooledChannelBufferFactory(true);
+        ChannelBuffer buffer = factory.getBuffer(1000);
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.writerIndex());
+        buffer.writeBytes(new byte[1000]);
+        ChannelBuffers.release(buffer);
+
+        ChannelBuffer reused = factory.getBuffer(1000);
+        assertEquals(1024, reused.capacity());
+        assertEquals(0, reused.writerIndex());
+        assertEquals(1024, reused.writableBytes());
+    }
+
+    @Test
+    public void testBufferReleasedByAnotherThreadIsReused() throws Exception {
+        ChannelBufferFactory factory = new PooledChannelBufferFactory(false);
+        // more than a thread keeps, so the rest goes to the arenas.
+        final ChannelBuffer[] buffers = new ChannelBuffer[64];
+        for (int i = 0; i < buffers.length; i ++) {
+            buffers[i] = factory.getBuffer(16 * 1024);
+        }
+        Thread releaser = new Thread(new Runnable() {
+            public void run() {
+                for (ChannelBuffer buffer : buffers) {
+                    ChannelBuffers.release(buffer);
+                }
+            }
+        });
+        releaser.start();
+        releaser.join();
+
+        byte[] array = factory.getBuffer(16 * 1024).array();
+        boolean reused = false;
+        for (ChannelBuffer buffer : buffers) {
+            reused |= buffer.array() == array;
+        }
+        assertTrue(reused);
+    }
+
+    @Test
+    public void testBufferReleasedByAnotherThreadGoesBackToItsBorrower() throws Exception {
+        ChannelBufferFactory factory = new PooledChannelBufferFactory(false);
+        final ChannelBuffer buffer = factory.getBuffer(16 * 1024);
+        // a single buffer, which the cache of the releasing thread would have kept.
+        Thread releaser = new Thread(new Runnable() {
+            public void run() {
+                ChannelBuffers.release(buffer);
+            }
+        });
+        releaser.start();
+        releaser.join();
+
+        assertSame(buffer.array(), factory.getBuffer(16 * 1024).array());
+    }
+
+    @Test
+    public void testDynamicBufferGivesBackOutgrownBuffers() {
+        ChannelBufferFactory factory = new PooledChannelBufferFactory(false);
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(1024, factory);
+        byte[] first = buffer.array();
+        buffer.writeBytes(new byte[50 * 1024]);
+        assertFalse(first == buffer.array());
+        byte[] grown = buffer.array();
+        assertEquals(64 * 1024, buffer.capacity());
+
+        assertSame(first, factory.getBuffer(1024).array());
+        ChannelBuffers.release(buffer);
+        assertSame(grown, factory.getBuffer(64 * 1024).array());
+    }
+
+}
@@ -25,6 +25,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.extension.ExtensionLoader;
 import com.alibaba.dubbo.common.io.Bytes;
 import com.alibaba.dubbo.common.io.UnsafeByteArrayOutputStream;
@@ -33,6 +34,8 @@ import com.alibaba.dubbo.common.serialize.Serialization;
 import com.alibaba.dubbo.remoting.Channel;
 import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
 import com.alibaba.dubbo.remoting.buffer.ChannelBuffers;
+import com.alibaba.dubbo.remoting.buffer.DynamicChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.StreamingChannelBuffer;
 import com.alibaba.dubbo.remoting.exchange.Request;
 import com.alibaba.dubbo.remoting.exchange.Response;
 import com.alibaba.dubbo.remoting.exchange.codec.ExchangeCodec;
@@ -439,4 +442,264 @@ public class ExchangeCodecTest extends TelnetCodecTest{
         Assert.assertEquals(Response.BAD_RESPONSE, receiveMessage.getStatus());
         Assert.assertTrue(receiveMessage.getErrorMessage().contains("Data length too large: "));
     }
+
+    private static String getLargeString(int length) {
+        StringBuilder buf = new StringBuilder(length);
+        for (int i = 0; i < length; i ++) {
+            buf.append((char) ('a' + i % 26));
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void testChunkedRequest() throws Exception {
+        String data = getLargeString(10000);
+        Request request = new Request(1L);
+        request.setData(data);
+        ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        Channel channel = getCliendSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024));
+        codec.encode(channel, encodeBuffer, request);
+        Assert.assertTrue(Bytes.bytes2int(encodeBuffer.array(), 12) < 0);
+
+        AbstractMockChannel serverChannel = getServerSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024));
+        byte[] bytes = new byte[encodeBuffer.readableBytes()];
+        encodeBuffer.readBytes(bytes);
+        // one byte short of the whole message.
+        ChannelBuffer decodeBuffer = ChannelBuffers.wrappedBuffer(bytes, 0, bytes.length - 1);
+        Assert.assertEquals(TelnetCodec.DecodeResult.NEED_MORE_INPUT, codec.decode(serverChannel, decodeBuffer));
+        decodeBuffer = ChannelBuffers.wrappedBuffer(bytes);
+        Request decodedRequest = (Request) codec.decode(serverChannel, decodeBuffer);
+        Assert.assertEquals(data, decodedRequest.getData());
+        Assert.assertFalse(decodeBuffer.readable());
+
+        // the consumer sent chunks, so the response is chunked too.
+        Response response = new Response(1L);
+        response.setResult(data);
+        encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        codec.encode(serverChannel, encodeBuffer, response);
+        Assert.assertTrue(Bytes.bytes2int(encodeBuffer.array(), 12) < 0);
+        Response decodedResponse = (Response) codec.decode(channel, encodeBuffer);
+        Assert.assertEquals(data, decodedResponse.getResult());
+    }
+
+    @Test
+    public void testChunkedRequestInSmallReads() throws Exception {
+        String data = getLargeString(10000);
+        Request request = new Request(1L);
+        request.setData(data);
+        ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        codec.encode(getCliendSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 256)), encodeBuffer, request);
+        byte[] bytes = new byte[encodeBuffer.readableBytes()];
+        encodeBuffer.readBytes(bytes);
+
+        // each read goes on from the chunks scanned by the reads before.
+        AbstractMockChannel serverChannel = getServerSideChannel(url);
+        Object decoded = TelnetCodec.DecodeResult.NEED_MORE_INPUT;
+        int length = 0;
+        while (decoded == TelnetCodec.DecodeResult.NEED_MORE_INPUT) {
+            length = Math.min(length + 100, bytes.length);
+            decoded = codec.decode(serverChannel, ChannelBuffers.wrappedBuffer(bytes, 0, length));
+        }
+        Assert.assertEquals(bytes.length, length);
+        Assert.assertEquals(data, ((Request) decoded).getData());
+    }
+
+    @Test
+    public void testIllegalChunkLength() throws Exception {
+        Request request = new Request(1L);
+        request.setData(getLargeString(1000));
+        ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        codec.encode(getCliendSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 256)), encodeBuffer, request);
+        byte[] bytes = new byte[encodeBuffer.readableBytes()];
+        encodeBuffer.readBytes(bytes);
+        // a negative length other than the abort marker.
+        Bytes.int2bytes(-2, bytes, 16);
+        try {
+            codec.decode(getServerSideChannel(url), ChannelBuffers.wrappedBuffer(bytes));
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal chunk length -2"));
+        }
+        // a length beyond what the buffer can hold waits for more input, without overflowing.
+        Bytes.int2bytes(Integer.MAX_VALUE, bytes, 16);
+        Assert.assertEquals(TelnetCodec.DecodeResult.NEED_MORE_INPUT,
+                codec.decode(getServerSideChannel(url.addParameter(Constants.PAYLOAD_KEY, 0)), ChannelBuffers.wrappedBuffer(bytes)));
+    }
+
+    @Test
+    public void testNotChunkedResponseToNotChunkedRequest() throws Exception {
+        Response response = new Response(1L);
+        response.setResult(getLargeString(10000));
+        ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        Channel channel = getServerSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024));
+        codec.encode(channel, encodeBuffer, response);
+        Assert.assertEquals(encodeBuffer.readableBytes() - 16, Bytes.bytes2int(encodeBuffer.array(), 12));
+    }
+
+    @Test
+    public void testStreamingChunks() throws Exception {
+        String data = getLargeString(100000);
+        Request request = new Request(1L);
+        request.setData(data);
+        MockStreamingBuffer encodeBuffer = new MockStreamingBuffer();
+        Channel channel = getCliendSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024));
+        codec.encode(channel, encodeBuffer, request);
+        encodeBuffer.flush();
+        Assert.assertTrue(encodeBuffer.frames > 10);
+        Assert.assertTrue(encodeBuffer.maxFrame <= 16 + 4 + 1024 + 4);
+
+        ChannelBuffer decodeBuffer = ChannelBuffers.wrappedBuffer(encodeBuffer.sent.toByteArray());
+        Request decodedRequest = (Request) codec.decode(getServerSideChannel(url), decodeBuffer);
+        Assert.assertEquals(data, decodedRequest.getData());
+    }
+
+    @Test
+    public void testPayloadExceededWhileStreaming() throws Exception {
+        Request request = new Request(1L);
+        request.setData(getLargeString(100000));
+        MockStreamingBuffer encodeBuffer = new MockStreamingBuffer();
+        Channel channel = getCliendSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024)
+                .addParameter(Constants.PAYLOAD_KEY, 10000));
+        try {
+            codec.encode(channel, encodeBuffer, request);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Data length too large: "));
+        }
+        // the sent part is given up, the next message is decoded as usual.
+        Assert.assertTrue(encodeBuffer.sent.size() < 10000 + 1024);
+        encodeBuffer.flush();
+        Request next = new Request(2L);
+        next.setData("hello");
+        codec.encode(channel, encodeBuffer, next);
+        encodeBuffer.flush();
+
+        AbstractMockChannel serverChannel = getServerSideChannel(url);
+        ChannelBuffer decodeBuffer = ChannelBuffers.wrappedBuffer(encodeBuffer.sent.toByteArray());
+        Request aborted = (Request) codec.decode(serverChannel, decodeBuffer);
+        Assert.assertEquals(1L, aborted.getId());
+        Assert.assertTrue(aborted.isBroken());
+        Request decodedRequest = (Request) codec.decode(serverChannel, decodeBuffer);
+        Assert.assertEquals(2L, decodedRequest.getId());
+        Assert.assertEquals("hello", decodedRequest.getData());
+    }
+
+    @Test
+    public void testResponseAbortedWhileStreaming() throws Exception {
+        AbstractMockChannel serverChannel = getServerSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024)
+                .addParameter(Constants.PAYLOAD_KEY, 10000));
+        Request request = new Request(1L);
+        request.setData("hello");
+        ChannelBuffer requestBuffer = ChannelBuffers.dynamicBuffer(1024);
+        codec.encode(getCliendSideChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024)), requestBuffer, request);
+        codec.decode(serverChannel, requestBuffer);
+
+        Response response = new Response(1L);
+        response.setResult(getLargeString(100000));
+        MockStreamingBuffer encodeBuffer = new MockStreamingBuffer();
+        codec.encode(serverChannel, encodeBuffer, response);
+        // nothing is sent ahead of the terminator still in the buffer.
+        Assert.assertNull(serverChannel.getReceivedMessage());
+        encodeBuffer.flush();
+
+        ChannelBuffer decodeBuffer = ChannelBuffers.wrappedBuffer(encodeBuffer.sent.toByteArray());
+        Response aborted = (Response) codec.decode(getCliendSideChannel(url), decodeBuffer);
+        Assert.assertEquals(1L, aborted.getId());
+        Assert.assertEquals(Response.BAD_RESPONSE, aborted.getStatus());
+        Assert.assertFalse(aborted.isHeartbeat());
+        Assert.assertFalse(decodeBuffer.readable());
+    }
+
+    @Test
+    public void testCompressedRequest() throws Exception {
+        for (String compressor : new String[] {"lz4", "snappy", "deflate"}) {
+            String data = getLargeString(10000);
+            Request request = new Request(1L);
+            request.setData(data);
+            ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+            Channel channel = getCliendSideChannel(url.addParameter(Constants.COMPRESSOR_KEY, compressor));
+            codec.encode(channel, encodeBuffer, request);
+            int len = Bytes.bytes2int(encodeBuffer.array(), 12);
+            Assert.assertTrue((len & 0x40000000) != 0);
+            Assert.assertEquals(encodeBuffer.readableBytes() - 16, len & ~0x40000000);
+            Assert.assertTrue(encodeBuffer.readableBytes() < 5000);
+
+            AbstractMockChannel serverChannel = getServerSideChannel(url);
+            Request decodedRequest = (Request) codec.decode(serverChannel, encodeBuffer);
+            Assert.assertEquals(data, decodedRequest.getData());
+            Assert.assertFalse(encodeBuffer.readable());
+
+            // the response goes compressed as its request, though the provider configures no compressor.
+            Response response = new Response(1L);
+            response.setResult(data);
+            encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+            codec.encode(serverChannel, encodeBuffer, response);
+            Assert.assertTrue((Bytes.bytes2int(encodeBuffer.array(), 12) & 0x40000000) != 0);
+            Response decodedResponse = (Response) codec.decode(channel, encodeBuffer);
+            Assert.assertEquals(data, decodedResponse.getResult());
+
+            // the next one is not.
+            encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+            codec.encode(serverChannel, encodeBuffer, response);
+            Assert.assertEquals(encodeBuffer.readableBytes() - 16, Bytes.bytes2int(encodeBuffer.array(), 12));
+        }
+    }
+
+    @Test
+    public void testCompressedWithRecycledBuffers() throws Exception {
+        URL recycling = url.addParameter(Constants.CODEC_RECYCLE_BUFFER_KEY, true);
+        Channel channel = getCliendSideChannel(recycling.addParameter(Constants.COMPRESSOR_KEY, "lz4"));
+        AbstractMockChannel serverChannel = getServerSideChannel(recycling);
+        for (int i = 0; i < 3; i++) {
+            String data = getLargeString(10000 - i * 3000) + i;
+            Request request = new Request(i);
+            request.setData(data);
+            // a direct buffer has no array, so that the body is copied through a recycled one.
+            ChannelBuffer encodeBuffer = i == 1 ? ChannelBuffers.directBuffer(20000) : ChannelBuffers.dynamicBuffer(1024);
+            codec.encode(channel, encodeBuffer, request);
+            Assert.assertTrue(encodeBuffer.readableBytes() < 5000);
+            Request decodedRequest = (Request) codec.decode(serverChannel, encodeBuffer);
+            Assert.assertEquals(data, decodedRequest.getData());
+            Assert.assertFalse(encodeBuffer.readable());
+        }
+    }
+
+    @Test
+    public void testNotCompressedBelowThreshold() throws Exception {
+        Request request = new Request(1L);
+        request.setData(getLargeString(100));
+        ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        Channel channel = getCliendSideChannel(url.addParameter(Constants.COMPRESSOR_KEY, "lz4"));
+        codec.encode(channel, encodeBuffer, request);
+        Assert.assertEquals(encodeBuffer.readableBytes() - 16, Bytes.bytes2int(encodeBuffer.array(), 12));
+
+        encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        channel = getCliendSideChannel(url.addParameter(Constants.COMPRESSOR_KEY, "lz4")
+                .addParameter(Constants.COMPRESS_THRESHOLD_KEY, 64));
+        codec.encode(channel, encodeBuffer, request);
+        Assert.assertTrue((Bytes.bytes2int(encodeBuffer.array(), 12) & 0x40000000) != 0);
+        Request decodedRequest = (Request) codec.decode(getServerSideChannel(url), encodeBuffer);
+        Assert.assertEquals(request.getData(), decodedRequest.getData());
+    }
+
+    private static class MockStreamingBuffer extends DynamicChannelBuffer implements StreamingChannelBuffer {
+
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+        int frames;
+
+        int maxFrame;
+
+        MockStreamingBuffer() {
+            super(256);
+        }
+
+        public void flush() throws IOException {
+            int size = readableBytes();
+            frames ++;
+            maxFrame = Math.max(maxFrame, size);
+            readBytes(sent, size);
+            clear();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.exchange.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.TimeoutException;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.remoting.exchange.Response;
+import com.alibaba.dubbo.remoting.exchange.ResponseCallback;
+import com.alibaba.dubbo.remoting.exchange.ResponseFuture;
+import com.alibaba.dubbo.remoting.exchange.support.header.MockChannel;
+
+public class DefaultFutureTest {
+
+    private final Channel channel = new MockChannel();
+
+    private static Response response(Request request, Object result) {
+        Response response = new Response(request.getId());
+        response.setResult(result);
+        return response;
+    }
+
+    @Test
+    public void testReceivedWakesWaiter() throws Exception {
+        final Request request = new Request();
+        DefaultFuture future = new DefaultFuture(channel, request, 3000);
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                }
+                DefaultFuture.received(channel, response(request, "hello"));
+            }
+        }).start();
+        assertEquals("hello", future.get());
+        assertTrue(future.isDone());
+        assertEquals(null, DefaultFuture.getFuture(channel, request.getId()));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Request request = new Request();
+        DefaultFuture future = new DefaultFuture(channel, request, 100);
+        long start = System.currentTimeMillis();
+        try {
+            future.get();
+            fail();
+        } catch (TimeoutException expected) {
+            assertTrue(expected.isClientSide());
+        }
+        assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
+    @Test
+    public void testTimeoutByTimer() throws Exception {
+        Request request = new Request();
+        DefaultFuture future = new DefaultFuture(channel, request, 50);
+        DefaultFuture.sent(channel, request);
+        try {
+            future.getCompletableFuture().get(3, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+            assertTrue(((TimeoutException) expected.getCause()).isServerSide());
+        }
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testCallbackInvokedOnce() throws Exception {
+        Request request = new Request();
+        DefaultFuture future = new DefaultFuture(channel, request, 3000);
+        final AtomicInteger done = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        future.setCallback(new ResponseCallback() {
+            public void done(Object response) {
+                done.incrementAndGet();
+                latch.countDown();
+            }
+            public void caught(Throwable exception) {
+                fail();
+            }
+        });
+        DefaultFuture.received(channel, response(request, "hello"));
+        DefaultFuture.received(channel, response(request, "again"));
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(1, done.get());
+
+        final AtomicReference<Object> late = new AtomicReference<Object>();
+        future.setCallback(new ResponseCallback() {
+            public void done(Object response) {
+                late.set(response);
+            }
+            public void caught(Throwable exception) {
+                fail();
+            }
+        });
+        assertEquals("hello", late.get());
+    }
+
+    @Test
+    public void testCompletableFuture() throws Exception {
+        Request request = new Request();
+        DefaultFuture future = new DefaultFuture(channel, request, 3000);
+        CompletableFuture<Object> completable = future.getCompletableFuture();
+        assertFalse(completable.isDone());
+        DefaultFuture.received(channel, response(request, "hello"));
+        assertEquals("hello", completable.get(1, TimeUnit.SECONDS));
+        assertTrue(future.getCompletableFuture().isDone());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        Request request = new Request();
+        DefaultFuture future = new DefaultFuture(channel, request, 3000);
+        future.cancel();
+        assertTrue(future.isDone());
+        assertTrue(future.getCompletableFuture().isCompletedExceptionally());
+        assertEquals(null, DefaultFuture.getFuture(channel, request.getId()));
+        try {
+            future.get();
+            fail();
+        } catch (TimeoutException e) {
+            fail();
+        } catch (RemotingException expected) {
+        }
+    }
+
+    @Test
+    public void testDefaultCompletableFuture() throws Exception {
+        final AtomicReference<ResponseCallback> callback = new AtomicReference<ResponseCallback>();
+        ResponseFuture future = new ResponseFuture() {
+            public Object get() {
+                return null;
+            }
+            public Object get(int timeoutInMillis) {
+                return null;
+            }
+            public void setCallback(ResponseCallback c) {
+                callback.set(c);
+            }
+            public boolean isDone() {
+                return callback.get() != null;
+            }
+        };
+        CompletableFuture<Object> completable = future.getCompletableFuture();
+        assertFalse(completable.isDone());
+        callback.get().done("hello");
+        assertEquals("hello", completable.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFuturesArePerChannel() throws Exception {
+        Channel other = new MockChannel();
+        Request request = new Request();
+        DefaultFuture future = new DefaultFuture(channel, request, 3000);
+        assertTrue(DefaultFuture.hasFuture(channel));
+        assertFalse(DefaultFuture.hasFuture(other));
+        assertEquals(null, DefaultFuture.getFuture(other, request.getId()));
+        DefaultFuture.received(other, response(request, "hello"));
+        assertFalse(future.isDone());
+        DefaultFuture.received(channel, response(request, "hello"));
+        assertEquals("hello", future.get());
+        assertFalse(DefaultFuture.hasFuture(channel));
+    }
+
+    @Test
+    public void testCloseChannelFailsPendingFutures() throws Exception {
+        Channel closing = new MockChannel();
+        DefaultFuture first = new DefaultFuture(closing, new Request(), 3000);
+        DefaultFuture second = new DefaultFuture(closing, new Request(), 3000);
+        DefaultFuture.closeChannel(closing);
+        assertFalse(DefaultFuture.hasFuture(closing));
+        for (DefaultFuture future : new DefaultFuture[] {first, second}) {
+            assertTrue(future.isDone());
+            try {
+                future.get();
+                fail();
+            } catch (TimeoutException e) {
+                fail();
+            } catch (RemotingException expected) {
+            }
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.handler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ExecutionException;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.Schedulable;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.remoting.exchange.Response;
+import com.alibaba.dubbo.remoting.transport.dispatcher.deadline.DeadlineChannelHandler;
+
+public class DeadlineChannelHandlerTest {
+
+    private final URL url = URL.valueOf("dubbo://127.0.0.1:20882?" + Constants.THREADS_KEY + "=1&" + Constants.QUEUES_KEY + "=10");
+
+    private final BlockingQueue<Object> received = new ArrayBlockingQueue<Object>(10);
+
+    private final BlockingQueue<Object> sent = new ArrayBlockingQueue<Object>(10);
+
+    private DeadlineChannelHandler handler;
+
+    @After
+    public void tearDown() {
+        if (handler != null) {
+            handler.close();
+        }
+    }
+
+    @Test
+    public void testPriorityAndDeadline() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        handler = new DeadlineChannelHandler(new MockedChannelHandler() {
+            @Override
+            public void received(Channel channel, Object message) throws RemotingException {
+                Object data = ((Request) message).getData();
+                if ("blocking".equals(data)) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                    }
+                }
+                received.add(data);
+            }
+        }, url);
+        Channel channel = new MockedChannel() {
+            @Override
+            public void send(Object message) throws RemotingException {
+                sent.add(message);
+            }
+        };
+
+        handler.received(channel, request("blocking"));
+        Thread.sleep(100);
+        Schedulable low = schedulable(0, 0);
+        Schedulable high = schedulable(0, 10);
+        Schedulable urgent = schedulable(5000, 0);
+        Schedulable expired = schedulable(1, 100);
+        Request expiredRequest = request(expired);
+        handler.received(channel, request(low));
+        handler.received(channel, request(urgent));
+        handler.received(channel, expiredRequest);
+        handler.received(channel, request(high));
+        Thread.sleep(50);
+        release.countDown();
+
+        Assert.assertEquals("blocking", received.poll(5, TimeUnit.SECONDS));
+        Assert.assertSame(high, received.poll(5, TimeUnit.SECONDS));
+        Assert.assertSame(urgent, received.poll(5, TimeUnit.SECONDS));
+        Assert.assertSame(low, received.poll(5, TimeUnit.SECONDS));
+
+        Response response = (Response) sent.poll(5, TimeUnit.SECONDS);
+        Assert.assertEquals(expiredRequest.getId(), response.getId());
+        Assert.assertEquals(Response.SERVER_TIMEOUT, response.getStatus());
+        Assert.assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRejectedRequestTakenByARunningTask() throws Exception {
+        final boolean[] taken = new boolean[1];
+        // the task runs the queue before the pool turns it down, as a running task would.
+        final ExecutorService pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>()) {
+            @Override
+            public void execute(Runnable command) {
+                if (taken[0]) {
+                    command.run();
+                }
+                throw new RejectedExecutionException();
+            }
+        };
+        handler = new DeadlineChannelHandler(new MockedChannelHandler() {
+            @Override
+            public void received(Channel channel, Object message) throws RemotingException {
+                received.add(((Request) message).getData());
+            }
+        }, url) {
+            @Override
+            protected ExecutorService getExecutorService() {
+                return pool;
+            }
+        };
+        Channel channel = new MockedChannel();
+
+        taken[0] = true;
+        handler.received(channel, request("taken"));
+        Assert.assertEquals("taken", received.poll());
+
+        taken[0] = false;
+        try {
+            handler.received(channel, request("rejected"));
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        Assert.assertNull(received.poll());
+        pool.shutdown();
+    }
+
+    private static Request request(Object data) {
+        Request request = new Request();
+        request.setTwoWay(true);
+        request.setData(data);
+        return request;
+    }
+
+    private static Schedulable schedulable(final int timeout, final int priority) {
+        return new Schedulable() {
+            public int getRemainingTimeout() {
+                return timeout;
+            }
+
+            public int getPriority() {
+                return priority;
+            }
+        };
+    }
+
+}
@@ -16,12 +16,14 @@
 package com.alibaba.dubbo.remoting.handler;
 
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.remoting.Channel;
 import com.alibaba.dubbo.remoting.RemotingException;
 import com.alibaba.dubbo.remoting.exchange.ExchangeChannel;
@@ -85,6 +87,42 @@ public class HeaderExchangeHandlerTest {
         Assert.assertEquals(1, count.get());
     }
     
+    @Test
+    public void test_received_request_twoway_future() throws RemotingException{
+        final Person requestdata = new Person("charles");
+        final Request request = new Request();
+        request.setTwoWay(true);
+        request.setData(requestdata);
+        
+        final AtomicInteger count = new AtomicInteger(0);
+        final Channel mchannel = new MockedChannel(){
+            @Override
+            public URL getUrl() {
+                return URL.valueOf("dubbo://localhost:20880");
+            }
+            @Override
+            public void send(Object message) throws RemotingException {
+                Response res = (Response)message;
+                Assert.assertEquals(request.getId(), res.getId());
+                Assert.assertEquals(Response.OK, res.getStatus());
+                Assert.assertEquals(requestdata, res.getResult());
+                count.incrementAndGet();
+            }
+        };
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+        ExchangeHandler exhandler = new MockedExchangeHandler(){
+            @Override
+            public Object reply(ExchangeChannel channel, Object request) throws RemotingException {
+                return future;
+            }
+        };
+        HeaderExchangeHandler hexhandler = new HeaderExchangeHandler(exhandler);
+        hexhandler.received(mchannel, request);
+        Assert.assertEquals(0, count.get());
+        future.complete(requestdata);
+        Assert.assertEquals(1, count.get());
+    }
+    
     @Test(expected = IllegalArgumentException.class)
     public void test_received_request_twoway_error_nullhandler() throws RemotingException{
         new HeaderExchangeHandler(null);
@@ -0,0 +1,130 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.handler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.store.DataStore;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.Routable;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.remoting.transport.dispatcher.isolation.IsolationChannelHandler;
+
+public class IsolationChannelHandlerTest {
+
+    private static final String SERVICE = "com.alibaba.dubbo.remoting.handler.IsolatedService";
+
+    private final DataStore dataStore = ExtensionLoader.getExtensionLoader(DataStore.class).getDefaultExtension();
+
+    private final BlockingQueue<String> threads = new ArrayBlockingQueue<String>(10);
+
+    private final URL url = URL.valueOf("dubbo://127.0.0.1:20881?" + Constants.THREAD_NAME_KEY + "=Server");
+
+    private IsolationChannelHandler handler;
+
+    @After
+    public void tearDown() {
+        dataStore.remove(Constants.EXPORTED_URL_COMPONENT_KEY, SERVICE + ":20881");
+        dataStore.remove(Constants.EXPORTED_URL_COMPONENT_KEY, "a/" + SERVICE + ":1.0.0:20881");
+        if (handler != null) {
+            handler.close();
+        }
+    }
+
+    @Test
+    public void testRouteByServiceAndMethod() throws Exception {
+        dataStore.put(Constants.EXPORTED_URL_COMPONENT_KEY, SERVICE + ":20881",
+                URL.valueOf("dubbo://127.0.0.1:20881/" + SERVICE + "?methods=fast,slow&" + Constants.ISOLATED_THREADS_KEY
+                        + "=2&slow." + Constants.ISOLATED_THREADS_KEY + "=1&unlisted." + Constants.ISOLATED_THREADS_KEY + "=1"));
+        handler = new IsolationChannelHandler(new MockedChannelHandler() {
+            @Override
+            public void received(Channel channel, Object message) throws RemotingException {
+                threads.add(Thread.currentThread().getName());
+            }
+        }, url);
+
+        handler.received(new MockedChannel(), request(SERVICE, "fast"));
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-" + SERVICE + "-thread-"));
+        handler.received(new MockedChannel(), request(SERVICE, "slow"));
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-" + SERVICE + "#slow-thread-"));
+        // only the methods of the service get executors of their own.
+        handler.received(new MockedChannel(), request(SERVICE, "unlisted"));
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-" + SERVICE + "-thread-"));
+        handler.received(new MockedChannel(), request("com.alibaba.dubbo.remoting.handler.OtherService", "fast"));
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-thread-"));
+        handler.received(new MockedChannel(), "not routable");
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-thread-"));
+    }
+
+    @Test
+    public void testRouteByGroupAndVersion() throws Exception {
+        dataStore.put(Constants.EXPORTED_URL_COMPONENT_KEY, SERVICE + ":20881",
+                URL.valueOf("dubbo://127.0.0.1:20881/" + SERVICE));
+        dataStore.put(Constants.EXPORTED_URL_COMPONENT_KEY, "a/" + SERVICE + ":1.0.0:20881",
+                URL.valueOf("dubbo://127.0.0.1:20881/" + SERVICE + "?group=a&version=1.0.0&"
+                        + Constants.ISOLATED_THREADS_KEY + "=1"));
+        handler = new IsolationChannelHandler(new MockedChannelHandler() {
+            @Override
+            public void received(Channel channel, Object message) throws RemotingException {
+                threads.add(Thread.currentThread().getName());
+            }
+        }, url);
+
+        handler.received(new MockedChannel(), request(SERVICE, "fast", "1.0.0", "a"));
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-" + SERVICE + "-thread-"));
+        handler.received(new MockedChannel(), request(SERVICE, "fast"));
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-thread-"));
+        handler.received(new MockedChannel(), request(SERVICE, "fast", "1.0.0", null));
+        Assert.assertTrue(threads.poll(5, TimeUnit.SECONDS).startsWith("Server-thread-"));
+    }
+
+    private static Request request(String path, String method) {
+        return request(path, method, null, null);
+    }
+
+    private static Request request(final String path, final String method, final String version, final String group) {
+        Request request = new Request();
+        request.setData(new Routable() {
+            public String getRoutePath() {
+                return path;
+            }
+
+            public String getRouteMethod() {
+                return method;
+            }
+
+            public String getRouteVersion() {
+                return version;
+            }
+
+            public String getRouteGroup() {
+                return group;
+            }
+        });
+        return request;
+    }
+
+}
@@ -146,7 +146,7 @@ final class DeprecatedExchangeCodec extends DeprecatedTelnetCodec implements Cod
                     } else if (res.isEvent()) {
                         data = decodeEventData(channel, in);
                     } else {
-                        data = decodeResponseData(channel, in, getRequestData(id));
+                        data = decodeResponseData(channel, in, getRequestData(channel, id));
                     }
                     res.setResult(data);
                 } catch (Throwable t) {
@@ -184,8 +184,8 @@ final class DeprecatedExchangeCodec extends DeprecatedTelnetCodec implements Cod
         }
     }
 
-    protected Object getRequestData(long id) {
-        DefaultFuture future = DefaultFuture.getFuture(id);
+    protected Object getRequestData(Channel channel, long id) {
+        DefaultFuture future = DefaultFuture.getFuture(channel, id);
         if (future == null)
             return null;
         Request req = future.getRequest();
@@ -31,6 +31,7 @@ import com.alibaba.dubbo.remoting.ChannelHandler;
 import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
 import com.alibaba.dubbo.remoting.buffer.ChannelBuffers;
 import com.alibaba.dubbo.remoting.buffer.DynamicChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.PooledChannelBufferFactory;
 
 /**
  * GrizzlyCodecAdapter
@@ -61,9 +62,9 @@ public class GrizzlyCodecAdapter extends BaseFilter {
     public NextAction handleWrite(FilterChainContext context) throws IOException {
         Connection<?> connection = context.getConnection();
         GrizzlyChannel channel = GrizzlyChannel.getOrAddChannel(connection, url, handler);
+        // the message is copied out into a grizzly buffer, so the encode buffer goes back to the pool right away.
+        ChannelBuffer channelBuffer = ChannelBuffers.dynamicBuffer(1024, PooledChannelBufferFactory.getInstance());
         try {
-            ChannelBuffer channelBuffer = ChannelBuffers.dynamicBuffer(1024); // 不需要关闭
-            
             Object msg = context.getMessage();
             codec.encode(channel, channelBuffer, msg);
             
@@ -75,6 +76,7 @@ public class GrizzlyCodecAdapter extends BaseFilter {
             context.setMessage(buffer);
         } finally {
             GrizzlyChannel.removeChannelIfDisconnectd(connection);
+            ChannelBuffers.release(channelBuffer);
         }
         return context.getInvokeAction();
     }
@@ -58,6 +58,10 @@ public class NettyBackedChannelBuffer implements ChannelBuffer {
 
     @Override
     public void getBytes(int index, ChannelBuffer dst, int dstIndex, int length) {
+        if (dst instanceof NettyBackedChannelBuffer) {
+            buffer.getBytes(index, ((NettyBackedChannelBuffer) dst).buffer, dstIndex, length);
+            return;
+        }
         // careful
         byte[] data = new byte[length];
         buffer.getBytes(index, data, 0, length);
@@ -91,10 +95,14 @@ public class NettyBackedChannelBuffer implements ChannelBuffer {
 
     @Override
     public void setBytes(int index, ChannelBuffer src, int srcIndex, int length) {
+        if (src instanceof NettyBackedChannelBuffer) {
+            buffer.setBytes(index, ((NettyBackedChannelBuffer) src).buffer, srcIndex, length);
+            return;
+        }
         // careful
         byte[] data = new byte[length];
-        buffer.getBytes(srcIndex, data, 0, length);
-        setBytes(0, data, index, length);
+        src.getBytes(srcIndex, data, 0, length);
+        buffer.setBytes(index, data, 0, length);
     }
 
     @Override
@@ -348,6 +356,10 @@ public class NettyBackedChannelBuffer implements ChannelBuffer {
 
     @Override
     public void writeBytes(ChannelBuffer src, int srcIndex, int length) {
+        if (src instanceof NettyBackedChannelBuffer) {
+            buffer.writeBytes(((NettyBackedChannelBuffer) src).buffer, srcIndex, length);
+            return;
+        }
         // careful
         byte[] data = new byte[length];
         src.getBytes(srcIndex, data, 0, length);
@@ -29,6 +29,7 @@ import com.alibaba.dubbo.common.logger.LoggerFactory;
 import com.alibaba.dubbo.remoting.ChannelHandler;
 import com.alibaba.dubbo.remoting.RemotingException;
 import com.alibaba.dubbo.remoting.transport.AbstractChannel;
+import com.alibaba.dubbo.remoting.transport.FlushStatistics;
 
 /**
  * NettyChannel.
@@ -46,12 +47,23 @@ final class NettyChannel extends AbstractChannel {
 
     private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
 
+    // null if every message is written on its own.
+    private final NettyWriteQueue writeQueue;
+
     private NettyChannel(org.jboss.netty.channel.Channel channel, URL url, ChannelHandler handler){
         super(url, handler);
         if (channel == null) {
             throw new IllegalArgumentException("netty channel == null;");
         }
         this.channel = channel;
+        if (url.getParameter(Constants.WRITE_COALESCE_KEY, false)) {
+            writeQueue = new NettyWriteQueue(channel,
+                    url.getPositiveParameter(Constants.WRITE_BATCH_SIZE_KEY, Constants.DEFAULT_WRITE_BATCH_SIZE),
+                    url.getParameter(Constants.WRITE_BATCH_DELAY_KEY, Constants.DEFAULT_WRITE_BATCH_DELAY));
+            attributes.put(FlushStatistics.KEY, writeQueue.getStatistics());
+        } else {
+            writeQueue = null;
+        }
     }
 
     static NettyChannel getOrAddChannel(org.jboss.netty.channel.Channel ch, URL url, ChannelHandler handler) {
@@ -95,7 +107,7 @@ final class NettyChannel extends AbstractChannel {
         boolean success = true;
         int timeout = 0;
         try {
-            ChannelFuture future = channel.write(message);
+            ChannelFuture future = writeQueue != null ? writeQueue.write(message) : channel.write(message);
             if (sent) {
                 timeout = getUrl().getPositiveParameter(Constants.TIMEOUT_KEY, Constants.DEFAULT_TIMEOUT);
                 success = future.await(timeout);
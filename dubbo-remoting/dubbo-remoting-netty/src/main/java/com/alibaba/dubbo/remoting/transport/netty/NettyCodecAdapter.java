@@ -19,10 +19,17 @@ import java.io.IOException;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.CompositeChannelBuffer;
+import org.jboss.netty.buffer.DirectChannelBufferFactory;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandler;
 import org.jboss.netty.channel.ChannelHandler.Sharable;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelLocal;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
@@ -32,7 +39,8 @@ import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.remoting.Codec2;
-import com.alibaba.dubbo.remoting.buffer.DynamicChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.PooledChannelBufferFactory;
+import com.alibaba.dubbo.remoting.buffer.StreamingChannelBuffer;
 
 /**
  * NettyCodecAdapter.
@@ -41,6 +49,9 @@ import com.alibaba.dubbo.remoting.buffer.DynamicChannelBuffer;
  */
 final class NettyCodecAdapter {
 
+    // beyond this many inbound buffers a message is merged into one growing buffer, so small reads can not pile up.
+    private static final int     MAX_CUMULATION_COMPONENTS = 64;
+
     private final ChannelHandler encoder = new InternalEncoder();
     
     private final ChannelHandler decoder = new InternalDecoder();
@@ -50,6 +61,26 @@ final class NettyCodecAdapter {
     private final URL            url;
     
     private final int            bufferSize;
+
+    // null if the message is encoded into a dubbo buffer and copied out.
+    private final org.jboss.netty.buffer.ChannelBufferFactory encodeBufferFactory;
+
+    // whether the message is encoded into a buffer borrowed from the pool and returned once written.
+    private final boolean        pooledEncodeBuffer;
+
+    // whether the codec cuts a message into chunks, so that each chunk is written as soon as it is encoded.
+    private final boolean        streaming;
+
+    // the chunks of a message are written as they are encoded, so a channel encodes and writes one message at a time.
+    private final ChannelLocal<Object> writeLocks = new ChannelLocal<Object>(true) {
+        @Override
+        protected Object initialValue(Channel channel) {
+            return new Object();
+        }
+    };
+
+    // the size of the last encoded message, so that the encode buffer rarely needs to grow.
+    private volatile int         encodeSizeHint = 1024;
     
     private final com.alibaba.dubbo.remoting.ChannelHandler handler;
 
@@ -59,6 +90,17 @@ final class NettyCodecAdapter {
         this.handler = handler;
         int b = url.getPositiveParameter(Constants.BUFFER_KEY, Constants.DEFAULT_BUFFER_SIZE);
         this.bufferSize = b >= Constants.MIN_BUFFER_SIZE && b <= Constants.MAX_BUFFER_SIZE ? b : Constants.DEFAULT_BUFFER_SIZE;
+        String encodeBuffer = url.getParameter(Constants.ENCODE_BUFFER_KEY, Constants.DEFAULT_ENCODE_BUFFER);
+        if (Constants.ENCODE_BUFFER_DIRECT.equals(encodeBuffer)) {
+            // small direct buffers are sliced from preallocated chunks instead of being allocated one by one.
+            this.encodeBufferFactory = DirectChannelBufferFactory.getInstance();
+        } else if (Constants.ENCODE_BUFFER_HEAP.equals(encodeBuffer)) {
+            this.encodeBufferFactory = HeapChannelBufferFactory.getInstance();
+        } else {
+            this.encodeBufferFactory = null;
+        }
+        this.pooledEncodeBuffer = Constants.ENCODE_BUFFER_POOLED.equals(encodeBuffer);
+        this.streaming = url.getParameter(Constants.PAYLOAD_CHUNK_KEY, Constants.DEFAULT_PAYLOAD_CHUNK) > 0;
     }
 
     public ChannelHandler getEncoder() {
@@ -72,8 +114,78 @@ final class NettyCodecAdapter {
     @Sharable
     private class InternalEncoder extends OneToOneEncoder {
 
+        @Override
+        public void handleDownstream(ChannelHandlerContext ctx, ChannelEvent evt) throws Exception {
+            if (streaming && evt instanceof MessageEvent) {
+                // the chunks of concurrent messages, or a batch, would otherwise interleave on the wire.
+                synchronized (writeLocks.get(evt.getChannel())) {
+                    if (((MessageEvent) evt).getMessage() instanceof NettyWriteQueue.Batch) {
+                        super.handleDownstream(ctx, evt);
+                    } else {
+                        writeStreaming(ctx, (MessageEvent) evt);
+                    }
+                }
+            } else if (pooledEncodeBuffer && evt instanceof MessageEvent
+                    && ! (((MessageEvent) evt).getMessage() instanceof NettyWriteQueue.Batch)) {
+                writePooled(ctx, (MessageEvent) evt);
+            } else {
+                super.handleDownstream(ctx, evt);
+            }
+        }
+
+        // the pooled buffer is handed to the transport as is, and given back when the write completes.
+        private void writePooled(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            final com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer =
+                com.alibaba.dubbo.remoting.buffer.ChannelBuffers.dynamicBuffer(encodeSizeHint, PooledChannelBufferFactory.getInstance());
+            NettyChannel channel = NettyChannel.getOrAddChannel(e.getChannel(), url, handler);
+            boolean encoded = false;
+            try {
+                codec.encode(channel, buffer, e.getMessage());
+                encoded = true;
+            } finally {
+                NettyChannel.removeChannelIfDisconnected(e.getChannel());
+                if (! encoded) {
+                    com.alibaba.dubbo.remoting.buffer.ChannelBuffers.release(buffer);
+                }
+            }
+            int size = buffer.readableBytes();
+            if (size > 0) {
+                encodeSizeHint = size < bufferSize ? size : bufferSize;
+            }
+            e.getFuture().addListener(new ChannelFutureListener() {
+                public void operationComplete(ChannelFuture future) {
+                    com.alibaba.dubbo.remoting.buffer.ChannelBuffers.release(buffer);
+                }
+            });
+            Channels.write(ctx, e.getFuture(), ChannelBuffers.wrappedBuffer(
+                    buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), size), e.getRemoteAddress());
+        }
+
+        // the chunks encoded before the last one are written on their own, the last one completes the write.
+        private void writeStreaming(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            ChannelBuffer out = ChannelBuffers.dynamicBuffer(encodeSizeHint,
+                    encodeBufferFactory != null ? encodeBufferFactory : HeapChannelBufferFactory.getInstance());
+            NettyChannel channel = NettyChannel.getOrAddChannel(e.getChannel(), url, handler);
+            try {
+                codec.encode(channel, new StreamingBuffer(ctx, e, out), e.getMessage());
+            } finally {
+                NettyChannel.removeChannelIfDisconnected(e.getChannel());
+            }
+            int size = out.readableBytes();
+            if (size > 0) {
+                encodeSizeHint = size < bufferSize ? size : bufferSize;
+            }
+            Channels.write(ctx, e.getFuture(), out, e.getRemoteAddress());
+        }
+
         @Override
         protected Object encode(ChannelHandlerContext ctx, Channel ch, Object msg) throws Exception {
+            if (msg instanceof NettyWriteQueue.Batch) {
+                return encodeBatch(ch, (NettyWriteQueue.Batch) msg);
+            }
+            if (encodeBufferFactory != null) {
+                return encodeDirectly(ch, msg);
+            }
             com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer =
                 com.alibaba.dubbo.remoting.buffer.ChannelBuffers.dynamicBuffer(1024);
             NettyChannel channel = NettyChannel.getOrAddChannel(ch, url, handler);
@@ -84,12 +196,73 @@ final class NettyCodecAdapter {
             }
             return ChannelBuffers.wrappedBuffer(buffer.toByteBuffer());
         }
+
+        // the codec writes into the netty buffer which is handed to the transport as is.
+        private Object encodeDirectly(Channel ch, Object msg) throws Exception {
+            ChannelBuffer out = ChannelBuffers.dynamicBuffer(encodeSizeHint, encodeBufferFactory);
+            NettyChannel channel = NettyChannel.getOrAddChannel(ch, url, handler);
+            try {
+                codec.encode(channel, new NettyBackedChannelBuffer(out), msg);
+            } finally {
+                NettyChannel.removeChannelIfDisconnected(ch);
+            }
+            int size = out.readableBytes();
+            if (size > 0) {
+                encodeSizeHint = size < bufferSize ? size : bufferSize;
+            }
+            return out;
+        }
+
+        // all the messages go into one buffer, a message failing to encode fails alone.
+        private Object encodeBatch(Channel ch, NettyWriteQueue.Batch batch) throws Exception {
+            ChannelBuffer out = ChannelBuffers.dynamicBuffer(encodeSizeHint * batch.entries.size(),
+                    encodeBufferFactory != null ? encodeBufferFactory : HeapChannelBufferFactory.getInstance());
+            com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer = new NettyBackedChannelBuffer(out);
+            NettyChannel channel = NettyChannel.getOrAddChannel(ch, url, handler);
+            try {
+                for (NettyWriteQueue.Entry entry : batch.entries) {
+                    int writerIndex = out.writerIndex();
+                    try {
+                        codec.encode(channel, buffer, entry.message);
+                    } catch (Throwable t) {
+                        out.writerIndex(writerIndex);
+                        entry.future.setFailure(t);
+                    }
+                }
+            } finally {
+                NettyChannel.removeChannelIfDisconnected(ch);
+            }
+            batch.bytes = out.readableBytes();
+            return out;
+        }
+    }
+
+    private static final class StreamingBuffer extends NettyBackedChannelBuffer implements StreamingChannelBuffer {
+
+        private final ChannelHandlerContext ctx;
+
+        private final MessageEvent          event;
+
+        StreamingBuffer(ChannelHandlerContext ctx, MessageEvent event, ChannelBuffer buffer) {
+            super(buffer);
+            this.ctx = ctx;
+            this.event = event;
+        }
+
+        public void flush() throws IOException {
+            ChannelBuffer buffer = nettyChannelBuffer();
+            Channels.write(ctx, Channels.future(event.getChannel()), ChannelBuffers.copiedBuffer(buffer), event.getRemoteAddress());
+            buffer.clear();
+        }
     }
 
     private class InternalDecoder extends SimpleChannelUpstreamHandler {
 
-        private com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer =
-            com.alibaba.dubbo.remoting.buffer.ChannelBuffers.EMPTY_BUFFER;
+        // the undecoded bytes of the previous reads, the inbound buffers are referenced instead of copied.
+        private ChannelBuffer cumulation = ChannelBuffers.EMPTY_BUFFER;
+
+        // whether the cumulation is a growing buffer owned by the decoder rather than a view of the inbound buffers.
+        private boolean       merged;
 
         @Override
         public void messageReceived(ChannelHandlerContext ctx, MessageEvent event) throws Exception {
@@ -105,22 +278,8 @@ final class NettyCodecAdapter {
                 return;
             }
 
-            com.alibaba.dubbo.remoting.buffer.ChannelBuffer message;
-            if (buffer.readable()) {
-                if (buffer instanceof DynamicChannelBuffer) {
-                    buffer.writeBytes(input.toByteBuffer());
-                    message = buffer;
-                } else {
-                    int size = buffer.readableBytes() + input.readableBytes();
-                    message = com.alibaba.dubbo.remoting.buffer.ChannelBuffers.dynamicBuffer(
-                        size > bufferSize ? size : bufferSize);
-                    message.writeBytes(buffer, buffer.readableBytes());
-                    message.writeBytes(input.toByteBuffer());
-                }
-            } else {
-                message = com.alibaba.dubbo.remoting.buffer.ChannelBuffers.wrappedBuffer(
-                    input.toByteBuffer());
-            }
+            ChannelBuffer cumulated = cumulate(input);
+            com.alibaba.dubbo.remoting.buffer.ChannelBuffer message = new NettyBackedChannelBuffer(cumulated);
 
             NettyChannel channel = NettyChannel.getOrAddChannel(ctx.getChannel(), url, handler);
             Object msg;
@@ -133,7 +292,7 @@ final class NettyCodecAdapter {
                     try {
                         msg = codec.decode(channel, message);
                     } catch (IOException e) {
-                        buffer = com.alibaba.dubbo.remoting.buffer.ChannelBuffers.EMPTY_BUFFER;
+                        cumulated.skipBytes(cumulated.readableBytes());
                         throw e;
                     }
                     if (msg == Codec2.DecodeResult.NEED_MORE_INPUT) {
@@ -141,7 +300,7 @@ final class NettyCodecAdapter {
                         break;
                     } else {
                         if (saveReaderIndex == message.readerIndex()) {
-                            buffer = com.alibaba.dubbo.remoting.buffer.ChannelBuffers.EMPTY_BUFFER;
+                            cumulated.skipBytes(cumulated.readableBytes());
                             throw new IOException("Decode without read data.");
                         }
                         if (msg != null) {
@@ -150,16 +309,41 @@ final class NettyCodecAdapter {
                     }
                 } while (message.readable());
             } finally {
-                if (message.readable()) {
-                    message.discardReadBytes();
-                    buffer = message;
+                if (! cumulated.readable()) {
+                    cumulation = ChannelBuffers.EMPTY_BUFFER;
+                    merged = false;
+                } else if (merged) {
+                    cumulated.discardReadBytes();
+                    cumulation = cumulated;
                 } else {
-                    buffer = com.alibaba.dubbo.remoting.buffer.ChannelBuffers.EMPTY_BUFFER;
+                    // keep a view of the unread bytes only, the inbound buffers read through are dropped.
+                    cumulation = cumulated.slice(cumulated.readerIndex(), cumulated.readableBytes());
                 }
                 NettyChannel.removeChannelIfDisconnected(ctx.getChannel());
             }
         }
 
+        private ChannelBuffer cumulate(ChannelBuffer input) {
+            if (! cumulation.readable()) {
+                return input;
+            }
+            if (merged) {
+                cumulation.writeBytes(input);
+                return cumulation;
+            }
+            if (cumulation instanceof CompositeChannelBuffer
+                    && ((CompositeChannelBuffer) cumulation).numComponents() >= MAX_CUMULATION_COMPONENTS) {
+                int size = cumulation.readableBytes() + input.readableBytes();
+                ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(size > bufferSize ? size << 1 : bufferSize);
+                buffer.writeBytes(cumulation);
+                buffer.writeBytes(input);
+                merged = true;
+                return buffer;
+            }
+            // a composite of the leftover and the input, no bytes are copied.
+            return ChannelBuffers.wrappedBuffer(cumulation, input);
+        }
+
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
             ctx.sendUpstream(e);
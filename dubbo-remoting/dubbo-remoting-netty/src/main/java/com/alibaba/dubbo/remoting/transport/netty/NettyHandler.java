@@ -99,7 +99,19 @@ public class NettyHandler extends SimpleChannelHandler {
         super.writeRequested(ctx, e);
         NettyChannel channel = NettyChannel.getOrAddChannel(ctx.getChannel(), url, handler);
         try {
-            handler.sent(channel, e.getMessage());
+            if (e.getMessage() instanceof NettyWriteQueue.Batch) {
+                // a message which failed to encode is left out of the batch, it fails as if written alone.
+                for (NettyWriteQueue.Entry entry : ((NettyWriteQueue.Batch) e.getMessage()).entries) {
+                    Throwable cause = entry.future.getCause();
+                    if (cause == null) {
+                        handler.sent(channel, entry.message);
+                    } else {
+                        handler.caught(channel, cause);
+                    }
+                }
+            } else {
+                handler.sent(channel, e.getMessage());
+            }
         } finally {
             NettyChannel.removeChannelIfDisconnected(ctx.getChannel());
         }
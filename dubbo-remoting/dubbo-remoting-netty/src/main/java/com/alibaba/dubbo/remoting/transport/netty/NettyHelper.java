@@ -15,19 +15,42 @@
  */
 package com.alibaba.dubbo.remoting.transport.netty;
 
+import org.jboss.netty.logging.AbstractInternalLogger;
+import org.jboss.netty.logging.InternalLogger;
+import org.jboss.netty.logging.InternalLoggerFactory;
 
+import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.logger.Logger;
 import com.alibaba.dubbo.common.logger.LoggerFactory;
-
-import io.netty.util.internal.logging.AbstractInternalLogger;
-import io.netty.util.internal.logging.InternalLogger;
-import io.netty.util.internal.logging.InternalLoggerFactory;
+import com.alibaba.dubbo.common.utils.ConfigUtils;
 
 /**
  * @author <a href="mailto:gang.lvg@taobao.com">kimi</a>
  */
 final class NettyHelper {
 
+    private static final Logger logger = LoggerFactory.getLogger(NettyHelper.class);
+
+    /**
+     * @return the size of the io thread group shared by all the clients of the jvm.
+     * @see Constants#CLIENT_IO_THREADS_KEY
+     */
+    static int getClientIoThreads() {
+        String value = ConfigUtils.getProperty(Constants.CLIENT_IO_THREADS_KEY);
+        if (value != null && value.trim().length() > 0) {
+            try {
+                int threads = Integer.parseInt(value.trim());
+                if (threads > 0) {
+                    return threads;
+                }
+            } catch (NumberFormatException e) {
+                // fall through.
+            }
+            logger.warn("Illegal " + Constants.CLIENT_IO_THREADS_KEY + " " + value + ", use " + Constants.DEFAULT_IO_THREADS + " instead.");
+        }
+        return Constants.DEFAULT_IO_THREADS;
+    }
+
     public static void setNettyLoggerFactory() {
         InternalLoggerFactory factory = InternalLoggerFactory.getDefaultFactory();
         if (factory == null || !(factory instanceof DubboLoggerFactory)) {
@@ -48,7 +71,6 @@ final class NettyHelper {
         private Logger logger;
 
         DubboLogger(String name) {
-        	super(name);
             this.logger = LoggerFactory.getLogger(name);
         }
 
@@ -104,114 +126,6 @@ final class NettyHelper {
         public String toString() {
             return logger.toString();
         }
-
-		@Override
-		public boolean isTraceEnabled() {
-			// TODO Auto-generated method stub
-			return false;
-		}
-
-		@Override
-		public void trace(String msg) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void trace(String format, Object arg) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void trace(String format, Object argA, Object argB) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void trace(String format, Object... arguments) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void trace(String msg, Throwable t) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void debug(String format, Object arg) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void debug(String format, Object argA, Object argB) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void debug(String format, Object... arguments) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void info(String format, Object arg) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void info(String format, Object argA, Object argB) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void info(String format, Object... arguments) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void warn(String format, Object arg) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void warn(String format, Object... arguments) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void warn(String format, Object argA, Object argB) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void error(String format, Object arg) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void error(String format, Object argA, Object argB) {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public void error(String format, Object... arguments) {
-			// TODO Auto-generated method stub
-			
-		}
     }
 
 }
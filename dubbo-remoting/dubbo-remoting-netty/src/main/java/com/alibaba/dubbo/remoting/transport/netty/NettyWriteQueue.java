@@ -0,0 +1,168 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.netty;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.Channels;
+
+import com.alibaba.dubbo.common.timer.HashedWheelTimer;
+import com.alibaba.dubbo.common.timer.Timeout;
+import com.alibaba.dubbo.common.timer.Timer;
+import com.alibaba.dubbo.common.timer.TimerTask;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
+import com.alibaba.dubbo.remoting.transport.FlushStatistics;
+
+/**
+ * Coalesces the writes of a channel: the queued messages are encoded into one buffer and written at once,
+ * instead of one system call per message.
+ * <p>
+ * Whichever sender finds the queue idle drains it, picking up the messages queued by the other senders
+ * in the meantime. With a max delay, the queue is drained once a batch is full or the delay has passed.
+ */
+final class NettyWriteQueue {
+
+    private static final Timer FLUSH_TIMER = new HashedWheelTimer(
+            new NamedThreadFactory("DubboWriteFlushTimer", true), 1, TimeUnit.MILLISECONDS);
+
+    private final Channel          channel;
+
+    private final int              maxBatchSize;
+
+    private final int              maxDelay;
+
+    private final FlushStatistics  statistics = new FlushStatistics();
+
+    private final Queue<Entry>     queue      = new ConcurrentLinkedQueue<Entry>();
+
+    private final AtomicInteger    pending    = new AtomicInteger();
+
+    private final AtomicBoolean    flushing   = new AtomicBoolean();
+
+    private final AtomicBoolean    scheduled  = new AtomicBoolean();
+
+    private final TimerTask        flushTask  = new TimerTask() {
+        public void run(Timeout timeout) {
+            scheduled.set(false);
+            flush();
+        }
+    };
+
+    NettyWriteQueue(Channel channel, int maxBatchSize, int maxDelay) {
+        this.channel = channel;
+        this.maxBatchSize = maxBatchSize > 0 ? maxBatchSize : 1;
+        this.maxDelay = maxDelay;
+    }
+
+    FlushStatistics getStatistics() {
+        return statistics;
+    }
+
+    ChannelFuture write(Object message) {
+        Entry entry = new Entry(message, Channels.future(channel));
+        queue.offer(entry);
+        if (maxDelay <= 0 || pending.incrementAndGet() >= maxBatchSize) {
+            flush();
+        } else if (scheduled.compareAndSet(false, true)) {
+            FLUSH_TIMER.newTimeout(flushTask, maxDelay, TimeUnit.MILLISECONDS);
+        }
+        return entry.future;
+    }
+
+    void flush() {
+        // re-check after releasing the flag, a message queued while flushing must not be left behind.
+        while (! queue.isEmpty() && flushing.compareAndSet(false, true)) {
+            try {
+                Batch batch = new Batch(maxBatchSize);
+                Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    if (maxDelay > 0) {
+                        pending.decrementAndGet();
+                    }
+                    batch.entries.add(entry);
+                    if (batch.entries.size() >= maxBatchSize) {
+                        write(batch);
+                        batch = new Batch(maxBatchSize);
+                    }
+                }
+                if (! batch.entries.isEmpty()) {
+                    write(batch);
+                }
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    private void write(final Batch batch) {
+        channel.write(batch).addListener(new ChannelFutureListener() {
+            public void operationComplete(ChannelFuture future) {
+                if (future.isSuccess()) {
+                    statistics.flushed(batch.entries.size(), batch.bytes);
+                    for (Entry entry : batch.entries) {
+                        entry.future.setSuccess();
+                    }
+                } else {
+                    Throwable cause = future.getCause();
+                    if (cause == null) {
+                        cause = new IOException("Write of " + batch.entries.size() + " messages to " + channel + " cancelled");
+                    }
+                    for (Entry entry : batch.entries) {
+                        entry.future.setFailure(cause);
+                    }
+                }
+            }
+        });
+    }
+
+    static final class Entry {
+
+        final Object        message;
+
+        final ChannelFuture future;
+
+        Entry(Object message, ChannelFuture future) {
+            this.message = message;
+            this.future = future;
+        }
+    }
+
+    /**
+     * The messages written by one flush, encoded into a single buffer.
+     */
+    static final class Batch {
+
+        final List<Entry> entries;
+
+        // the encoded size, set by the encoder.
+        volatile int      bytes;
+
+        Batch(int size) {
+            this.entries = new ArrayList<Entry>(size);
+        }
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.netty;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelDownstreamHandler;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.ChannelUpstreamHandler;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.Codec2;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.buffer.StreamingChannelBuffer;
+import com.alibaba.dubbo.remoting.transport.ChannelHandlerAdapter;
+
+public class NettyCodecAdapterTest {
+
+    // a frame is the length of the message followed by the message.
+    private static class LengthCodec implements Codec2 {
+
+        public void encode(Channel channel, com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer, Object message) throws IOException {
+            byte[] data = ((String) message).getBytes("UTF-8");
+            buffer.writeBytes(new byte[] {(byte) (data.length >>> 24), (byte) (data.length >>> 16), (byte) (data.length >>> 8), (byte) data.length});
+            buffer.writeBytes(data);
+        }
+
+        public Object decode(Channel channel, com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer) throws IOException {
+            if (buffer.readableBytes() < 4) {
+                return DecodeResult.NEED_MORE_INPUT;
+            }
+            int index = buffer.readerIndex();
+            int length = (buffer.getByte(index) & 0xff) << 24 | (buffer.getByte(index + 1) & 0xff) << 16
+                    | (buffer.getByte(index + 2) & 0xff) << 8 | (buffer.getByte(index + 3) & 0xff);
+            if (buffer.readableBytes() < length + 4) {
+                return DecodeResult.NEED_MORE_INPUT;
+            }
+            buffer.skipBytes(4);
+            byte[] data = new byte[length];
+            buffer.readBytes(data);
+            return new String(data, "UTF-8");
+        }
+    }
+
+    // each character is written on its own, as the chunks of a large message.
+    private static class StreamingCodec extends LengthCodec {
+
+        @Override
+        public void encode(Channel channel, com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer, Object message) throws IOException {
+            for (char c : ((String) message).toCharArray()) {
+                buffer.writeByte(c);
+                if (buffer instanceof StreamingChannelBuffer) {
+                    ((StreamingChannelBuffer) buffer).flush();
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    private static final URL url = URL.valueOf("dubbo://127.0.0.1:20880");
+
+    private static NettyCodecAdapter newAdapter(URL url) {
+        return new NettyCodecAdapter(new LengthCodec(), url, new ChannelHandlerAdapter());
+    }
+
+    private static DecoderEmbedder<Object> newDecoder() {
+        return new DecoderEmbedder<Object>((ChannelUpstreamHandler) newAdapter(url).getDecoder());
+    }
+
+    // the frames written by the encoder of the url, as one buffer.
+    private static ChannelBuffer encode(URL url, String... messages) {
+        EncoderEmbedder<ChannelBuffer> encoder = new EncoderEmbedder<ChannelBuffer>(
+                (ChannelDownstreamHandler) newAdapter(url).getEncoder());
+        for (String message : messages) {
+            encoder.offer(message);
+        }
+        Assert.assertTrue(encoder.finish());
+        ChannelBuffer out = ChannelBuffers.dynamicBuffer();
+        ChannelBuffer buffer;
+        while ((buffer = encoder.poll()) != null) {
+            out.writeBytes(buffer);
+        }
+        return out;
+    }
+
+    private static ChannelBuffer frames(String... messages) throws IOException {
+        com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer = com.alibaba.dubbo.remoting.buffer.ChannelBuffers.dynamicBuffer(64);
+        for (String message : messages) {
+            new LengthCodec().encode(null, buffer, message);
+        }
+        return ChannelBuffers.wrappedBuffer(buffer.toByteBuffer());
+    }
+
+    private static String message(int length) {
+        StringBuilder buf = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            buf.append((char) ('a' + i % 26));
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void testDecodeFramesOfOneRead() throws Exception {
+        DecoderEmbedder<Object> decoder = newDecoder();
+        decoder.offer(frames("hello", "world"));
+        Assert.assertEquals("hello", decoder.poll());
+        Assert.assertEquals("world", decoder.poll());
+        Assert.assertNull(decoder.poll());
+    }
+
+    @Test
+    public void testDecodeFrameSplitAcrossReads() throws Exception {
+        String large = message(10000);
+        ChannelBuffer input = frames("hello", large, "world");
+        DecoderEmbedder<Object> decoder = newDecoder();
+        while (input.readable()) {
+            decoder.offer(input.readBytes(Math.min(1000, input.readableBytes())));
+        }
+        Assert.assertEquals("hello", decoder.poll());
+        Assert.assertEquals(large, decoder.poll());
+        Assert.assertEquals("world", decoder.poll());
+        Assert.assertNull(decoder.poll());
+    }
+
+    @Test
+    public void testDecodeFrameOfManySmallReads() throws Exception {
+        // more reads than the components a cumulation may reference.
+        String large = message(1000);
+        ChannelBuffer input = frames(large, "tail");
+        DecoderEmbedder<Object> decoder = newDecoder();
+        while (input.readable()) {
+            decoder.offer(input.readBytes(Math.min(3, input.readableBytes())));
+        }
+        Assert.assertEquals(large, decoder.poll());
+        Assert.assertEquals("tail", decoder.poll());
+        Assert.assertNull(decoder.poll());
+    }
+
+    @Test
+    public void testRoundTripInEachEncodeBuffer() throws Exception {
+        String large = message(10000);
+        for (String encodeBuffer : new String[] {Constants.ENCODE_BUFFER_COPY, Constants.ENCODE_BUFFER_HEAP,
+                Constants.ENCODE_BUFFER_DIRECT}) {
+            ChannelBuffer input = encode(url.addParameter(Constants.ENCODE_BUFFER_KEY, encodeBuffer), "hello", large, "world");
+            Assert.assertEquals(frames("hello", large, "world"), input);
+            DecoderEmbedder<Object> decoder = newDecoder();
+            decoder.offer(input);
+            Assert.assertEquals("hello", decoder.poll());
+            Assert.assertEquals(large, decoder.poll());
+            Assert.assertEquals("world", decoder.poll());
+            Assert.assertNull(decoder.poll());
+        }
+    }
+
+    @Test
+    public void testRoundTripInSmallReads() throws Exception {
+        // the frames are cumulated as views of the reads first, then merged into one buffer.
+        String[] messages = new String[20];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = message(i * 50);
+        }
+        ChannelBuffer input = encode(url.addParameter(Constants.ENCODE_BUFFER_KEY, Constants.ENCODE_BUFFER_DIRECT), messages);
+        DecoderEmbedder<Object> decoder = newDecoder();
+        while (input.readable()) {
+            decoder.offer(input.readBytes(Math.min(7, input.readableBytes())));
+        }
+        for (String message : messages) {
+            Assert.assertEquals(message, decoder.poll());
+        }
+        Assert.assertNull(decoder.poll());
+    }
+
+    @Test
+    public void testBatchSentForEncodedMessagesOnly() throws Exception {
+        final List<Object> sent = new ArrayList<Object>();
+        final List<Throwable> caught = new ArrayList<Throwable>();
+        ChannelHandlerAdapter handler = new ChannelHandlerAdapter() {
+            @Override
+            public void sent(Channel channel, Object message) throws RemotingException {
+                sent.add(message);
+            }
+            @Override
+            public void caught(Channel channel, Throwable exception) throws RemotingException {
+                caught.add(exception);
+            }
+        };
+        NettyCodecAdapter adapter = new NettyCodecAdapter(new LengthCodec(), url, handler);
+        // the embedded channel has no socket address to connect.
+        NettyHandler nettyHandler = new NettyHandler(url, handler) {
+            @Override
+            public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
+            }
+        };
+        EncoderEmbedder<ChannelBuffer> encoder = new EncoderEmbedder<ChannelBuffer>(
+                (ChannelDownstreamHandler) adapter.getEncoder(), nettyHandler);
+        NettyWriteQueue.Batch batch = new NettyWriteQueue.Batch(3);
+        // the codec can not encode anything else than a string.
+        for (Object message : new Object[] {"hello", Integer.valueOf(1), "world"}) {
+            batch.entries.add(new NettyWriteQueue.Entry(message, new DefaultChannelFuture(null, false)));
+        }
+        encoder.offer(batch);
+        Assert.assertEquals(frames("hello", "world"), encoder.poll());
+        Assert.assertEquals(Arrays.asList("hello", "world"), sent);
+        Assert.assertEquals(1, caught.size());
+        Assert.assertSame(caught.get(0), batch.entries.get(1).future.getCause());
+    }
+
+    @Test
+    public void testStreamingMessagesOfOneChannelDoNotInterleave() throws Exception {
+        NettyCodecAdapter adapter = new NettyCodecAdapter(new StreamingCodec(),
+                url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1), new ChannelHandlerAdapter());
+        final EncoderEmbedder<ChannelBuffer> encoder = new EncoderEmbedder<ChannelBuffer>(
+                (ChannelDownstreamHandler) adapter.getEncoder());
+        final String[] messages = {message(500).toUpperCase(), message(500)};
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[messages.length];
+        for (int i = 0; i < threads.length; i++) {
+            final String message = messages[i];
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    encoder.offer(message);
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        ChannelBuffer out = ChannelBuffers.dynamicBuffer();
+        ChannelBuffer buffer;
+        while ((buffer = encoder.poll()) != null) {
+            out.writeBytes(buffer);
+        }
+        String written = out.toString(Charset.forName("UTF-8"));
+        Assert.assertTrue(written.equals(messages[0] + messages[1]) || written.equals(messages[1] + messages[0]));
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.netty4;
+
+import java.util.Map;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import com.alibaba.dubbo.common.extension.Activate;
+import com.alibaba.dubbo.common.status.Status;
+import com.alibaba.dubbo.common.status.StatusChecker;
+import com.alibaba.dubbo.remoting.transport.netty4.NettyEventLoopFactory.SharedGroup;
+
+/**
+ * Shows the utilisation of the shared netty 4 event loop groups. A loop with pending tasks is busy,
+ * the status warns when all the loops of a group are.
+ */
+@Activate
+public class EventLoopStatusChecker implements StatusChecker {
+
+    public Status check() {
+        Map<String, SharedGroup> groups = NettyEventLoopFactory.getSharedGroups();
+        StringBuilder msg = new StringBuilder();
+        Status.Level level = Status.Level.OK;
+        for (Map.Entry<String, SharedGroup> entry : groups.entrySet()) {
+            SharedGroup shared = entry.getValue();
+            int threads = 0;
+            int busy = 0;
+            int pending = 0;
+            for (EventExecutor executor : shared.group) {
+                threads ++;
+                if (executor instanceof SingleThreadEventExecutor) {
+                    int tasks = ((SingleThreadEventExecutor) executor).pendingTasks();
+                    if (tasks > 0) {
+                        busy ++;
+                        pending += tasks;
+                    }
+                }
+            }
+            Status.Level lvl = Status.Level.OK;
+            if (threads > 0 && busy == threads) {
+                level = Status.Level.WARN;
+                lvl = Status.Level.WARN;
+            }
+            if (msg.length() > 0) {
+                msg.append(";");
+            }
+            msg.append("Event loop group " + entry.getKey()
+                    + " status:" + lvl
+                    + ", threads:" + threads
+                    + ", busy:" + busy
+                    + ", pending:" + pending
+                    + ", endpoints:" + shared.references);
+        }
+        return msg.length() == 0 ? new Status(Status.Level.UNKNOWN) : new Status(level, msg.toString());
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.netty4;
+
+import java.io.IOException;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.Codec2;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.StreamingChannelBuffer;
+
+/**
+ * NettyCodecAdapter of netty 4, the codec reads and writes the netty buffers in place.
+ */
+final class NettyCodecAdapter {
+
+    private final ChannelHandler encoder = new InternalEncoder();
+    
+    private final ChannelHandler decoder = new InternalDecoder();
+
+    private final Codec2         codec;
+    
+    private final URL            url;
+
+    // whether the codec cuts a message into chunks, so that each chunk is written as soon as it is encoded.
+    private final boolean        streaming;
+    
+    private final com.alibaba.dubbo.remoting.ChannelHandler handler;
+
+    public NettyCodecAdapter(Codec2 codec, URL url, com.alibaba.dubbo.remoting.ChannelHandler handler) {
+        this.codec = codec;
+        this.url = url;
+        this.handler = handler;
+        this.streaming = url.getParameter(Constants.PAYLOAD_CHUNK_KEY, Constants.DEFAULT_PAYLOAD_CHUNK) > 0;
+    }
+
+    public ChannelHandler getEncoder() {
+        return encoder;
+    }
+
+    public ChannelHandler getDecoder() {
+        return decoder;
+    }
+
+    private class InternalEncoder extends MessageToByteEncoder<Object> {
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+            io.netty.channel.Channel ch = ctx.channel();
+            NettyChannel channel = NettyChannel.getOrAddChannel(ch, url, handler);
+            try {
+                codec.encode(channel, streaming ? new StreamingBuffer(ctx, out) : new NettyBackedChannelBuffer(out), msg);
+            } finally {
+                NettyChannel.removeChannelIfDisconnected(ch);
+            }
+        }
+    }
+
+    // the chunks encoded before the last one are written on their own, the encoder writes the last one.
+    private static final class StreamingBuffer extends NettyBackedChannelBuffer implements StreamingChannelBuffer {
+
+        private final ChannelHandlerContext ctx;
+
+        private final ByteBuf               buffer;
+
+        StreamingBuffer(ChannelHandlerContext ctx, ByteBuf buffer) {
+            super(buffer);
+            this.ctx = ctx;
+            this.buffer = buffer;
+        }
+
+        public void flush() throws IOException {
+            ctx.writeAndFlush(buffer.readBytes(buffer.readableBytes()));
+            buffer.clear();
+        }
+    }
+
+    private class InternalDecoder extends ByteToMessageDecoder {
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf input, List<Object> out) throws Exception {
+            ChannelBuffer message = new NettyBackedChannelBuffer(input);
+
+            NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, handler);
+            Object msg;
+            int saveReaderIndex;
+
+            try {
+                // decode object.
+                do {
+                    saveReaderIndex = message.readerIndex();
+                    msg = codec.decode(channel, message);
+                    if (msg == Codec2.DecodeResult.NEED_MORE_INPUT) {
+                        message.readerIndex(saveReaderIndex);
+                        break;
+                    } else {
+                        if (saveReaderIndex == message.readerIndex()) {
+                            throw new IOException("Decode without read data.");
+                        }
+                        if (msg != null) {
+                            out.add(msg);
+                        }
+                    }
+                } while (message.readable());
+            } finally {
+                NettyChannel.removeChannelIfDisconnected(ctx.channel());
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.netty4;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+
+/**
+ * Creates the event loops and channels of either the native epoll transport or the nio transport.
+ * <p>
+ * The event loop groups are shared jvm wide and reference counted, the last endpoint releasing a group shuts
+ * it down. The servers share a boss and a worker group, the worker group is sized by the <code>iothreads</code>
+ * of the server that creates it. The clients share their own group, sized by <code>dubbo.client.iothreads</code>.
+ * 
+ * @see Constants#EPOLL_KEY
+ * @see Constants#IO_THREADS_KEY
+ * @see Constants#CLIENT_IO_THREADS_KEY
+ */
+final class NettyEventLoopFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettyEventLoopFactory.class);
+
+    private static volatile boolean unavailableLogged;
+
+    private static final Map<String, SharedGroup> SHARED_GROUPS = new HashMap<String, SharedGroup>();
+
+    private NettyEventLoopFactory() {
+    }
+
+    /**
+     * @return whether the url asks for epoll and the native transport could be loaded, nio is used otherwise.
+     */
+    static boolean shouldEpoll(URL url) {
+        if (! url.getParameter(Constants.EPOLL_KEY, false)) {
+            return false;
+        }
+        boolean available;
+        try {
+            available = Epoll.isAvailable();
+        } catch (Throwable t) {
+            available = false;
+        }
+        if (! available && ! unavailableLogged) {
+            unavailableLogged = true;
+            logger.warn("The native epoll transport is unavailable, fall back to nio. url: " + url, unavailabilityCause());
+        }
+        return available;
+    }
+
+    private static Throwable unavailabilityCause() {
+        try {
+            return Epoll.unavailabilityCause();
+        } catch (Throwable t) {
+            return t;
+        }
+    }
+
+    static EventLoopGroup eventLoopGroup(boolean epoll, int threads, String threadName) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(threadName, true);
+        return epoll ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    /**
+     * Acquires the shared boss group, release it by {@link #releaseGroup(EventLoopGroup)}.
+     */
+    static EventLoopGroup acquireBossGroup(boolean epoll) {
+        return acquireGroup(epoll, 1, "NettyServerBoss");
+    }
+
+    /**
+     * Acquires the shared worker group of the servers, release it by {@link #releaseGroup(EventLoopGroup)}.
+     * 
+     * @param threads the size of the group if it is not yet created.
+     */
+    static EventLoopGroup acquireWorkerGroup(boolean epoll, int threads) {
+        return acquireGroup(epoll, threads, "NettyServerWorker");
+    }
+
+    /**
+     * Acquires the group shared by all the clients, release it by {@link #releaseGroup(EventLoopGroup)}.
+     */
+    static EventLoopGroup acquireClientGroup(boolean epoll) {
+        return acquireGroup(epoll, NettyHelper.getClientIoThreads(), "NettyClientWorker");
+    }
+
+    /**
+     * @return a snapshot of the shared groups, by the name of the group.
+     */
+    static synchronized Map<String, SharedGroup> getSharedGroups() {
+        return new HashMap<String, SharedGroup>(SHARED_GROUPS);
+    }
+
+    private static synchronized EventLoopGroup acquireGroup(boolean epoll, int threads, String threadName) {
+        String key = (epoll ? "epoll-" : "nio-") + threadName;
+        SharedGroup shared = SHARED_GROUPS.get(key);
+        if (shared == null) {
+            shared = new SharedGroup(eventLoopGroup(epoll, threads, threadName));
+            SHARED_GROUPS.put(key, shared);
+            if (logger.isInfoEnabled()) {
+                logger.info("Create shared netty event loop group " + key + " with " + threads + " threads.");
+            }
+        }
+        shared.references ++;
+        return shared.group;
+    }
+
+    static synchronized void releaseGroup(EventLoopGroup group) {
+        if (group == null) {
+            return;
+        }
+        for (Map.Entry<String, SharedGroup> entry : SHARED_GROUPS.entrySet()) {
+            SharedGroup shared = entry.getValue();
+            if (shared.group == group) {
+                if (-- shared.references == 0) {
+                    SHARED_GROUPS.remove(entry.getKey());
+                    group.shutdownGracefully();
+                    if (logger.isInfoEnabled()) {
+                        logger.info("Shutdown shared netty event loop group " + entry.getKey() + ", no endpoint uses it.");
+                    }
+                }
+                return;
+            }
+        }
+        // not a shared group.
+        group.shutdownGracefully();
+    }
+
+    static Class<? extends SocketChannel> socketChannelClass(boolean epoll) {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    static Class<? extends ServerSocketChannel> serverSocketChannelClass(boolean epoll) {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /**
+     * Applies the socket options only the epoll transport has, for a server bootstrap of the epoll transport.
+     */
+    static void configure(ServerBootstrap bootstrap, URL url) {
+        if (url.getParameter(Constants.REUSEPORT_KEY, false)) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, Boolean.TRUE);
+        }
+        if (url.getParameter(Constants.TCP_QUICKACK_KEY, false)) {
+            bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, Boolean.TRUE);
+        }
+        bootstrap.childOption(EpollChannelOption.EPOLL_MODE, epollMode(url));
+    }
+
+    /**
+     * Applies the socket options only the epoll transport has, for a client bootstrap of the epoll transport.
+     */
+    static void configure(Bootstrap bootstrap, URL url) {
+        if (url.getParameter(Constants.TCP_QUICKACK_KEY, false)) {
+            bootstrap.option(EpollChannelOption.TCP_QUICKACK, Boolean.TRUE);
+        }
+        bootstrap.option(EpollChannelOption.EPOLL_MODE, epollMode(url));
+    }
+
+    private static EpollMode epollMode(URL url) {
+        return Constants.EPOLL_MODE_LEVEL.equals(url.getParameter(Constants.EPOLL_MODE_KEY, Constants.DEFAULT_EPOLL_MODE))
+                ? EpollMode.LEVEL_TRIGGERED : EpollMode.EDGE_TRIGGERED;
+    }
+
+    static final class SharedGroup {
+
+        final EventLoopGroup group;
+
+        // the endpoints using the group.
+        volatile int         references;
+
+        SharedGroup(EventLoopGroup group) {
+            this.group = group;
+        }
+
+    }
+
+}
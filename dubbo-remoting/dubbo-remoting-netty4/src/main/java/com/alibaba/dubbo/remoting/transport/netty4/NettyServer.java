@@ -0,0 +1,181 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.netty4;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.ExecutorUtil;
+import com.alibaba.dubbo.common.utils.NetUtils;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.Server;
+import com.alibaba.dubbo.remoting.transport.AbstractServer;
+import com.alibaba.dubbo.remoting.transport.dispatcher.ChannelHandlers;
+
+/**
+ * NettyServer of netty 4.
+ * <p>
+ * The event loops are shared with the other servers of the jvm, see {@link NettyEventLoopFactory}.
+ * <p>
+ * With the epoll transport and <code>reuseport=true</code>, <code>acceptors</code> server sockets are bound
+ * to the same port, the kernel spreads the connections over them and each one accepts in its own loop.
+ */
+public class NettyServer extends AbstractServer implements Server {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NettyServer.class);
+
+    private Map<String, Channel>  channels; // <ip:port, channel>
+
+    private ServerBootstrap                 bootstrap;
+
+    private List<io.netty.channel.Channel>  serverChannels;
+
+    private EventLoopGroup                  bossGroup;
+
+    private EventLoopGroup                  workerGroup;
+
+    public NettyServer(URL url, ChannelHandler handler) throws RemotingException{
+        super(url, ChannelHandlers.wrap(handler, ExecutorUtil.setThreadName(url, SERVER_THREAD_POOL_NAME)));
+    }
+
+    @Override
+    protected void doOpen() throws Throwable {
+        NettyHelper.setNettyLoggerFactory();
+        final URL url = getUrl();
+        boolean epoll = NettyEventLoopFactory.shouldEpoll(url);
+        int acceptors = epoll && url.getParameter(Constants.REUSEPORT_KEY, false)
+                ? url.getPositiveParameter(Constants.ACCEPTORS_KEY, Constants.DEFAULT_ACCEPTORS) : Constants.DEFAULT_ACCEPTORS;
+        // several acceptors need a loop each, so they do not share the boss group.
+        bossGroup = acceptors > 1 ? NettyEventLoopFactory.eventLoopGroup(epoll, acceptors, "NettyServerBoss")
+                : NettyEventLoopFactory.acquireBossGroup(epoll);
+        workerGroup = NettyEventLoopFactory.acquireWorkerGroup(epoll,
+                url.getPositiveParameter(Constants.IO_THREADS_KEY, Constants.DEFAULT_IO_THREADS));
+
+        final NettyHandler nettyHandler = new NettyHandler(url, this);
+        channels = nettyHandler.getChannels();
+        bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(NettyEventLoopFactory.serverSocketChannelClass(epoll))
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.TCP_NODELAY, Boolean.TRUE)
+                .childOption(ChannelOption.SO_REUSEADDR, Boolean.TRUE)
+                .childHandler(new ChannelInitializer<io.netty.channel.Channel>() {
+                    @Override
+                    protected void initChannel(io.netty.channel.Channel ch) {
+                        NettyCodecAdapter adapter = new NettyCodecAdapter(getCodec(), url, NettyServer.this);
+                        ch.pipeline().addLast("decoder", adapter.getDecoder())
+                                .addLast("encoder", adapter.getEncoder())
+                                .addLast("handler", nettyHandler);
+                    }
+                });
+        if (epoll) {
+            NettyEventLoopFactory.configure(bootstrap, url);
+        }
+        // bind, the boss loops take the server sockets in turn.
+        serverChannels = new ArrayList<io.netty.channel.Channel>(acceptors);
+        for (int i = 0; i < acceptors; i ++) {
+            ChannelFuture future = bootstrap.bind(getBindAddress());
+            future.syncUninterruptibly();
+            serverChannels.add(future.channel());
+        }
+    }
+
+    @Override
+    protected void doClose() throws Throwable {
+        try {
+            if (serverChannels != null) {
+                // unbind.
+                for (io.netty.channel.Channel channel : serverChannels) {
+                    channel.close();
+                }
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+        try {
+            Collection<com.alibaba.dubbo.remoting.Channel> channels = getChannels();
+            if (channels != null && channels.size() > 0) {
+                for (com.alibaba.dubbo.remoting.Channel channel : channels) {
+                    try {
+                        channel.close();
+                    } catch (Throwable e) {
+                        logger.warn(e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+        try {
+            // release external resource, the groups are shared so release them only once.
+            synchronized (this) {
+                NettyEventLoopFactory.releaseGroup(bossGroup);
+                NettyEventLoopFactory.releaseGroup(workerGroup);
+                bossGroup = null;
+                workerGroup = null;
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+        try {
+            if (channels != null) {
+                channels.clear();
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+    }
+    
+    public Collection<Channel> getChannels() {
+        Collection<Channel> chs = new HashSet<Channel>();
+        for (Channel channel : this.channels.values()) {
+            if (channel.isConnected()) {
+                chs.add(channel);
+            } else {
+                channels.remove(NetUtils.toAddressString(channel.getRemoteAddress()));
+            }
+        }
+        return chs;
+    }
+
+    public Channel getChannel(InetSocketAddress remoteAddress) {
+        return channels.get(NetUtils.toAddressString(remoteAddress));
+    }
+
+    public boolean isBound() {
+        List<io.netty.channel.Channel> chs = serverChannels;
+        return chs != null && ! chs.isEmpty() && chs.get(0).isActive();
+    }
+
+}
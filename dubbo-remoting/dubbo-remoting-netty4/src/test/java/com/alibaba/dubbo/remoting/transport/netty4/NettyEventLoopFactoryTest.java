@@ -0,0 +1,54 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.remoting.transport.netty4;
+
+import io.netty.channel.EventLoopGroup;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.status.Status;
+
+public class NettyEventLoopFactoryTest {
+
+    @Test
+    public void testClientGroupIsSharedAndReleasedByTheLastClient() {
+        System.setProperty(Constants.CLIENT_IO_THREADS_KEY, "2");
+        try {
+            EventLoopGroup first = NettyEventLoopFactory.acquireClientGroup(false);
+            EventLoopGroup second = NettyEventLoopFactory.acquireClientGroup(false);
+            Assert.assertSame(first, second);
+
+            Status status = new EventLoopStatusChecker().check();
+            Assert.assertTrue(status.getMessage(), status.getMessage().contains("nio-NettyClientWorker"));
+            Assert.assertTrue(status.getMessage(), status.getMessage().contains("threads:2"));
+            Assert.assertTrue(status.getMessage(), status.getMessage().contains("endpoints:2"));
+
+            NettyEventLoopFactory.releaseGroup(first);
+            Assert.assertFalse(first.isShuttingDown());
+            NettyEventLoopFactory.releaseGroup(second);
+            Assert.assertTrue(first.isShuttingDown());
+
+            EventLoopGroup third = NettyEventLoopFactory.acquireClientGroup(false);
+            Assert.assertNotSame(first, third);
+            NettyEventLoopFactory.releaseGroup(third);
+        } finally {
+            System.clearProperty(Constants.CLIENT_IO_THREADS_KEY);
+        }
+    }
+
+}
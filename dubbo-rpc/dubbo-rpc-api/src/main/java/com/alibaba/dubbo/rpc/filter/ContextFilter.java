@@ -46,6 +46,9 @@ public class ContextFilter implements Filter {
             attachments.remove(Constants.DUBBO_VERSION_KEY);
             attachments.remove(Constants.TOKEN_KEY);
             attachments.remove(Constants.TIMEOUT_KEY);
+            attachments.remove(Constants.FUTURE_RETURNTYPE_KEY);
+            attachments.remove(Constants.REMAINING_TIMEOUT_KEY);
+            attachments.remove(Constants.REQUEST_PRIORITY_KEY);
         }
         RpcContext.getContext()
                 .setInvoker(invoker)
@@ -16,6 +16,9 @@
 package com.alibaba.dubbo.rpc.filter;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
 
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.extension.Activate;
@@ -62,55 +65,19 @@ public class ExceptionFilter implements Filter {
     public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
         try {
             Result result = invoker.invoke(invocation);
-            if (result.hasException() && GenericService.class != invoker.getInterface()) {
-                try {
+            if (GenericService.class != invoker.getInterface()) {
+                if (result.hasException()) {
                     Throwable exception = result.getException();
-
-                    // 如果是checked异常，直接抛出
-                    if (! (exception instanceof RuntimeException) && (exception instanceof Exception)) {
-                        return result;
-                    }
-                    // 在方法签名上有声明，直接抛出
-                    try {
-                        Method method = invoker.getInterface().getMethod(invocation.getMethodName(), invocation.getParameterTypes());
-                        Class<?>[] exceptionClassses = method.getExceptionTypes();
-                        for (Class<?> exceptionClass : exceptionClassses) {
-                            if (exception.getClass().equals(exceptionClass)) {
-                                return result;
-                            }
-                        }
-                    } catch (NoSuchMethodException e) {
-                        return result;
-                    }
-
-                    // 未在方法签名上定义的异常，在服务器端打印ERROR日志
-                    logger.error("Got unchecked and undeclared exception which called by " + RpcContext.getContext().getRemoteHost()
-                            + ". service: " + invoker.getInterface().getName() + ", method: " + invocation.getMethodName()
-                            + ", exception: " + exception.getClass().getName() + ": " + exception.getMessage(), exception);
-
-                    // 异常类和接口类在同一jar包里，直接抛出
-                    String serviceFile = ReflectUtils.getCodeBase(invoker.getInterface());
-                    String exceptionFile = ReflectUtils.getCodeBase(exception.getClass());
-                    if (serviceFile == null || exceptionFile == null || serviceFile.equals(exceptionFile)){
-                        return result;
-                    }
-                    // 是JDK自带的异常，直接抛出
-                    String className = exception.getClass().getName();
-                    if (className.startsWith("java.") || className.startsWith("javax.")) {
-                        return result;
+                    Throwable thrown = getThrown(invoker, invocation, exception, RpcContext.getContext().getRemoteHost());
+                    if (thrown != exception) {
+                        return new RpcResult(thrown);
                     }
-                    // 是Dubbo本身的异常，直接抛出
-                    if (exception instanceof RpcException) {
-                        return result;
-                    }
-
-                    // 否则，包装成RuntimeException抛给客户端
-                    return new RpcResult(new RuntimeException(StringUtils.toString(exception)));
-                } catch (Throwable e) {
-                    logger.warn("Fail to ExceptionFilter when called by " + RpcContext.getContext().getRemoteHost()
-                            + ". service: " + invoker.getInterface().getName() + ", method: " + invocation.getMethodName()
-                            + ", exception: " + e.getClass().getName() + ": " + e.getMessage(), e);
-                    return result;
+                } else if (result.getValue() instanceof CompletableFuture) {
+                    // 服务返回CompletableFuture时, 其完成时的异常同样处理
+                    RpcResult futureResult = new RpcResult(getThrownFuture(invoker, invocation,
+                            (CompletableFuture<?>) result.getValue(), RpcContext.getContext().getRemoteHost()));
+                    futureResult.setAttachments(result.getAttachments());
+                    return futureResult;
                 }
             }
             return result;
@@ -122,4 +89,71 @@ public class ExceptionFilter implements Filter {
         }
     }
 
+    private CompletableFuture<Object> getThrownFuture(final Invoker<?> invoker, final Invocation invocation,
+                                                      CompletableFuture<?> future, final String remoteHost) {
+        final CompletableFuture<Object> thrownFuture = new CompletableFuture<Object>();
+        future.whenComplete(new BiConsumer<Object, Throwable>() {
+            public void accept(Object value, Throwable t) {
+                if (t == null) {
+                    thrownFuture.complete(value);
+                } else {
+                    Throwable exception = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                    thrownFuture.completeExceptionally(getThrown(invoker, invocation, exception, remoteHost));
+                }
+            }
+        });
+        return thrownFuture;
+    }
+
+    // 返回抛给客户端的异常, 原样或包装后的
+    private Throwable getThrown(Invoker<?> invoker, Invocation invocation, Throwable exception, String remoteHost) {
+        try {
+            // 如果是checked异常，直接抛出
+            if (! (exception instanceof RuntimeException) && (exception instanceof Exception)) {
+                return exception;
+            }
+            // 在方法签名上有声明，直接抛出
+            try {
+                Method method = invoker.getInterface().getMethod(invocation.getMethodName(), invocation.getParameterTypes());
+                Class<?>[] exceptionClassses = method.getExceptionTypes();
+                for (Class<?> exceptionClass : exceptionClassses) {
+                    if (exception.getClass().equals(exceptionClass)) {
+                        return exception;
+                    }
+                }
+            } catch (NoSuchMethodException e) {
+                return exception;
+            }
+
+            // 未在方法签名上定义的异常，在服务器端打印ERROR日志
+            logger.error("Got unchecked and undeclared exception which called by " + remoteHost
+                    + ". service: " + invoker.getInterface().getName() + ", method: " + invocation.getMethodName()
+                    + ", exception: " + exception.getClass().getName() + ": " + exception.getMessage(), exception);
+
+            // 异常类和接口类在同一jar包里，直接抛出
+            String serviceFile = ReflectUtils.getCodeBase(invoker.getInterface());
+            String exceptionFile = ReflectUtils.getCodeBase(exception.getClass());
+            if (serviceFile == null || exceptionFile == null || serviceFile.equals(exceptionFile)){
+                return exception;
+            }
+            // 是JDK自带的异常，直接抛出
+            String className = exception.getClass().getName();
+            if (className.startsWith("java.") || className.startsWith("javax.")) {
+                return exception;
+            }
+            // 是Dubbo本身的异常，直接抛出
+            if (exception instanceof RpcException) {
+                return exception;
+            }
+
+            // 否则，包装成RuntimeException抛给客户端
+            return new RuntimeException(StringUtils.toString(exception));
+        } catch (Throwable e) {
+            logger.warn("Fail to ExceptionFilter when called by " + remoteHost
+                    + ". service: " + invoker.getInterface().getName() + ", method: " + invocation.getMethodName()
+                    + ", exception: " + e.getClass().getName() + ": " + e.getMessage(), e);
+            return exception;
+        }
+    }
+
 }
\ No newline at end of file
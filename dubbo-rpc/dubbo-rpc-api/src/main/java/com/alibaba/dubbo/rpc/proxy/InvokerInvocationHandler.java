@@ -17,8 +17,12 @@ package com.alibaba.dubbo.rpc.proxy;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 
+import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.Result;
+import com.alibaba.dubbo.rpc.RpcException;
 import com.alibaba.dubbo.rpc.RpcInvocation;
 
 /**
@@ -49,7 +53,37 @@ public class InvokerInvocationHandler implements InvocationHandler {
         if ("equals".equals(methodName) && parameterTypes.length == 1) {
             return invoker.equals(args[0]);
         }
+        if (method.getReturnType() == CompletableFuture.class) {
+            return invokeForFuture(new RpcInvocation(method, args));
+        }
         return invoker.invoke(new RpcInvocation(method, args)).recreate();
     }
 
+    private CompletableFuture<Object> invokeForFuture(RpcInvocation invocation) {
+        invocation.setAttachment(Constants.FUTURE_RETURNTYPE_KEY, Boolean.TRUE.toString());
+        Result result;
+        try {
+            result = invoker.invoke(invocation);
+        } catch (RpcException e) {
+            return failedFuture(e);
+        }
+        if (result.hasException()) {
+            return failedFuture(result.getException());
+        }
+        Object value = result.getValue();
+        if (value instanceof CompletableFuture) {
+            @SuppressWarnings("unchecked")
+            CompletableFuture<Object> future = (CompletableFuture<Object>) value;
+            return future;
+        }
+        // mock, cache or local results are already there.
+        return CompletableFuture.completedFuture(value);
+    }
+
+    private static CompletableFuture<Object> failedFuture(Throwable t) {
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
 }
\ No newline at end of file
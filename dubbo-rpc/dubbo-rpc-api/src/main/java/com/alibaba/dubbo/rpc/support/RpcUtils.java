@@ -16,7 +16,9 @@
 package com.alibaba.dubbo.rpc.support;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.alibaba.dubbo.common.Constants;
@@ -49,6 +51,9 @@ public class RpcUtils {
                     if (method.getReturnType() == void.class) {
                         return null;
                     }
+                    if (method.getReturnType() == CompletableFuture.class) {
+                        return (Class<?>) getFutureValueTypes(method)[0];
+                    }
                     return method.getReturnType();
                 }
             }
@@ -70,6 +75,9 @@ public class RpcUtils {
                     if (method.getReturnType() == void.class) {
                         return null;
                     }
+                    if (method.getReturnType() == CompletableFuture.class) {
+                        return getFutureValueTypes(method);
+                    }
                     return new Type[]{method.getReturnType(), method.getGenericReturnType()};
                 }
             }
@@ -78,6 +86,23 @@ public class RpcUtils {
         }
         return null;
     }
+
+    /**
+     * 返回CompletableFuture&lt;T&gt;中T的类型, 结果按T序列化
+     */
+    private static Type[] getFutureValueTypes(Method method) {
+        Type type = method.getGenericReturnType();
+        if (type instanceof ParameterizedType) {
+            Type valueType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (valueType instanceof Class) {
+                return new Type[]{valueType, valueType};
+            }
+            if (valueType instanceof ParameterizedType) {
+                return new Type[]{((ParameterizedType) valueType).getRawType(), valueType};
+            }
+        }
+        return new Type[]{Object.class, Object.class};
+    }
     
     private static final AtomicLong INVOKE_ID = new AtomicLong(0);
     
@@ -152,7 +177,8 @@ public class RpcUtils {
     public static boolean isAsync(URL url, Invocation inv) {
     	boolean isAsync ;
     	//如果Java代码中设置优先.
-    	if (Boolean.TRUE.toString().equals(inv.getAttachment(Constants.ASYNC_KEY))) {
+    	if (Boolean.TRUE.toString().equals(inv.getAttachment(Constants.ASYNC_KEY))
+    	        || isFutureReturnType(inv)) {
     		isAsync = true;
     	} else {
 	    	isAsync = url.getMethodParameter(getMethodName(inv), Constants.ASYNC_KEY, false);
@@ -160,6 +186,10 @@ public class RpcUtils {
     	return isAsync;
     }
     
+    public static boolean isFutureReturnType(Invocation inv) {
+    	return Boolean.TRUE.toString().equals(inv.getAttachment(Constants.FUTURE_RETURNTYPE_KEY));
+    }
+    
     public static boolean isOneway(URL url, Invocation inv) {
     	boolean isOneway ;
     	//如果Java代码中设置优先.
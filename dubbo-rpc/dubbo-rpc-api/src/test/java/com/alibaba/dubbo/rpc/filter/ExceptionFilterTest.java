@@ -16,15 +16,22 @@
 package com.alibaba.dubbo.rpc.filter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.easymock.EasyMock;
 import org.junit.Test;
 
 import com.alibaba.dubbo.common.logger.Logger;
 import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.Result;
 import com.alibaba.dubbo.rpc.RpcContext;
 import com.alibaba.dubbo.rpc.RpcException;
 import com.alibaba.dubbo.rpc.RpcInvocation;
+import com.alibaba.dubbo.rpc.RpcResult;
 import com.alibaba.dubbo.rpc.support.DemoService;
 
 /**
@@ -57,5 +64,34 @@ public class ExceptionFilterTest {
         EasyMock.verify(logger, invoker);
         RpcContext.removeContext();
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testFutureException() throws Exception {
+        Logger logger = EasyMock.createMock(Logger.class);
+        RpcContext.getContext().setRemoteAddress("127.0.0.1", 1234);
+        IllegalStateException exception = new IllegalStateException("TestFutureException");
+        logger.error(EasyMock.eq("Got unchecked and undeclared exception which called by 127.0.0.1. service: " + DemoService.class.getName() + ", method: sayHello, exception: " + IllegalStateException.class.getName() + ": TestFutureException"), EasyMock.eq(exception));
+        ExceptionFilter exceptionFilter = new ExceptionFilter(logger);
+        RpcInvocation invocation = new RpcInvocation("sayHello", new Class<?>[]{String.class}, new Object[]{"world"});
+        Invoker<DemoService> invoker = EasyMock.createMock(Invoker.class);
+        EasyMock.expect(invoker.getInterface()).andReturn(DemoService.class).anyTimes();
+        CompletableFuture<String> future = new CompletableFuture<String>();
+        EasyMock.expect(invoker.invoke(EasyMock.eq(invocation))).andReturn(new RpcResult(future));
+
+        EasyMock.replay(logger, invoker);
+
+        Result result = exceptionFilter.invoke(invoker, invocation);
+        // the future completes once the invocation has returned.
+        RpcContext.removeContext();
+        future.completeExceptionally(exception);
+        try {
+            ((CompletableFuture<?>) result.getValue()).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+        EasyMock.verify(logger, invoker);
+    }
     
 }
\ No newline at end of file
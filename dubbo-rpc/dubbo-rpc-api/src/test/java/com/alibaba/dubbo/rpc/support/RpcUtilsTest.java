@@ -80,4 +80,18 @@ public class RpcUtilsTest {
 		RpcUtils.attachInvocationIdIfAsync(url, inv);
 		Assert.assertNotNull(RpcUtils.getInvocationId(inv));
 	}
+	
+	/**
+	 * 场景：方法返回CompletableFuture
+	 * 验证：不需配置async也按异步调用
+	 */
+	@Test
+	public void testIsAsync_futureReturnType() {
+		URL url = URL.valueOf("dubbo://localhost/");
+		RpcInvocation inv = new RpcInvocation("test", new Class[]{}, new String[]{});
+		Assert.assertFalse(RpcUtils.isAsync(url, inv));
+		inv.setAttachment(Constants.FUTURE_RETURNTYPE_KEY, "true");
+		Assert.assertTrue(RpcUtils.isFutureReturnType(inv));
+		Assert.assertTrue(RpcUtils.isAsync(url, inv));
+	}
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.support.compiled.CompiledObjectInput;
+import com.alibaba.dubbo.common.serialize.support.compiled.CompiledObjectOutput;
+import com.alibaba.dubbo.common.serialize.support.dubbo.Builder;
+import com.alibaba.dubbo.common.serialize.support.dubbo.ClassDescriptorDictionary;
+import com.alibaba.dubbo.common.serialize.support.dubbo.GenericObjectInput;
+import com.alibaba.dubbo.common.serialize.support.dubbo.GenericObjectOutput;
+import com.alibaba.dubbo.remoting.Channel;
+
+/**
+ * Agrees on the class-descriptor dictionary of the dubbo serialization once per connection, after which the
+ * registered classes are written as ids instead of names.
+ * <p>
+ * The client offers the fingerprint of its dictionary in the attachments of its requests. When it is the same as
+ * its own, the server flags its responses with {@link DubboCodec#RESPONSE_DICTIONARY_FLAG} and writes them with
+ * ids, and the client writes its next requests with ids as well. A response without the flag ends the offer.
+ * <p>
+ * The compiled serialization writes the ids of the same dictionary, and the names as well until it is agreed.
+ */
+final class ClassDescriptorNegotiation {
+
+    // the dictionary agreed on the channel.
+    private static final String AGREED_KEY   = ClassDescriptorNegotiation.class.getName() + ".AGREED";
+
+    // the dictionary offered by the client, or REJECTED.
+    private static final String OFFERED_KEY  = ClassDescriptorNegotiation.class.getName() + ".OFFERED";
+
+    private static final Object REJECTED     = new Object();
+
+    private ClassDescriptorNegotiation() {
+    }
+
+    /**
+     * client, before a request is written: uses the agreed dictionary, or offers one in the returned attachments.
+     */
+    static Map<String, String> prepareRequest(Channel channel, ObjectOutput out, Map<String, String> attachments) {
+        if (!isDubbo(out)) {
+            return attachments;
+        }
+        Object agreed = channel.getAttribute(AGREED_KEY);
+        setMapper(out, agreed);
+        if (agreed != null) {
+            return attachments;
+        }
+        Object offered = channel.getAttribute(OFFERED_KEY);
+        if (offered == REJECTED) {
+            return attachments;
+        }
+        ClassDescriptorDictionary dictionary = ClassDescriptorDictionary.getDictionary();
+        if (dictionary.isEmpty()) {
+            return attachments;
+        }
+        channel.setAttribute(OFFERED_KEY, dictionary);
+        Map<String, String> map = attachments == null
+                ? new HashMap<String, String>() : new HashMap<String, String>(attachments);
+        map.put(Constants.SERIALIZATION_DICTIONARY_KEY, dictionary.getFingerprint());
+        return map;
+    }
+
+    /**
+     * server, before a request is read: the client writes ids only once the dictionary is agreed.
+     */
+    static void prepareRequestInput(Channel channel, ObjectInput in) {
+        if (isDubbo(in)) {
+            setMapper(in, channel.getAttribute(AGREED_KEY));
+        }
+    }
+
+    /**
+     * server, after a request is read: agrees on the offer of the client if it is the same dictionary.
+     */
+    static void acceptRequest(Channel channel, Map<String, String> attachments) {
+        String fingerprint = attachments == null ? null : attachments.remove(Constants.SERIALIZATION_DICTIONARY_KEY);
+        if (fingerprint == null || channel.getAttribute(AGREED_KEY) != null) {
+            return;
+        }
+        ClassDescriptorDictionary dictionary = ClassDescriptorDictionary.getDictionary();
+        if (fingerprint.equals(dictionary.getFingerprint())) {
+            channel.setAttribute(AGREED_KEY, dictionary);
+        }
+    }
+
+    /**
+     * server, before a response is written: returns the flag of the response.
+     */
+    static byte prepareResponse(Channel channel, ObjectOutput out) {
+        if (!isDubbo(out)) {
+            return 0;
+        }
+        Object agreed = channel.getAttribute(AGREED_KEY);
+        setMapper(out, agreed);
+        return agreed == null ? 0 : DubboCodec.RESPONSE_DICTIONARY_FLAG;
+    }
+
+    /**
+     * client, after the flag of a response is read and before its value.
+     */
+    static void acceptResponse(Channel channel, ObjectInput in, boolean flagged) {
+        Object agreed = channel.getAttribute(AGREED_KEY);
+        if (agreed == null) {
+            Object offered = channel.getAttribute(OFFERED_KEY);
+            if (offered instanceof ClassDescriptorDictionary) {
+                if (flagged) {
+                    agreed = offered;
+                    channel.setAttribute(AGREED_KEY, agreed);
+                } else {
+                    channel.setAttribute(OFFERED_KEY, REJECTED);
+                }
+            }
+        }
+        if (isDubbo(in)) {
+            setMapper(in, flagged ? agreed : null);
+        }
+    }
+
+    // the default ids without a dictionary, as the compiled streams start with the ids of their own dictionary.
+    private static void setMapper(ObjectOutput out, Object agreed) {
+        ((GenericObjectOutput) out).setClassDescriptorMapper(agreed == null
+                ? Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER : (ClassDescriptorDictionary) agreed);
+    }
+
+    private static void setMapper(ObjectInput in, Object agreed) {
+        ((GenericObjectInput) in).setClassDescriptorMapper(agreed == null
+                ? Builder.DEFAULT_CLASS_DESCRIPTOR_MAPPER : (ClassDescriptorDictionary) agreed);
+    }
+
+    // the streams of the dubbo serialization, and of the compiled one which writes the ids of the same dictionary.
+    private static boolean isDubbo(ObjectOutput out) {
+        return out != null && (out.getClass() == GenericObjectOutput.class || out.getClass() == CompiledObjectOutput.class);
+    }
+
+    private static boolean isDubbo(ObjectInput in) {
+        return in != null && (in.getClass() == GenericObjectInput.class || in.getClass() == CompiledObjectInput.class);
+    }
+
+}
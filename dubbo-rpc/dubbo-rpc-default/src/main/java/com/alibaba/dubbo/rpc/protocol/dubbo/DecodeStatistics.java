@@ -0,0 +1,104 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+
+/**
+ * The decode time per byte of each method, so that the io thread only decodes the bodies it gets through within
+ * <code>decode.in.io.budget</code>, and leaves the others to the business threads.
+ * <p>
+ * The method of a response is known from its request before it is decoded, so its own rate bounds its threshold.
+ * The method of a request is only known once decoded, so the requests share one rate.
+ */
+final class DecodeStatistics {
+
+    // the rate of all the requests.
+    static final String                          REQUEST_KEY = "*";
+
+    // the weight of a sample in the moving average of a rate.
+    private static final double                  WEIGHT      = 0.1;
+
+    // the samples before a rate bounds the threshold.
+    private static final int                     MIN_SAMPLES = 8;
+
+    // the time of a smaller body is mostly the fixed cost of a decode, not a rate per byte.
+    private static final int                     MIN_BYTES   = 256;
+
+    private static final ConcurrentMap<String, Rate> RATES   = new ConcurrentHashMap<String, Rate>();
+
+    private DecodeStatistics() {
+    }
+
+    static String getKey(Invocation invocation) {
+        if (invocation == null || invocation.getMethodName() == null) {
+            return null;
+        }
+        return invocation.getAttachment(Constants.PATH_KEY) + "." + invocation.getMethodName();
+    }
+
+    static void record(String key, int bytes, long nanos) {
+        if (key == null || bytes < MIN_BYTES) {
+            return;
+        }
+        Rate rate = RATES.get(key);
+        if (rate == null) {
+            RATES.putIfAbsent(key, new Rate());
+            rate = RATES.get(key);
+        }
+        rate.add((double) nanos / bytes);
+    }
+
+    /**
+     * get the size under which a body of the method is decoded in the io thread.
+     * 
+     * @param key the method, or {@link #REQUEST_KEY}.
+     */
+    static int getThreshold(URL url, String key) {
+        int threshold = url.getParameter(Constants.DECODE_IN_IO_THRESHOLD_KEY, Constants.DEFAULT_DECODE_IN_IO_THRESHOLD);
+        Rate rate = key == null ? null : RATES.get(key);
+        if (rate == null || rate.samples < MIN_SAMPLES) {
+            return threshold;
+        }
+        double budget = url.getParameter(Constants.DECODE_IN_IO_BUDGET_KEY, Constants.DEFAULT_DECODE_IN_IO_BUDGET) * 1000.0;
+        double bytes = budget / rate.nanosPerByte;
+        return bytes < threshold ? (int) bytes : threshold;
+    }
+
+    static double getNanosPerByte(String key) {
+        Rate rate = RATES.get(key);
+        return rate == null ? 0 : rate.nanosPerByte;
+    }
+
+    // updated without a lock, a lost sample does not matter to an average.
+    private static final class Rate {
+
+        volatile double nanosPerByte;
+
+        volatile int    samples;
+
+        void add(double sample) {
+            nanosPerByte = samples == 0 ? sample : nanosPerByte + (sample - nanosPerByte) * WEIGHT;
+            samples ++;
+        }
+    }
+
+}
@@ -35,6 +35,8 @@ import com.alibaba.dubbo.common.utils.StringUtils;
 import com.alibaba.dubbo.remoting.Channel;
 import com.alibaba.dubbo.remoting.Codec;
 import com.alibaba.dubbo.remoting.Decodeable;
+import com.alibaba.dubbo.remoting.Routable;
+import com.alibaba.dubbo.remoting.Schedulable;
 import com.alibaba.dubbo.remoting.exchange.Request;
 import com.alibaba.dubbo.remoting.transport.CodecSupport;
 import com.alibaba.dubbo.rpc.RpcInvocation;
@@ -44,7 +46,7 @@ import static com.alibaba.dubbo.rpc.protocol.dubbo.CallbackServiceCodec.decodeIn
 /**
  * @author <a href="mailto:gang.lvg@alibaba-inc.com">kimi</a>
  */
-public class DecodeableRpcInvocation extends RpcInvocation implements Codec, Decodeable {
+public class DecodeableRpcInvocation extends RpcInvocation implements Codec, Decodeable, Routable, Schedulable {
 
     private static final Logger log = LoggerFactory.getLogger(DecodeableRpcInvocation.class);
 
@@ -52,13 +54,22 @@ public class DecodeableRpcInvocation extends RpcInvocation implements Codec, Dec
 
     private byte        serializationType;
 
+    private byte        status;
+
     private InputStream inputStream;
 
     private Request     request;
 
     private volatile boolean hasDecoded;
 
+    // the input after the method name, once the header is decoded ahead of the arguments.
+    private ObjectInput headerInput;
+
     public DecodeableRpcInvocation(Channel channel, Request request, InputStream is, byte id) {
+        this(channel, request, is, id, (byte) 0);
+    }
+
+    public DecodeableRpcInvocation(Channel channel, Request request, InputStream is, byte id, byte status) {
         Assert.notNull(channel, "channel == null");
         Assert.notNull(request, "request == null");
         Assert.notNull(is, "inputStream == null");
@@ -66,38 +77,134 @@ public class DecodeableRpcInvocation extends RpcInvocation implements Codec, Dec
         this.request = request;
         this.inputStream = is;
         this.serializationType = id;
+        this.status = status;
+    }
+
+    private void closeInputStream() {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.warn(e.getMessage(), e);
+        }
+        inputStream = null;
     }
 
     public void decode() throws Exception {
         if (!hasDecoded && channel != null && inputStream != null) {
             try {
+                int length = inputStream.available();
+                long start = System.nanoTime();
                 decode(channel, inputStream);
+                DecodeStatistics.record(DecodeStatistics.REQUEST_KEY, length, System.nanoTime() - start);
             } catch (Throwable e) {
-                if (log.isWarnEnabled()) {
-                    log.warn("Decode rpc invocation failed: " + e.getMessage(), e);
-                }
-                request.setBroken(true);
-                request.setData(e);
+                broken(e);
             } finally {
                 hasDecoded = true;
+                // the codec may recycle the stream once it is decoded.
+                closeInputStream();
             }
         }
     }
 
+    public String getRoutePath() {
+        decodeHeader();
+        return getAttachment(Constants.PATH_KEY);
+    }
+
+    public String getRouteMethod() {
+        decodeHeader();
+        return getMethodName();
+    }
+
+    public String getRouteVersion() {
+        decodeHeader();
+        return getAttachment(Constants.VERSION_KEY);
+    }
+
+    // the group follows the method name once agreed on the channel, otherwise it is only known once decoded.
+    public String getRouteGroup() {
+        decodeHeader();
+        return getAttachment(Constants.GROUP_KEY);
+    }
+
+    // the schedule follows the method name once agreed on the channel, otherwise it is only known once decoded.
+    public int getRemainingTimeout() {
+        decodeHeader();
+        return RequestSchedule.getInt(getAttachment(Constants.REMAINING_TIMEOUT_KEY));
+    }
+
+    public int getPriority() {
+        decodeHeader();
+        return RequestSchedule.getInt(getAttachment(Constants.REQUEST_PRIORITY_KEY));
+    }
+
+    /**
+     * decodes the versions, the path and the method name only, the arguments are left to {@link #decode()}.
+     */
+    private void decodeHeader() {
+        if (hasDecoded || headerInput != null || channel == null || inputStream == null) {
+            return;
+        }
+        try {
+            headerInput = decodeHeader(channel, inputStream);
+        } catch (Throwable e) {
+            broken(e);
+            hasDecoded = true;
+            closeInputStream();
+        }
+    }
+
+    private void broken(Throwable e) {
+        if (log.isWarnEnabled()) {
+            log.warn("Decode rpc invocation failed: " + e.getMessage(), e);
+        }
+        request.setBroken(true);
+        request.setData(e);
+    }
+
     public void encode(Channel channel, OutputStream output, Object message) throws IOException {
         throw new UnsupportedOperationException();
     }
 
-    public Object decode(Channel channel, InputStream input) throws IOException {
+    private ObjectInput decodeHeader(Channel channel, InputStream input) throws IOException {
         ObjectInput in = CodecSupport.getSerialization(channel.getUrl(), serializationType)
                 .deserialize(channel.getUrl(), input);
 
+        boolean decoded = false;
         try {
-            setAttachment(Constants.DUBBO_VERSION_KEY, in.readUTF());
-            setAttachment(Constants.PATH_KEY, in.readUTF());
-            setAttachment(Constants.VERSION_KEY, in.readUTF());
+            ClassDescriptorNegotiation.prepareRequestInput(channel, in);
+            EnvelopeStringTable.Reader envelope = EnvelopeStringTable.getReader(channel,
+                    (status & DubboCodec.REQUEST_ENVELOPE_TABLE_FLAG) != 0);
+            setAttachment(Constants.DUBBO_VERSION_KEY, envelope.readString(in));
+            setAttachment(Constants.PATH_KEY, envelope.readString(in));
+            setAttachment(Constants.VERSION_KEY, envelope.readString(in));
 
-            setMethodName(in.readUTF());
+            setMethodName(envelope.readString(in));
+            if ((status & DubboCodec.REQUEST_SCHEDULE_FLAG) != 0) {
+                RequestSchedule.readSchedule(in, this);
+            }
+            if ((status & DubboCodec.REQUEST_GROUP_FLAG) != 0) {
+                setAttachment(Constants.GROUP_KEY, envelope.readString(in));
+            }
+            decoded = true;
+            return in;
+        } finally {
+            if (! decoded && in instanceof Cleanable) {
+                ((Cleanable) in).cleanup();
+            }
+        }
+    }
+
+    public Object decode(Channel channel, InputStream input) throws IOException {
+        ObjectInput in = headerInput;
+        headerInput = null;
+        if (in == null) {
+            in = decodeHeader(channel, input);
+        }
+
+        try {
+            EnvelopeStringTable.Reader envelope = EnvelopeStringTable.getReader(channel,
+                    (status & DubboCodec.REQUEST_ENVELOPE_TABLE_FLAG) != 0);
             try {
                 Object[] args;
                 Class<?>[] pts;
@@ -123,7 +230,7 @@ public class DecodeableRpcInvocation extends RpcInvocation implements Codec, Dec
                         }
                     }
                 } else {
-                    String desc = in.readUTF();
+                    String desc = envelope.readString(in);
                     if (desc.length() == 0) {
                         pts = DubboCodec.EMPTY_CLASS_ARRAY;
                         args = DubboCodec.EMPTY_OBJECT_ARRAY;
@@ -143,7 +250,10 @@ public class DecodeableRpcInvocation extends RpcInvocation implements Codec, Dec
                 }
                 setParameterTypes(pts);
 
-                Map<String, String> map = (Map<String, String>) in.readObject(Map.class);
+                Map<String, String> map = envelope.readAttachments(in);
+                ClassDescriptorNegotiation.acceptRequest(channel, map);
+                EnvelopeStringTable.acceptRequest(channel, map);
+                RequestSchedule.acceptRequest(channel, map);
                 if (map != null && map.size() > 0) {
                     Map<String, String> attachment = getAttachments();
                     if (attachment == null) {
@@ -76,6 +76,12 @@ public class DecodeableRpcResult extends RpcResult implements Codec, Decodeable
 
         try {
             byte flag = in.readByte();
+            boolean dictionary = (flag & DubboCodec.RESPONSE_DICTIONARY_FLAG) != 0;
+            ClassDescriptorNegotiation.acceptResponse(channel, in, dictionary);
+            EnvelopeStringTable.acceptResponse(channel, (flag & DubboCodec.RESPONSE_ENVELOPE_TABLE_FLAG) != 0);
+            RequestSchedule.acceptResponse(channel, (flag & DubboCodec.RESPONSE_SCHEDULE_FLAG) != 0);
+            flag &= ~(DubboCodec.RESPONSE_DICTIONARY_FLAG | DubboCodec.RESPONSE_ENVELOPE_TABLE_FLAG
+                    | DubboCodec.RESPONSE_SCHEDULE_FLAG);
             switch (flag) {
                 case DubboCodec.RESPONSE_NULL_VALUE:
                     break;
@@ -111,10 +117,22 @@ public class DecodeableRpcResult extends RpcResult implements Codec, Decodeable
         }
     }
 
+    private void closeInputStream() {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.warn(e.getMessage(), e);
+        }
+        inputStream = null;
+    }
+
     public void decode() throws Exception {
         if (!hasDecoded && channel != null && inputStream != null) {
             try {
+                int length = inputStream.available();
+                long start = System.nanoTime();
                 decode(channel, inputStream);
+                DecodeStatistics.record(DecodeStatistics.getKey(invocation), length, System.nanoTime() - start);
             } catch (Throwable e) {
                 if (log.isWarnEnabled()) {
                     log.warn("Decode rpc result failed: " + e.getMessage(), e);
@@ -123,6 +141,8 @@ public class DecodeableRpcResult extends RpcResult implements Codec, Decodeable
                 response.setErrorMessage(StringUtils.toString(e));
             } finally {
                 hasDecoded = true;
+                // the codec may recycle the stream once it is decoded.
+                closeInputStream();
             }
         }
     }
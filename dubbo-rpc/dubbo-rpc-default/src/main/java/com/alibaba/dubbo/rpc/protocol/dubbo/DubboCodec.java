@@ -15,12 +15,15 @@
  */
 package com.alibaba.dubbo.rpc.protocol.dubbo;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.Version;
+import com.alibaba.dubbo.common.compress.Compressor;
 import com.alibaba.dubbo.common.io.Bytes;
 import com.alibaba.dubbo.common.io.UnsafeByteArrayInputStream;
 import com.alibaba.dubbo.common.logger.Logger;
@@ -33,6 +36,10 @@ import com.alibaba.dubbo.common.utils.ReflectUtils;
 import com.alibaba.dubbo.common.utils.StringUtils;
 import com.alibaba.dubbo.remoting.Channel;
 import com.alibaba.dubbo.remoting.Codec2;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.ChannelBufferInputStream;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffers;
+import com.alibaba.dubbo.remoting.buffer.PooledChannelBufferFactory;
 import com.alibaba.dubbo.remoting.exchange.Request;
 import com.alibaba.dubbo.remoting.exchange.Response;
 import com.alibaba.dubbo.remoting.exchange.codec.ExchangeCodec;
@@ -63,6 +70,24 @@ public class DubboCodec extends ExchangeCodec implements Codec2 {
 
     public static final byte RESPONSE_NULL_VALUE = 2;
 
+    // the response is written with the class-descriptor dictionary offered in the request.
+    public static final byte RESPONSE_DICTIONARY_FLAG = 0x10;
+
+    // the response is written by a server that takes the envelope string table offered in the request.
+    public static final byte RESPONSE_ENVELOPE_TABLE_FLAG = 0x20;
+
+    // the response is written by a server that reads the schedule and the group of the requests after their method name.
+    public static final byte RESPONSE_SCHEDULE_FLAG = 0x40;
+
+    // in the status of the request header: the envelope is written with the string table of the connection.
+    public static final byte REQUEST_ENVELOPE_TABLE_FLAG = 0x01;
+
+    // in the status of the request header: the remaining timeout and the priority follow the method name.
+    public static final byte REQUEST_SCHEDULE_FLAG = 0x02;
+
+    // in the status of the request header: the group of the service follows the method name and the schedule.
+    public static final byte REQUEST_GROUP_FLAG = 0x04;
+
     public static final Object[] EMPTY_OBJECT_ARRAY = new Object[0];
 
     public static final Class<?>[] EMPTY_CLASS_ARRAY = new Class<?>[0];
@@ -90,16 +115,13 @@ public class DubboCodec extends ExchangeCodec implements Codec2 {
                         data = decodeEventData(channel, deserialize(s, channel.getUrl(), is));
                     } else {
                         DecodeableRpcResult result;
-                        if (channel.getUrl().getParameter(
-                                Constants.DECODE_IN_IO_THREAD_KEY,
-                                Constants.DEFAULT_DECODE_IN_IO_THREAD)) {
-                            result = new DecodeableRpcResult(channel, res, is,
-                                    (Invocation)getRequestData(id), proto);
+                        Invocation inv = (Invocation) getRequestData(channel, id);
+                        EnvelopeStringTable.acknowledge(channel, inv);
+                        if (isDecodeInIoThread(channel, DecodeStatistics.getKey(inv), is.available())) {
+                            result = new DecodeableRpcResult(channel, res, is, inv, proto);
                             result.decode();
                         } else {
-                            result = new DecodeableRpcResult(channel, res,
-                                    new UnsafeByteArrayInputStream(readMessageData(is)),
-                                    (Invocation) getRequestData(id), proto);
+                            result = new DecodeableRpcResult(channel, res, readMessageData(is), inv, proto);
                         }
                         data = result;
                     }
@@ -131,14 +153,11 @@ public class DubboCodec extends ExchangeCodec implements Codec2 {
                     data = decodeEventData(channel, deserialize(s, channel.getUrl(), is));
                 } else {
                     DecodeableRpcInvocation inv;
-                    if (channel.getUrl().getParameter(
-                            Constants.DECODE_IN_IO_THREAD_KEY,
-                            Constants.DEFAULT_DECODE_IN_IO_THREAD)) {
-                        inv = new DecodeableRpcInvocation(channel, req, is, proto);
+                    if (isDecodeInIoThread(channel, DecodeStatistics.REQUEST_KEY, is.available())) {
+                        inv = new DecodeableRpcInvocation(channel, req, is, proto, header[3]);
                         inv.decode();
                     } else {
-                        inv = new DecodeableRpcInvocation(channel, req,
-                                new UnsafeByteArrayInputStream(readMessageData(is)), proto);
+                        inv = new DecodeableRpcInvocation(channel, req, readMessageData(is), proto, header[3]);
                     }
                     data = inv;
                 }
@@ -155,29 +174,119 @@ public class DubboCodec extends ExchangeCodec implements Codec2 {
         }
     }
 
+    /**
+     * decode.in.io decodes all the bodies in the io thread, or none of them. Without it, the small bodies are decoded
+     * in the io thread and the large ones are handed to the business thread undecoded, so that a few large bodies can
+     * not hold up the other channels of the io thread.
+     */
+    private boolean isDecodeInIoThread(Channel channel, String key, int length) {
+        String value = channel.getUrl().getParameter(Constants.DECODE_IN_IO_THREAD_KEY);
+        if (value != null && value.length() > 0) {
+            return Boolean.parseBoolean(value);
+        }
+        return length < DecodeStatistics.getThreshold(channel.getUrl(), key);
+    }
+
     private ObjectInput deserialize(Serialization serialization, URL url, InputStream is)
             throws IOException {
         return serialization.deserialize(url, is);
     }
 
-    private byte[] readMessageData(InputStream is) throws IOException {
-        if (is.available() > 0) {
-            byte[] result = new byte[is.available()];
-            is.read(result);
-            return result;
+    /**
+     * Copies the body out of the channel for the business thread, into a buffer borrowed from the pool which is
+     * given back when the stream is closed once the body is decoded.
+     */
+    private InputStream readMessageData(InputStream is) throws IOException {
+        int length = is.available();
+        if (length <= 0) {
+            return new UnsafeByteArrayInputStream(new byte[]{});
+        }
+        final ChannelBuffer buffer = PooledChannelBufferFactory.getInstance().getBuffer(length);
+        boolean copied = false;
+        try {
+            byte[] result = buffer.array();
+            int offset = buffer.arrayOffset();
+            int read = 0;
+            while (read < length) {
+                int n = is.read(result, offset + read, length - read);
+                if (n < 0) {
+                    throw new EOFException("Body ended after " + read + " of its " + length + " bytes");
+                }
+                read += n;
+            }
+            buffer.writerIndex(length);
+            copied = true;
+        } finally {
+            if (! copied) {
+                ChannelBuffers.release(buffer);
+            }
+        }
+        return new ChannelBufferInputStream(buffer) {
+            @Override
+            public void close() {
+                ChannelBuffers.release(buffer);
+            }
+        };
+    }
+
+    // the compressor configured on the method or the service of the invoker, as the channel may be shared among services.
+    @Override
+    protected Compressor getCompressor(Channel channel, Request req) {
+        if (req.getData() instanceof RpcInvocation) {
+            RpcInvocation inv = (RpcInvocation) req.getData();
+            URL url = inv.getInvoker() == null ? channel.getUrl() : inv.getInvoker().getUrl();
+            return CodecSupport.getCompressor(url, inv.getMethodName());
+        }
+        return super.getCompressor(channel, req);
+    }
+
+    @Override
+    protected int getCompressThreshold(Channel channel, Request req) {
+        if (req.getData() instanceof RpcInvocation) {
+            RpcInvocation inv = (RpcInvocation) req.getData();
+            URL url = inv.getInvoker() == null ? channel.getUrl() : inv.getInvoker().getUrl();
+            return CodecSupport.getCompressThreshold(url, inv.getMethodName());
+        }
+        return super.getCompressThreshold(channel, req);
+    }
+
+    @Override
+    protected byte getRequestStatus(Channel channel, Request req) {
+        byte status = 0;
+        if (req.getData() instanceof RpcInvocation) {
+            if (EnvelopeStringTable.isAgreed(channel)) {
+                status |= REQUEST_ENVELOPE_TABLE_FLAG;
+            }
+            status |= RequestSchedule.getRequestStatus(channel, (RpcInvocation) req.getData());
         }
-        return new byte[]{};
+        return status;
     }
 
     @Override
     protected void encodeRequestData(Channel channel, ObjectOutput out, Object data) throws IOException {
+        encodeRequestData(channel, out, data, (byte) 0);
+    }
+
+    @Override
+    protected void encodeRequestData(Channel channel, ObjectOutput out, Object data, byte status) throws IOException {
         RpcInvocation inv = (RpcInvocation) data;
+        Map<String, String> attachments = EnvelopeStringTable.prepareRequest(channel,
+                ClassDescriptorNegotiation.prepareRequest(channel, out,
+                        RequestSchedule.prepareRequest(inv.getAttachments(), status)));
+        EnvelopeStringTable.Writer envelope = EnvelopeStringTable.getWriter(channel, inv,
+                (status & REQUEST_ENVELOPE_TABLE_FLAG) != 0);
 
-        out.writeUTF(inv.getAttachment(Constants.DUBBO_VERSION_KEY, DUBBO_VERSION));
-        out.writeUTF(inv.getAttachment(Constants.PATH_KEY));
-        out.writeUTF(inv.getAttachment(Constants.VERSION_KEY));
+        envelope.writeString(out, inv.getAttachment(Constants.DUBBO_VERSION_KEY, DUBBO_VERSION));
+        envelope.writeString(out, inv.getAttachment(Constants.PATH_KEY));
+        envelope.writeString(out, inv.getAttachment(Constants.VERSION_KEY));
 
-        out.writeUTF(inv.getMethodName());
+        envelope.writeString(out, inv.getMethodName());
+        if ((status & REQUEST_SCHEDULE_FLAG) != 0) {
+            RequestSchedule.writeSchedule(out, inv);
+        }
+        if ((status & REQUEST_GROUP_FLAG) != 0) {
+            envelope.writeString(out, inv.getAttachment(Constants.GROUP_KEY));
+        }
 
         // NOTICE modified by lishen
         // TODO
@@ -185,7 +294,7 @@ public class DubboCodec extends ExchangeCodec implements Codec2 {
             out.writeInt(inv.getParameterTypes().length);
         } else {
             out.writeInt(-1);
-            out.writeUTF(ReflectUtils.getDesc(inv.getParameterTypes()));
+            envelope.writeString(out, ReflectUtils.getDesc(inv.getParameterTypes()));
         }
 
         Object[] args = inv.getArguments();
@@ -193,24 +302,27 @@ public class DubboCodec extends ExchangeCodec implements Codec2 {
             for (int i = 0; i < args.length; i++){
                 out.writeObject(encodeInvocationArgument(channel, inv, i));
             }
-        out.writeObject(inv.getAttachments());
+        envelope.writeAttachments(out, attachments);
+        envelope.finish();
     }
 
     @Override
     protected void encodeResponseData(Channel channel, ObjectOutput out, Object data) throws IOException {
         Result result = (Result) data;
+        byte flag = (byte) (ClassDescriptorNegotiation.prepareResponse(channel, out)
+                | EnvelopeStringTable.prepareResponse(channel) | RequestSchedule.prepareResponse(channel));
 
         Throwable th = result.getException();
         if (th == null) {
             Object ret = result.getValue();
             if (ret == null) {
-                out.writeByte(RESPONSE_NULL_VALUE);
+                out.writeByte((byte) (RESPONSE_NULL_VALUE | flag));
             } else {
-                out.writeByte(RESPONSE_VALUE);
+                out.writeByte((byte) (RESPONSE_VALUE | flag));
                 out.writeObject(ret);
             }
         } else {
-            out.writeByte(RESPONSE_WITH_EXCEPTION);
+            out.writeByte((byte) (RESPONSE_WITH_EXCEPTION | flag));
             out.writeObject(th);
         }
     }
@@ -17,6 +17,9 @@ package com.alibaba.dubbo.rpc.protocol.dubbo;
 
 import java.util.Map;
 
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.store.DataStore;
 import com.alibaba.dubbo.rpc.Exporter;
 import com.alibaba.dubbo.rpc.Invoker;
 import com.alibaba.dubbo.rpc.protocol.AbstractExporter;
@@ -42,6 +45,8 @@ public class DubboExporter<T> extends AbstractExporter<T> {
     public void unexport() {
         super.unexport();
         exporterMap.remove(key);
+        ExtensionLoader.getExtensionLoader(DataStore.class).getDefaultExtension()
+                .remove(Constants.EXPORTED_URL_COMPONENT_KEY, key);
     }
 
 }
\ No newline at end of file
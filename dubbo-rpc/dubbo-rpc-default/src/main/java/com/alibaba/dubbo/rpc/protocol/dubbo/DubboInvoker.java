@@ -87,9 +87,19 @@ public class DubboInvoker<T> extends AbstractInvoker<T> {
                 currentClient.send(inv, isSent);
                 RpcContext.getContext().setFuture(null);
                 return new RpcResult();
-            } else if (isAsync) {
+            }
+            inv.setAttachment(Constants.REMAINING_TIMEOUT_KEY, String.valueOf(timeout));
+            int priority = getUrl().getMethodParameter(methodName, Constants.REQUEST_PRIORITY_KEY, 0);
+            if (priority != 0) {
+                inv.setAttachment(Constants.REQUEST_PRIORITY_KEY, String.valueOf(priority));
+            }
+            if (isAsync) {
             	ResponseFuture future = currentClient.request(inv, timeout) ;
-                RpcContext.getContext().setFuture(new FutureAdapter<Object>(future));
+            	FutureAdapter<Object> futureAdapter = new FutureAdapter<Object>(future);
+                RpcContext.getContext().setFuture(futureAdapter);
+                if (RpcUtils.isFutureReturnType(inv)) {
+                    return new RpcResult(futureAdapter.getCompletableFuture());
+                }
                 return new RpcResult();
             } else {
             	RpcContext.getContext().setFuture(null);
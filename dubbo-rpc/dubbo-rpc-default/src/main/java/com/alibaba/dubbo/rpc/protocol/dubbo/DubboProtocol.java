@@ -21,9 +21,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
@@ -31,6 +34,8 @@ import com.alibaba.dubbo.common.Version;
 import com.alibaba.dubbo.common.extension.ExtensionLoader;
 import com.alibaba.dubbo.common.serialize.support.SerializableClassRegistry;
 import com.alibaba.dubbo.common.serialize.support.SerializationOptimizer;
+import com.alibaba.dubbo.common.serialize.support.compiled.CompiledSerialization;
+import com.alibaba.dubbo.common.store.DataStore;
 import com.alibaba.dubbo.common.utils.ConcurrentHashSet;
 import com.alibaba.dubbo.common.utils.NetUtils;
 import com.alibaba.dubbo.common.utils.StringUtils;
@@ -47,9 +52,11 @@ import com.alibaba.dubbo.rpc.Exporter;
 import com.alibaba.dubbo.rpc.Invocation;
 import com.alibaba.dubbo.rpc.Invoker;
 import com.alibaba.dubbo.rpc.Protocol;
+import com.alibaba.dubbo.rpc.Result;
 import com.alibaba.dubbo.rpc.RpcContext;
 import com.alibaba.dubbo.rpc.RpcException;
 import com.alibaba.dubbo.rpc.RpcInvocation;
+import com.alibaba.dubbo.rpc.RpcResult;
 import com.alibaba.dubbo.rpc.protocol.AbstractProtocol;
 
 /**
@@ -110,11 +117,33 @@ public class DubboProtocol extends AbstractProtocol {
                     }
                 }
                 RpcContext.getContext().setRemoteAddress(channel.getRemoteAddress());
-                return invoker.invoke(inv);
+                Result result = invoker.invoke(inv);
+                if (! result.hasException() && result.getValue() instanceof CompletableFuture) {
+                    // 服务返回CompletableFuture时, 在其完成后再回写响应, 不占用业务线程
+                    return toResultFuture(result, (CompletableFuture<?>) result.getValue());
+                }
+                return result;
             }
             throw new RemotingException(channel, "Unsupported request: " + message == null ? null : (message.getClass().getName() + ": " + message) + ", channel: consumer: " + channel.getRemoteAddress() + " --> provider: " + channel.getLocalAddress());
         }
 
+        private CompletableFuture<Object> toResultFuture(final Result result, CompletableFuture<?> future) {
+            final CompletableFuture<Object> resultFuture = new CompletableFuture<Object>();
+            future.whenComplete(new BiConsumer<Object, Throwable>() {
+                public void accept(Object value, Throwable t) {
+                    RpcResult rpcResult;
+                    if (t == null) {
+                        rpcResult = new RpcResult(value);
+                    } else {
+                        rpcResult = new RpcResult(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                    }
+                    rpcResult.setAttachments(result.getAttachments());
+                    resultFuture.complete(rpcResult);
+                }
+            });
+            return resultFuture;
+        }
+
         @Override
         public void received(Channel channel, Object message) throws RemotingException {
             if (message instanceof Invocation) {
@@ -255,6 +284,10 @@ public class DubboProtocol extends AbstractProtocol {
             }
         }
 
+        // the isolation dispatcher finds the executor of a request by the url of its service.
+        DataStore dataStore = ExtensionLoader.getExtensionLoader(DataStore.class).getDefaultExtension();
+        dataStore.put(Constants.EXPORTED_URL_COMPONENT_KEY, key, url);
+
         openServer(url);
 
         // modified by lishen
@@ -287,6 +320,11 @@ public class DubboProtocol extends AbstractProtocol {
                 SerializableClassRegistry.registerClass(c);
             }
 
+            // generate the code at export/refer time instead of on the first call.
+            if (CompiledSerialization.NAME.equals(url.getParameter(Constants.SERIALIZATION_KEY))) {
+                CompiledSerialization.compile();
+            }
+
             optimizers.add(className);
         } catch (ClassNotFoundException e) {
             throw new RpcException("Cannot find the serialization optimizer class: " + className, e);
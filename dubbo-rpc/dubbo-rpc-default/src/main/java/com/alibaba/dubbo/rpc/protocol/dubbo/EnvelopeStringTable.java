@@ -0,0 +1,351 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.rpc.Invocation;
+
+/**
+ * The string table of the request envelope on a connection: the dubbo version, the service path and version, the
+ * method name, the parameter types and the attachment keys are written in full once, and then as their index.
+ * <p>
+ * The client offers the table in the attachments of its requests. Once a response is flagged with
+ * {@link DubboCodec#RESPONSE_ENVELOPE_TABLE_FLAG}, its requests are written with the table and flagged with
+ * {@link DubboCodec#REQUEST_ENVELOPE_TABLE_FLAG} in the status of their header. As the server may decode the
+ * requests out of order in its business threads, a string is defined along with its index in every request that
+ * uses it, until one of these requests is answered; only then is it written as its index alone.
+ */
+final class EnvelopeStringTable {
+
+    // the strings of a connection beyond which the new ones are written in full.
+    static final int CAPACITY = 1024;
+
+    // the unanswered requests with definitions beyond which they are forgotten, and their strings defined again.
+    private static final int MAX_PENDING = 256;
+
+    private static final int INLINE = -1;
+
+    // the attachments whose values take few distinct strings, and go into the table along with their keys.
+    private static final Set<String> TABLE_VALUE_KEYS = new HashSet<String>(Arrays.asList(
+            Constants.DUBBO_VERSION_KEY, Constants.PATH_KEY, Constants.INTERFACE_KEY, Constants.VERSION_KEY,
+            Constants.GROUP_KEY, Constants.TIMEOUT_KEY, Constants.TOKEN_KEY));
+
+    // the table of the client, once agreed.
+    private static final String TABLE_KEY    = EnvelopeStringTable.class.getName() + ".TABLE";
+
+    // Boolean.TRUE while the client offers the table, REJECTED once the server does not take it.
+    private static final String OFFERED_KEY  = EnvelopeStringTable.class.getName() + ".OFFERED";
+
+    private static final Object REJECTED     = new Object();
+
+    // the strings defined by the client, once the server takes the table.
+    private static final String READER_KEY   = EnvelopeStringTable.class.getName() + ".READER";
+
+    private static final Writer PLAIN_WRITER = new Writer(null, null);
+
+    private static final Reader PLAIN_READER = new Reader();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ConcurrentMap<Invocation, List<Entry>> pending = new ConcurrentHashMap<Invocation, List<Entry>>();
+
+    private EnvelopeStringTable() {
+    }
+
+    /**
+     * client, before a request is written: offers the table in the returned attachments until it is answered.
+     */
+    static Map<String, String> prepareRequest(Channel channel, Map<String, String> attachments) {
+        if (channel.getAttribute(TABLE_KEY) != null || channel.getAttribute(OFFERED_KEY) == REJECTED
+                || !channel.getUrl().getParameter(Constants.ENVELOPE_TABLE_KEY, true)) {
+            return attachments;
+        }
+        channel.setAttribute(OFFERED_KEY, Boolean.TRUE);
+        Map<String, String> map = attachments == null
+                ? new HashMap<String, String>() : new HashMap<String, String>(attachments);
+        map.put(Constants.ENVELOPE_TABLE_KEY, Boolean.TRUE.toString());
+        return map;
+    }
+
+    /**
+     * client: whether the requests are written with the table.
+     */
+    static boolean isAgreed(Channel channel) {
+        return channel.getAttribute(TABLE_KEY) != null;
+    }
+
+    /**
+     * client: the writer of the envelope of a request, with the table if it is flagged so.
+     */
+    static Writer getWriter(Channel channel, Invocation inv, boolean flagged) {
+        if (!flagged) {
+            return PLAIN_WRITER;
+        }
+        return new Writer((EnvelopeStringTable) channel.getAttribute(TABLE_KEY), inv);
+    }
+
+    /**
+     * client, once a request is answered: its definitions are known to the server.
+     */
+    static void acknowledge(Channel channel, Invocation inv) {
+        EnvelopeStringTable table = (EnvelopeStringTable) channel.getAttribute(TABLE_KEY);
+        if (table == null || inv == null) {
+            return;
+        }
+        List<Entry> defined = table.pending.remove(inv);
+        if (defined != null) {
+            for (Entry entry : defined) {
+                entry.acknowledged = true;
+            }
+        }
+    }
+
+    /**
+     * client, after the flag of a response is read.
+     */
+    static void acceptResponse(Channel channel, boolean flagged) {
+        if (channel.getAttribute(TABLE_KEY) != null || channel.getAttribute(OFFERED_KEY) != Boolean.TRUE) {
+            return;
+        }
+        if (!flagged) {
+            channel.setAttribute(OFFERED_KEY, REJECTED);
+            return;
+        }
+        // the indexes of a second table would clash with the ones of the first.
+        synchronized (channel) {
+            if (channel.getAttribute(TABLE_KEY) == null) {
+                channel.setAttribute(TABLE_KEY, new EnvelopeStringTable());
+            }
+        }
+    }
+
+    /**
+     * server, after a request is read: takes the offer of the client.
+     */
+    static void acceptRequest(Channel channel, Map<String, String> attachments) {
+        String offer = attachments == null ? null : attachments.remove(Constants.ENVELOPE_TABLE_KEY);
+        if (offer == null || !channel.getUrl().getParameter(Constants.ENVELOPE_TABLE_KEY, true)) {
+            return;
+        }
+        getReader(channel, true);
+    }
+
+    /**
+     * server, before a response is written: returns the flag of the response.
+     */
+    static byte prepareResponse(Channel channel) {
+        return channel.getAttribute(READER_KEY) == null ? 0 : DubboCodec.RESPONSE_ENVELOPE_TABLE_FLAG;
+    }
+
+    /**
+     * server: the reader of the envelope of a request, with the table if it is flagged so.
+     */
+    static Reader getReader(Channel channel, boolean flagged) {
+        if (!flagged) {
+            return PLAIN_READER;
+        }
+        Reader reader = (Reader) channel.getAttribute(READER_KEY);
+        if (reader == null) {
+            synchronized (channel) {
+                reader = (Reader) channel.getAttribute(READER_KEY);
+                if (reader == null) {
+                    reader = new Reader(CAPACITY);
+                    channel.setAttribute(READER_KEY, reader);
+                }
+            }
+        }
+        return reader;
+    }
+
+    private Entry getEntry(String value) {
+        Entry entry = entries.get(value);
+        if (entry == null && size.get() < CAPACITY) {
+            int index = size.getAndIncrement();
+            if (index < CAPACITY) {
+                entry = new Entry(index);
+                Entry old = entries.putIfAbsent(value, entry);
+                if (old != null) {
+                    entry = old;
+                }
+            }
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+
+        final int index;
+
+        volatile boolean acknowledged;
+
+        Entry(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Writes the strings of the envelope of one request.
+     */
+    static final class Writer {
+
+        private final EnvelopeStringTable table;
+
+        private final Invocation invocation;
+
+        private List<Entry> defined;
+
+        private Writer(EnvelopeStringTable table, Invocation invocation) {
+            this.table = table;
+            this.invocation = invocation;
+        }
+
+        void writeString(ObjectOutput out, String value) throws IOException {
+            writeString(out, value, true);
+        }
+
+        private void writeString(ObjectOutput out, String value, boolean intern) throws IOException {
+            if (table == null) {
+                out.writeUTF(value);
+                return;
+            }
+            Entry entry = value == null || !intern ? null : table.getEntry(value);
+            if (entry == null) {
+                out.writeInt(INLINE);
+                out.writeUTF(value);
+            } else if (entry.acknowledged) {
+                out.writeInt(entry.index);
+            } else {
+                out.writeInt(INLINE - 1 - entry.index);
+                out.writeUTF(value);
+                if (defined == null) {
+                    defined = new ArrayList<Entry>();
+                }
+                defined.add(entry);
+            }
+        }
+
+        void writeAttachments(ObjectOutput out, Map<String, String> attachments) throws IOException {
+            if (table == null) {
+                out.writeObject(attachments);
+                return;
+            }
+            if (attachments == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(attachments.size());
+            for (Map.Entry<String, String> entry : attachments.entrySet()) {
+                writeString(out, entry.getKey(), true);
+                writeString(out, entry.getValue(), TABLE_VALUE_KEYS.contains(entry.getKey()));
+            }
+        }
+
+        /**
+         * waits for the answer of the request to refer to the strings it defines by their index alone.
+         */
+        void finish() {
+            if (defined == null || invocation == null) {
+                return;
+            }
+            if (table.pending.size() >= MAX_PENDING) {
+                table.pending.clear();
+            }
+            table.pending.put(invocation, defined);
+        }
+    }
+
+    /**
+     * Reads the strings of the envelope of the requests of a connection.
+     */
+    static final class Reader {
+
+        private final AtomicReferenceArray<String> strings;
+
+        private Reader() {
+            this.strings = null;
+        }
+
+        private Reader(int capacity) {
+            this.strings = new AtomicReferenceArray<String>(capacity);
+        }
+
+        String readString(ObjectInput in) throws IOException {
+            if (strings == null) {
+                return in.readUTF();
+            }
+            int index = in.readInt();
+            if (index == INLINE) {
+                return in.readUTF();
+            }
+            if (index >= 0) {
+                String value = index < strings.length() ? strings.get(index) : null;
+                if (value == null) {
+                    throw new IOException("Undefined envelope string " + index);
+                }
+                return value;
+            }
+            index = INLINE - 1 - index;
+            if (index >= strings.length()) {
+                throw new IOException("Envelope string index " + index + " out of " + strings.length());
+            }
+            String value = in.readUTF();
+            if (value == null) {
+                throw new IOException("Null envelope string " + index);
+            }
+            String old = strings.get(index);
+            if (value.equals(old)) {
+                return old;
+            }
+            strings.set(index, value);
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> readAttachments(ObjectInput in) throws IOException, ClassNotFoundException {
+            if (strings == null) {
+                return (Map<String, String>) in.readObject(Map.class);
+            }
+            int size = in.readInt();
+            if (size < 0) {
+                return null;
+            }
+            Map<String, String> attachments = new HashMap<String, String>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                attachments.put(readString(in), readString(in));
+            }
+            return attachments;
+        }
+    }
+
+}
@@ -15,10 +15,13 @@
  */
 package com.alibaba.dubbo.rpc.protocol.dubbo;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
 import com.alibaba.dubbo.common.utils.StringUtils;
 import com.alibaba.dubbo.remoting.RemotingException;
@@ -80,4 +83,45 @@ public class FutureAdapter<V> implements Future<V> {
         }
     }
 
+    /**
+     * the value of the response, completed by the response thread without blocking the caller.
+     */
+    public CompletableFuture<V> getCompletableFuture() {
+        final CompletableFuture<V> result = new CompletableFuture<V>();
+        future.getCompletableFuture().whenComplete(new BiConsumer<Object, Throwable>() {
+            @SuppressWarnings("unchecked")
+            public void accept(Object response, Throwable t) {
+                if (t != null) {
+                    result.completeExceptionally(toRpcException(t));
+                    return;
+                }
+                Result r = (Result) response;
+                if (r == null) {
+                    result.completeExceptionally(new RpcException("No result in the response, the request may be cancelled."));
+                } else if (r.hasException()) {
+                    result.completeExceptionally(r.getException());
+                } else {
+                    result.complete((V) r.getValue());
+                }
+            }
+        });
+        return result;
+    }
+
+    private static RpcException toRpcException(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof RpcException) {
+            return (RpcException) t;
+        }
+        if (t instanceof com.alibaba.dubbo.remoting.TimeoutException) {
+            return new RpcException(RpcException.TIMEOUT_EXCEPTION, t.getMessage(), t);
+        }
+        if (t instanceof RemotingException) {
+            return new RpcException(RpcException.NETWORK_EXCEPTION, t.getMessage(), t);
+        }
+        return new RpcException(t);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.RpcInvocation;
+
+/**
+ * Moves the remaining timeout and the priority of a request, and the group of its service, from its attachments,
+ * which follow the arguments, to right after its method name, so that the server can schedule and route it before
+ * the arguments are decoded.
+ * <p>
+ * The attachments of the schedule offer it: a server that reads them flags its responses on the connection with
+ * {@link DubboCodec#RESPONSE_SCHEDULE_FLAG}, after which the client writes the schedule and the group after the
+ * method name of its requests, flagged with {@link DubboCodec#REQUEST_SCHEDULE_FLAG} and
+ * {@link DubboCodec#REQUEST_GROUP_FLAG} in the status of their header.
+ */
+final class RequestSchedule {
+
+    // Boolean.TRUE on the client once the server reads the schedule of the requests after their method name.
+    private static final String AGREED_KEY   = RequestSchedule.class.getName() + ".AGREED";
+
+    // Boolean.TRUE on the server once the client sends the schedule of its requests.
+    private static final String ACCEPTED_KEY = RequestSchedule.class.getName() + ".ACCEPTED";
+
+    private RequestSchedule() {
+    }
+
+    /**
+     * client: returns the flags of the request, for what it writes after its method name.
+     */
+    static byte getRequestStatus(Channel channel, Invocation inv) {
+        if (channel.getAttribute(AGREED_KEY) == null) {
+            return 0;
+        }
+        byte status = 0;
+        if (inv.getAttachment(Constants.REMAINING_TIMEOUT_KEY) != null
+                || inv.getAttachment(Constants.REQUEST_PRIORITY_KEY) != null) {
+            status |= DubboCodec.REQUEST_SCHEDULE_FLAG;
+        }
+        String group = inv.getAttachment(Constants.GROUP_KEY);
+        if (group != null && group.length() > 0) {
+            status |= DubboCodec.REQUEST_GROUP_FLAG;
+        }
+        return status;
+    }
+
+    /**
+     * client, before a flagged request is written: returns the attachments without what follows the method name.
+     */
+    static Map<String, String> prepareRequest(Map<String, String> attachments, byte status) {
+        if (attachments == null || (status & (DubboCodec.REQUEST_SCHEDULE_FLAG | DubboCodec.REQUEST_GROUP_FLAG)) == 0) {
+            return attachments;
+        }
+        Map<String, String> map = new HashMap<String, String>(attachments);
+        if ((status & DubboCodec.REQUEST_SCHEDULE_FLAG) != 0) {
+            map.remove(Constants.REMAINING_TIMEOUT_KEY);
+            map.remove(Constants.REQUEST_PRIORITY_KEY);
+        }
+        if ((status & DubboCodec.REQUEST_GROUP_FLAG) != 0) {
+            map.remove(Constants.GROUP_KEY);
+        }
+        return map;
+    }
+
+    /**
+     * client: writes the schedule of a flagged request after its method name.
+     */
+    static void writeSchedule(ObjectOutput out, Invocation inv) throws IOException {
+        out.writeInt(getInt(inv.getAttachment(Constants.REMAINING_TIMEOUT_KEY)));
+        out.writeInt(getInt(inv.getAttachment(Constants.REQUEST_PRIORITY_KEY)));
+    }
+
+    /**
+     * client, after the flag of a response is read.
+     */
+    static void acceptResponse(Channel channel, boolean flagged) {
+        if (flagged && channel.getAttribute(AGREED_KEY) == null) {
+            channel.setAttribute(AGREED_KEY, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * server: reads the schedule of a flagged request after its method name.
+     */
+    static void readSchedule(ObjectInput in, RpcInvocation inv) throws IOException {
+        inv.setAttachment(Constants.REMAINING_TIMEOUT_KEY, String.valueOf(in.readInt()));
+        inv.setAttachment(Constants.REQUEST_PRIORITY_KEY, String.valueOf(in.readInt()));
+    }
+
+    /**
+     * server, after the attachments of a request are read: takes the offer of the client.
+     */
+    static void acceptRequest(Channel channel, Map<String, String> attachments) {
+        if (attachments != null && channel.getAttribute(ACCEPTED_KEY) == null
+                && (attachments.containsKey(Constants.REMAINING_TIMEOUT_KEY)
+                        || attachments.containsKey(Constants.REQUEST_PRIORITY_KEY))) {
+            channel.setAttribute(ACCEPTED_KEY, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * server, before a response is written: returns the flag of the response.
+     */
+    static byte prepareResponse(Channel channel) {
+        return channel.getAttribute(ACCEPTED_KEY) == null ? 0 : DubboCodec.RESPONSE_SCHEDULE_FLAG;
+    }
+
+    static int getInt(String value) {
+        if (value == null || value.length() == 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+}
@@ -20,6 +20,8 @@ import java.util.Collection;
 import com.alibaba.dubbo.common.extension.Activate;
 import com.alibaba.dubbo.common.status.Status;
 import com.alibaba.dubbo.common.status.StatusChecker;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.transport.FlushStatistics;
 import com.alibaba.dubbo.remoting.exchange.ExchangeServer;
 import com.alibaba.dubbo.rpc.protocol.dubbo.DubboProtocol;
 
@@ -49,11 +51,37 @@ public class ServerStatusChecker implements StatusChecker {
                 buf.append(",");
             }
             buf.append(server.getLocalAddress());
+            Collection<Channel> channels = server.getChannels();
             buf.append("(clients:");
-            buf.append(server.getChannels().size());
+            buf.append(channels.size());
+            appendFlushStatistics(buf, channels);
             buf.append(")");
         }
         return new Status(level, buf.toString());
     }
 
+    // the channels which coalesce their writes.
+    private static void appendFlushStatistics(StringBuilder buf, Collection<Channel> channels) {
+        long flushesPerSecond = 0;
+        long flushes = 0;
+        long bytes = 0;
+        boolean found = false;
+        for (Channel channel : channels) {
+            Object statistics = channel.getAttribute(FlushStatistics.KEY);
+            if (statistics instanceof FlushStatistics) {
+                FlushStatistics s = (FlushStatistics) statistics;
+                flushesPerSecond += s.getFlushesPerSecond();
+                flushes += s.getFlushes();
+                bytes += s.getFlushedBytes();
+                found = true;
+            }
+        }
+        if (found) {
+            buf.append(",flushes/s:");
+            buf.append(flushesPerSecond);
+            buf.append(",bytes/flush:");
+            buf.append(flushes == 0 ? 0 : bytes / flushes);
+        }
+    }
+
 }
\ No newline at end of file
@@ -25,6 +25,7 @@ import com.alibaba.dubbo.common.extension.ExtensionLoader;
 import com.alibaba.dubbo.common.status.Status;
 import com.alibaba.dubbo.common.status.StatusChecker;
 import com.alibaba.dubbo.common.store.DataStore;
+import com.alibaba.dubbo.common.threadpool.support.virtual.VirtualThreadPoolExecutor;
 
 /**
  * ThreadPoolStatusChecker
@@ -61,8 +62,28 @@ public class ThreadPoolStatusChecker implements StatusChecker {
                         + ", core:" + tp.getCorePoolSize()
                         + ", largest:" + tp.getLargestPoolSize()
                         + ", active:" + tp.getActiveCount()
+                        + ", queued:" + tp.getQueue().size()
                         + ", task:" + tp.getTaskCount()
                         + ", service port: " + port);
+            } else if (executor instanceof VirtualThreadPoolExecutor) {
+                VirtualThreadPoolExecutor vp = (VirtualThreadPoolExecutor) executor;
+                boolean ok = vp.getPoolSize() < vp.getMaximumPoolSize() - 1;
+                Status.Level lvl = Status.Level.OK;
+                if(!ok) {
+                    level = Status.Level.WARN;
+                    lvl = Status.Level.WARN;
+                }
+
+                if(msg.length() > 0) {
+                    msg.append(";");
+                }
+                msg.append("Pool status:" + lvl
+                        + ", max:" + vp.getMaximumPoolSize()
+                        + ", virtual:" + vp.isVirtual()
+                        + ", largest:" + vp.getLargestPoolSize()
+                        + ", active:" + vp.getActiveCount()
+                        + ", task:" + vp.getTaskCount()
+                        + ", service port: " + port);
             }
         }
         return msg.length() == 0 ? new Status(Status.Level.UNKNOWN) : new Status(level, msg.toString());
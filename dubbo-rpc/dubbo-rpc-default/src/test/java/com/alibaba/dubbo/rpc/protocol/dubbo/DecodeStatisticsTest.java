@@ -0,0 +1,69 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+
+public class DecodeStatisticsTest {
+
+    private static final URL url = URL.valueOf("dubbo://127.0.0.1:20880/DemoService");
+
+    @Test
+    public void testThresholdWithoutSamples() {
+        Assert.assertEquals(Constants.DEFAULT_DECODE_IN_IO_THRESHOLD, DecodeStatistics.getThreshold(url, "none.none"));
+        Assert.assertEquals(Constants.DEFAULT_DECODE_IN_IO_THRESHOLD, DecodeStatistics.getThreshold(url, null));
+        Assert.assertEquals(1024, DecodeStatistics.getThreshold(
+                url.addParameter(Constants.DECODE_IN_IO_THRESHOLD_KEY, 1024), "none.none"));
+    }
+
+    @Test
+    public void testSlowDecodeLowersThreshold() {
+        String key = "DemoService.slow";
+        for (int i = 0; i < 20; i ++) {
+            // 100ns per byte, 1000 bytes fit in the default budget of 100us.
+            DecodeStatistics.record(key, 1000, 100 * 1000);
+        }
+        Assert.assertEquals(100.0, DecodeStatistics.getNanosPerByte(key), 0.001);
+        Assert.assertEquals(1000, DecodeStatistics.getThreshold(url, key));
+        Assert.assertEquals(2000, DecodeStatistics.getThreshold(
+                url.addParameter(Constants.DECODE_IN_IO_BUDGET_KEY, 200), key));
+    }
+
+    @Test
+    public void testFastDecodeKeepsThreshold() {
+        String key = "DemoService.fast";
+        for (int i = 0; i < 20; i ++) {
+            DecodeStatistics.record(key, 1000, 1000);
+        }
+        Assert.assertEquals(Constants.DEFAULT_DECODE_IN_IO_THRESHOLD, DecodeStatistics.getThreshold(url, key));
+    }
+
+    @Test
+    public void testSmallBodyIgnored() {
+        String key = "DemoService.small";
+        for (int i = 0; i < 20; i ++) {
+            DecodeStatistics.record(key, 10, 1000 * 1000);
+        }
+        Assert.assertEquals(0.0, DecodeStatistics.getNanosPerByte(key), 0.001);
+        Assert.assertEquals(Constants.DEFAULT_DECODE_IN_IO_THRESHOLD, DecodeStatistics.getThreshold(url, key));
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffers;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.Result;
+import com.alibaba.dubbo.rpc.RpcException;
+import com.alibaba.dubbo.rpc.RpcInvocation;
+
+public class DubboCodecTest {
+
+    private static final URL url = URL.valueOf("dubbo://127.0.0.1:20880/DemoService?serialization=dubbo");
+
+    private final DubboCodec codec = new DubboCodec();
+
+    @Test
+    public void testCompressThresholdOfTheService() throws Exception {
+        // the channel is shared by the services, the compressor and its threshold are those of the invoker.
+        Channel channel = new MockChannel(url);
+        URL service = url.addParameter(Constants.COMPRESSOR_KEY, "lz4")
+                .addParameter("sayHello." + Constants.COMPRESS_THRESHOLD_KEY, 64);
+        Assert.assertEquals(64, codec.getCompressThreshold(channel, newRequest(service, "sayHello", 0)));
+        Assert.assertEquals(Constants.DEFAULT_COMPRESS_THRESHOLD,
+                codec.getCompressThreshold(channel, newRequest(service, "sayBye", 0)));
+        Assert.assertEquals(Constants.DEFAULT_COMPRESS_THRESHOLD,
+                codec.getCompressThreshold(channel, newRequest(null, "sayHello", 0)));
+
+        int plain = encode(channel, newRequest(url, "sayHello", 256));
+        Assert.assertEquals(plain, encode(channel, newRequest(
+                url.addParameter(Constants.COMPRESSOR_KEY, "lz4"), "sayHello", 256)));
+        Assert.assertTrue(encode(channel, newRequest(service, "sayHello", 256)) < plain);
+    }
+
+    @Test
+    public void testChunkedBodyDecodedInBusinessThread() throws Exception {
+        // the body spans many chunks and is handed to the business thread undecoded.
+        Channel client = new MockChannel(url.addParameter(Constants.PAYLOAD_CHUNK_KEY, 1024));
+        Channel server = new MockChannel(url.addParameter(Constants.DECODE_IN_IO_THREAD_KEY, false));
+        Request request = newRequest(null, "sayHello", 10000);
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(1024);
+        codec.encode(client, buffer, request);
+        Request decoded = (Request) codec.decode(server, buffer);
+        Assert.assertFalse(decoded.isBroken());
+        Assert.assertFalse(buffer.readable());
+        DecodeableRpcInvocation inv = (DecodeableRpcInvocation) decoded.getData();
+        inv.decode();
+        Assert.assertEquals(((RpcInvocation) request.getData()).getArguments()[0], inv.getArguments()[0]);
+    }
+
+    private int encode(Channel channel, Request request) throws Exception {
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(1024);
+        codec.encode(channel, buffer, request);
+        return buffer.readableBytes();
+    }
+
+    private static Request newRequest(URL url, String method, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        RpcInvocation inv = new RpcInvocation(method, new Class<?>[] {String.class}, new Object[] {new String(chars)});
+        inv.setAttachment(Constants.PATH_KEY, "com.alibaba.dubbo.demo.DemoService");
+        if (url != null) {
+            inv.setInvoker(new MockInvoker(url));
+        }
+        Request request = new Request(1);
+        request.setTwoWay(true);
+        request.setData(inv);
+        return request;
+    }
+
+    private static class MockInvoker implements Invoker<Object> {
+
+        private final URL url;
+
+        MockInvoker(URL url) {
+            this.url = url;
+        }
+
+        public Class<Object> getInterface() {
+            return Object.class;
+        }
+
+        public Result invoke(Invocation invocation) throws RpcException {
+            return null;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public boolean isAvailable() {
+            return true;
+        }
+
+        public void destroy() {
+        }
+    }
+
+    private static class MockChannel implements Channel {
+
+        private final URL url;
+
+        private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+        MockChannel(URL url) {
+            this.url = url;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public ChannelHandler getChannelHandler() {
+            return null;
+        }
+
+        public InetSocketAddress getLocalAddress() {
+            return new InetSocketAddress(url.getHost(), url.getPort());
+        }
+
+        public InetSocketAddress getRemoteAddress() {
+            return new InetSocketAddress(url.getHost(), 30880);
+        }
+
+        public void send(Object message) throws RemotingException {
+        }
+
+        public void send(Object message, boolean sent) throws RemotingException {
+        }
+
+        public void close() {
+        }
+
+        public void close(int timeout) {
+        }
+
+        public boolean isClosed() {
+            return false;
+        }
+
+        public boolean isConnected() {
+            return true;
+        }
+
+        public boolean hasAttribute(String key) {
+            return attributes.containsKey(key);
+        }
+
+        public Object getAttribute(String key) {
+            return attributes.get(key);
+        }
+
+        public void setAttribute(String key, Object value) {
+            attributes.put(key, value);
+        }
+
+        public void removeAttribute(String key) {
+            attributes.remove(key);
+        }
+    }
+
+}
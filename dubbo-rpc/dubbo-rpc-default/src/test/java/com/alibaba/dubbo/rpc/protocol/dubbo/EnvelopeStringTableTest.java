@@ -0,0 +1,227 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.Serialization;
+import com.alibaba.dubbo.common.serialize.support.dubbo.DubboSerialization;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.rpc.RpcInvocation;
+
+public class EnvelopeStringTableTest {
+
+    private static final URL url = URL.valueOf("dubbo://127.0.0.1:20880/DemoService");
+
+    private final Serialization serialization = new DubboSerialization();
+
+    @Test
+    public void testNegotiation() {
+        Channel client = new MockChannel(url);
+        Channel server = new MockChannel(url);
+
+        Map<String, String> attachments = EnvelopeStringTable.prepareRequest(client, new HashMap<String, String>());
+        Assert.assertEquals("true", attachments.get(Constants.ENVELOPE_TABLE_KEY));
+        Assert.assertFalse(EnvelopeStringTable.isAgreed(client));
+        Assert.assertEquals(0, EnvelopeStringTable.prepareResponse(server));
+
+        EnvelopeStringTable.acceptRequest(server, attachments);
+        Assert.assertFalse(attachments.containsKey(Constants.ENVELOPE_TABLE_KEY));
+        Assert.assertEquals(DubboCodec.RESPONSE_ENVELOPE_TABLE_FLAG, EnvelopeStringTable.prepareResponse(server));
+
+        EnvelopeStringTable.acceptResponse(client, true);
+        Assert.assertTrue(EnvelopeStringTable.isAgreed(client));
+        Map<String, String> next = new HashMap<String, String>();
+        Assert.assertSame(next, EnvelopeStringTable.prepareRequest(client, next));
+    }
+
+    @Test
+    public void testRejected() {
+        Channel client = new MockChannel(url);
+        EnvelopeStringTable.prepareRequest(client, null);
+        EnvelopeStringTable.acceptResponse(client, false);
+        Assert.assertFalse(EnvelopeStringTable.isAgreed(client));
+        Assert.assertNull(EnvelopeStringTable.prepareRequest(client, null));
+    }
+
+    @Test
+    public void testDisabled() {
+        Channel client = new MockChannel(url.addParameter(Constants.ENVELOPE_TABLE_KEY, false));
+        Assert.assertNull(EnvelopeStringTable.prepareRequest(client, null));
+
+        Channel server = new MockChannel(url.addParameter(Constants.ENVELOPE_TABLE_KEY, false));
+        Map<String, String> attachments = EnvelopeStringTable.prepareRequest(new MockChannel(url), null);
+        EnvelopeStringTable.acceptRequest(server, attachments);
+        Assert.assertEquals(0, EnvelopeStringTable.prepareResponse(server));
+    }
+
+    @Test
+    public void testStringsWrittenAsIndexesOnceAnswered() throws Exception {
+        Channel client = new MockChannel(url);
+        Channel server = new MockChannel(url);
+        EnvelopeStringTable.acceptRequest(server, EnvelopeStringTable.prepareRequest(client, null));
+        EnvelopeStringTable.acceptResponse(client, true);
+
+        RpcInvocation first = newInvocation("1");
+        byte[] defining = write(client, first);
+        // not answered yet, the strings are defined again.
+        RpcInvocation second = newInvocation("2");
+        byte[] redefining = write(client, second);
+        Assert.assertEquals(defining.length, redefining.length);
+
+        // the first request is answered once the server has decoded it.
+        assertRead(server, defining, first);
+        EnvelopeStringTable.acknowledge(client, first);
+        RpcInvocation third = newInvocation("3");
+        byte[] referring = write(client, third);
+        Assert.assertTrue(referring.length < defining.length / 2);
+
+        // the requests sent in the meantime may be decoded in any order.
+        assertRead(server, referring, third);
+        assertRead(server, redefining, second);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUndefinedIndex() throws Exception {
+        Channel client = new MockChannel(url);
+        EnvelopeStringTable.prepareRequest(client, null);
+        EnvelopeStringTable.acceptResponse(client, true);
+        RpcInvocation first = newInvocation("1");
+        write(client, first);
+        EnvelopeStringTable.acknowledge(client, first);
+
+        read(new MockChannel(url), write(client, newInvocation("2")));
+    }
+
+    private static RpcInvocation newInvocation(String traceId) {
+        RpcInvocation inv = new RpcInvocation();
+        inv.setMethodName("sayHello");
+        inv.setAttachment(Constants.PATH_KEY, "com.alibaba.dubbo.demo.DemoService");
+        inv.setAttachment(Constants.VERSION_KEY, "1.0.0");
+        inv.setAttachment(Constants.INTERFACE_KEY, "com.alibaba.dubbo.demo.DemoService");
+        inv.setAttachment("trace.id", traceId);
+        return inv;
+    }
+
+    private byte[] write(Channel channel, RpcInvocation inv) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutput out = serialization.serialize(url, bos);
+        EnvelopeStringTable.Writer envelope = EnvelopeStringTable.getWriter(channel, inv, true);
+        envelope.writeString(out, inv.getAttachment(Constants.PATH_KEY));
+        envelope.writeString(out, inv.getMethodName());
+        envelope.writeAttachments(out, inv.getAttachments());
+        envelope.finish();
+        out.flushBuffer();
+        return bos.toByteArray();
+    }
+
+    private RpcInvocation read(Channel channel, byte[] bytes) throws Exception {
+        ObjectInput in = serialization.deserialize(url, new ByteArrayInputStream(bytes));
+        EnvelopeStringTable.Reader envelope = EnvelopeStringTable.getReader(channel, true);
+        RpcInvocation inv = new RpcInvocation();
+        String path = envelope.readString(in);
+        inv.setMethodName(envelope.readString(in));
+        inv.setAttachments(envelope.readAttachments(in));
+        Assert.assertEquals(path, inv.getAttachment(Constants.PATH_KEY));
+        return inv;
+    }
+
+    private void assertRead(Channel channel, byte[] bytes, RpcInvocation expected) throws Exception {
+        RpcInvocation inv = read(channel, bytes);
+        Assert.assertEquals(expected.getMethodName(), inv.getMethodName());
+        Assert.assertEquals(expected.getAttachments(), inv.getAttachments());
+    }
+
+    private static class MockChannel implements Channel {
+
+        private final URL url;
+
+        private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+        MockChannel(URL url) {
+            this.url = url;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public ChannelHandler getChannelHandler() {
+            return null;
+        }
+
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        public boolean isConnected() {
+            return true;
+        }
+
+        public void send(Object message) throws RemotingException {
+        }
+
+        public void send(Object message, boolean sent) throws RemotingException {
+        }
+
+        public void close() {
+        }
+
+        public void close(int timeout) {
+        }
+
+        public boolean isClosed() {
+            return false;
+        }
+
+        public boolean hasAttribute(String key) {
+            return attributes.containsKey(key);
+        }
+
+        public Object getAttribute(String key) {
+            return attributes.get(key);
+        }
+
+        public void setAttribute(String key, Object value) {
+            attributes.put(key, value);
+        }
+
+        public void removeAttribute(String key) {
+            attributes.remove(key);
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.protocol.dubbo;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffers;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.rpc.RpcInvocation;
+
+public class RequestScheduleTest {
+
+    // the bodies are handed to the business threads undecoded.
+    private static final URL url = URL.valueOf("dubbo://127.0.0.1:20880/DemoService?serialization=dubbo")
+            .addParameter(Constants.DECODE_IN_IO_THREAD_KEY, false);
+
+    private final DubboCodec codec = new DubboCodec();
+
+    @Test
+    public void testNegotiation() {
+        Channel client = new MockChannel(url);
+        Channel server = new MockChannel(url);
+        RpcInvocation inv = newInvocation();
+        Assert.assertEquals(0, RequestSchedule.getRequestStatus(client, inv));
+        Assert.assertEquals(0, RequestSchedule.prepareResponse(server));
+
+        RequestSchedule.acceptRequest(server, new HashMap<String, String>());
+        Assert.assertEquals(0, RequestSchedule.prepareResponse(server));
+        RequestSchedule.acceptRequest(server, inv.getAttachments());
+        Assert.assertEquals(DubboCodec.RESPONSE_SCHEDULE_FLAG, RequestSchedule.prepareResponse(server));
+
+        RequestSchedule.acceptResponse(client, false);
+        Assert.assertEquals(0, RequestSchedule.getRequestStatus(client, inv));
+        RequestSchedule.acceptResponse(client, true);
+        byte status = RequestSchedule.getRequestStatus(client, inv);
+        Assert.assertEquals(DubboCodec.REQUEST_SCHEDULE_FLAG | DubboCodec.REQUEST_GROUP_FLAG, status);
+        Assert.assertEquals(0, RequestSchedule.getRequestStatus(client, new RpcInvocation()));
+
+        Map<String, String> attachments = RequestSchedule.prepareRequest(inv.getAttachments(), status);
+        Assert.assertFalse(attachments.containsKey(Constants.REMAINING_TIMEOUT_KEY));
+        Assert.assertFalse(attachments.containsKey(Constants.REQUEST_PRIORITY_KEY));
+        Assert.assertFalse(attachments.containsKey(Constants.GROUP_KEY));
+        Assert.assertEquals("1.0.0", attachments.get(Constants.VERSION_KEY));
+        Assert.assertEquals("500", inv.getAttachment(Constants.REMAINING_TIMEOUT_KEY));
+        Assert.assertSame(attachments, RequestSchedule.prepareRequest(attachments, (byte) 0));
+    }
+
+    @Test
+    public void testScheduleKnownBeforeTheArguments() throws Exception {
+        Channel client = new MockChannel(url);
+        Channel server = new MockChannel(url);
+
+        // before the server takes the offer, the schedule is only known once the request is decoded.
+        DecodeableRpcInvocation offered = roundTrip(client, server);
+        Assert.assertEquals(0, offered.getRemainingTimeout());
+        Assert.assertEquals(0, offered.getPriority());
+        Assert.assertNull(offered.getRouteGroup());
+        offered.decode();
+        Assert.assertEquals("g", offered.getRouteGroup());
+        Assert.assertEquals(500, offered.getRemainingTimeout());
+        Assert.assertEquals(5, offered.getPriority());
+
+        RequestSchedule.acceptResponse(client, RequestSchedule.prepareResponse(server) != 0);
+        DecodeableRpcInvocation scheduled = roundTrip(client, server);
+        Assert.assertEquals(500, scheduled.getRemainingTimeout());
+        Assert.assertEquals(5, scheduled.getPriority());
+        Assert.assertEquals("sayHello", scheduled.getRouteMethod());
+        Assert.assertEquals("1.0.0", scheduled.getRouteVersion());
+        Assert.assertEquals("g", scheduled.getRouteGroup());
+        scheduled.decode();
+        Assert.assertEquals("world", scheduled.getArguments()[0]);
+        Assert.assertEquals("trace", scheduled.getAttachment("trace.id"));
+        Assert.assertEquals(500, scheduled.getRemainingTimeout());
+    }
+
+    private DecodeableRpcInvocation roundTrip(Channel client, Channel server) throws Exception {
+        Request request = new Request(1);
+        request.setTwoWay(true);
+        request.setData(newInvocation());
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(1024);
+        codec.encode(client, buffer, request);
+        Request decoded = (Request) codec.decode(server, buffer);
+        Assert.assertFalse(decoded.isBroken());
+        return (DecodeableRpcInvocation) decoded.getData();
+    }
+
+    private static RpcInvocation newInvocation() {
+        RpcInvocation inv = new RpcInvocation("sayHello", new Class<?>[] {String.class}, new Object[] {"world"});
+        inv.setAttachment(Constants.PATH_KEY, "com.alibaba.dubbo.demo.DemoService");
+        inv.setAttachment(Constants.VERSION_KEY, "1.0.0");
+        inv.setAttachment(Constants.GROUP_KEY, "g");
+        inv.setAttachment(Constants.REMAINING_TIMEOUT_KEY, "500");
+        inv.setAttachment(Constants.REQUEST_PRIORITY_KEY, "5");
+        inv.setAttachment("trace.id", "trace");
+        return inv;
+    }
+
+    private static class MockChannel implements Channel {
+
+        private final URL url;
+
+        private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+        MockChannel(URL url) {
+            this.url = url;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public ChannelHandler getChannelHandler() {
+            return null;
+        }
+
+        public InetSocketAddress getLocalAddress() {
+            return new InetSocketAddress(url.getHost(), url.getPort());
+        }
+
+        public InetSocketAddress getRemoteAddress() {
+            return new InetSocketAddress(url.getHost(), 30880);
+        }
+
+        public boolean isConnected() {
+            return true;
+        }
+
+        public void send(Object message) throws RemotingException {
+        }
+
+        public void send(Object message, boolean sent) throws RemotingException {
+        }
+
+        public void close() {
+        }
+
+        public void close(int timeout) {
+        }
+
+        public boolean isClosed() {
+            return false;
+        }
+
+        public boolean hasAttribute(String key) {
+            return attributes.containsKey(key);
+        }
+
+        public Object getAttribute(String key) {
+            return attributes.get(key);
+        }
+
+        public void setAttribute(String key, Object value) {
+            attributes.put(key, value);
+        }
+
+        public void removeAttribute(String key) {
+            attributes.remove(key);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.benchmark.jmh;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.remoting.Channel;
+import com.alibaba.dubbo.remoting.ChannelHandler;
+import com.alibaba.dubbo.remoting.RemotingException;
+
+/**
+ * A connected channel which drops everything sent, for driving codecs without a transport.
+ */
+public class BenchmarkChannel implements Channel {
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+    private final URL url;
+
+    private final InetSocketAddress localAddress = new InetSocketAddress("127.0.0.1", 50000);
+
+    private final InetSocketAddress remoteAddress;
+
+    public BenchmarkChannel(URL url) {
+        this.url = url;
+        this.remoteAddress = new InetSocketAddress(url.getHost(), url.getPort());
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public ChannelHandler getChannelHandler() {
+        return null;
+    }
+
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public void send(Object message) throws RemotingException {
+    }
+
+    public void send(Object message, boolean sent) throws RemotingException {
+    }
+
+    public void close() {
+    }
+
+    public void close(int timeout) {
+    }
+
+    public boolean isClosed() {
+        return false;
+    }
+
+    public boolean isConnected() {
+        return true;
+    }
+
+    public boolean hasAttribute(String key) {
+        return attributes.containsKey(key);
+    }
+
+    public Object getAttribute(String key) {
+        return attributes.get(key);
+    }
+
+    public void setAttribute(String key, Object value) {
+        attributes.put(key, value);
+    }
+
+    public void removeAttribute(String key) {
+        attributes.remove(key);
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.dubbo.rpc.benchmark.BidRequest;
+import com.alibaba.dubbo.rpc.benchmark.Device;
+import com.alibaba.dubbo.rpc.benchmark.Geo;
+import com.alibaba.dubbo.rpc.benchmark.Impression;
+
+/**
+ * The bid request of the rpc benchmark, with a configurable number of impressions to scale the payload.
+ */
+public class BidRequests {
+
+    private BidRequests() {
+    }
+
+    public static BidRequest create(int impressions) {
+        BidRequest request = new BidRequest();
+        request.setId("bid-request");
+        List<Impression> imps = new ArrayList<Impression>(impressions);
+        for (int i = 0; i < impressions; i++) {
+            Impression imp = new Impression();
+            imp.setBidFloor(1.1);
+            imp.setId("abc" + i);
+            imps.add(imp);
+        }
+        request.setImpressions(imps);
+
+        Geo geo = new Geo();
+        geo.setCity("beijing");
+        geo.setCountry("china");
+        geo.setLat(100.1f);
+        geo.setLon(100.1f);
+
+        Device device = new Device();
+        device.setMake("apple");
+        device.setOs("ios");
+        device.setVersion("7.0");
+        device.setLang("zh_CN");
+        device.setModel("iphone");
+        device.setGeo(geo);
+        request.setDevice(device);
+        return request;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.remoting.Codec2;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffer;
+import com.alibaba.dubbo.remoting.buffer.ChannelBuffers;
+import com.alibaba.dubbo.remoting.exchange.Request;
+import com.alibaba.dubbo.rpc.RpcInvocation;
+import com.alibaba.dubbo.rpc.benchmark.EchoService;
+
+/**
+ * Encodes and decodes an lz4 compressed bid request with the dubbo codec, with its temporary arrays taken from the
+ * streams recycled per thread (<code>codec.recycle.buffer=true</code>), or allocated for each message.
+ * <p>
+ * Run with the gc profiler to get the allocation per message (gc.alloc.rate.norm):
+ * <code>java -cp ... com.alibaba.dubbo.rpc.benchmark.jmh.CodecRecycleBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodecRecycleBenchmark {
+
+    @Param({"true", "false"})
+    public boolean recycleBuffer;
+
+    @Param({"heap", "direct"})
+    public String buffer;
+
+    @Param({"8", "64"})
+    public int impressions;
+
+    private Codec2 codec;
+
+    private BenchmarkChannel channel;
+
+    private Request request;
+
+    private ChannelBuffer out;
+
+    private ChannelBuffer in;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        codec = ExtensionLoader.getExtensionLoader(Codec2.class).getExtension("dubbo");
+        channel = new BenchmarkChannel(URL.valueOf("dubbo://127.0.0.1:20880/" + EchoService.class.getName()
+                + "?" + Constants.COMPRESSOR_KEY + "=lz4&" + Constants.DECODE_IN_IO_THREAD_KEY + "=true&"
+                + Constants.CODEC_RECYCLE_BUFFER_KEY + "=" + recycleBuffer));
+        RpcInvocation inv = new RpcInvocation("$echo", new Class<?>[] {Object.class},
+                new Object[] {BidRequests.create(impressions)});
+        inv.setAttachment(Constants.PATH_KEY, EchoService.class.getName());
+        inv.setAttachment(Constants.VERSION_KEY, "0.0.0");
+        request = new Request(1);
+        request.setTwoWay(true);
+        request.setData(inv);
+        boolean direct = "direct".equals(buffer);
+        out = direct ? ChannelBuffers.directBuffer(1 << 20) : ChannelBuffers.buffer(1 << 20);
+        encode();
+        in = direct ? ChannelBuffers.directBuffer(out.readableBytes()) : ChannelBuffers.buffer(out.readableBytes());
+        in.writeBytes(out);
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        out.clear();
+        codec.encode(channel, out, request);
+        return out.readableBytes();
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        in.readerIndex(0);
+        return codec.decode(channel, in);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CodecRecycleBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.compress.Compressor;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.io.UnsafeByteArrayOutputStream;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.Serialization;
+import com.alibaba.dubbo.rpc.benchmark.BidRequest;
+
+/**
+ * Compresses and decompresses a list of bid requests serialized with hessian2, the body of a list-heavy response.
+ * <p>
+ * The throughput is in bodies per second, and the setup prints the body size and the bytes each compressor saves.
+ * Compression pays when the transfer time it saves on the link is more than the time it costs on both sides.
+ * <p>
+ * Run with <code>java -cp ... com.alibaba.dubbo.rpc.benchmark.jmh.CompressorBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompressorBenchmark {
+
+    @Param({"lz4", "snappy", "deflate"})
+    public String compressor;
+
+    @Param({"16", "256"})
+    public int requests;
+
+    private Compressor codec;
+
+    private byte[] body;
+
+    private byte[] compressed;
+
+    private int compressedLength;
+
+    private byte[] decompressed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        codec = ExtensionLoader.getExtensionLoader(Compressor.class).getExtension(compressor);
+        List<BidRequest> list = new ArrayList<BidRequest>(requests);
+        for (int i = 0; i < requests; i++) {
+            list.add(BidRequests.create(8));
+        }
+        UnsafeByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(1024);
+        ObjectOutput out = ExtensionLoader.getExtensionLoader(Serialization.class).getExtension("hessian2")
+                .serialize(URL.valueOf("dubbo://127.0.0.1:20880"), bos);
+        out.writeObject(list);
+        out.flushBuffer();
+        body = bos.toByteArray();
+        compressed = new byte[codec.maxCompressedLength(body.length)];
+        compressedLength = codec.compress(body, 0, body.length, compressed, 0);
+        decompressed = new byte[body.length];
+        System.out.println(compressor + ": " + compressedLength + " of " + body.length + " bytes, "
+                + String.format("%.1f", 100.0 * (body.length - compressedLength) / body.length) + "% saved");
+    }
+
+    @Benchmark
+    public int compress() throws Exception {
+        return codec.compress(body, 0, body.length, compressed, 0);
+    }
+
+    @Benchmark
+    public byte[] decompress() throws Exception {
+        codec.decompress(compressed, 0, compressedLength, decompressed, 0, body.length);
+        return decompressed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CompressorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBufferFactory;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.DirectChannelBufferFactory;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.remoting.Codec2;
+import com.alibaba.dubbo.remoting.exchange.Response;
+import com.alibaba.dubbo.remoting.transport.netty.NettyBackedChannelBuffer;
+import com.alibaba.dubbo.rpc.RpcResult;
+import com.alibaba.dubbo.rpc.benchmark.EchoService;
+
+/**
+ * Encodes a bid response the way the netty encoder does for each <code>encode.buffer</code> mode:
+ * <ul>
+ * <li>copy: into a growing dubbo buffer which is copied out for the transport.</li>
+ * <li>heap / direct: straight into the netty buffer handed to the transport.</li>
+ * </ul>
+ * Run with the gc profiler to get the allocation per rpc (gc.alloc.rate.norm):
+ * <code>java -cp ... com.alibaba.dubbo.rpc.benchmark.jmh.EncodeBufferBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EncodeBufferBenchmark {
+
+    @Param({Constants.ENCODE_BUFFER_COPY, Constants.ENCODE_BUFFER_HEAP, Constants.ENCODE_BUFFER_DIRECT})
+    public String encodeBuffer;
+
+    @Param({"1", "64"})
+    public int impressions;
+
+    private Codec2 codec;
+
+    private BenchmarkChannel channel;
+
+    private Response response;
+
+    private ChannelBufferFactory factory;
+
+    private int encodeSizeHint = 1024;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = ExtensionLoader.getExtensionLoader(Codec2.class).getExtension("dubbo");
+        channel = new BenchmarkChannel(URL.valueOf("dubbo://127.0.0.1:20880/" + EchoService.class.getName()
+                + "?" + Constants.ENCODE_BUFFER_KEY + "=" + encodeBuffer));
+        response = new Response(1);
+        response.setResult(new RpcResult(BidRequests.create(impressions)));
+        if (Constants.ENCODE_BUFFER_DIRECT.equals(encodeBuffer)) {
+            factory = DirectChannelBufferFactory.getInstance();
+        } else if (Constants.ENCODE_BUFFER_HEAP.equals(encodeBuffer)) {
+            factory = HeapChannelBufferFactory.getInstance();
+        }
+    }
+
+    @Benchmark
+    public org.jboss.netty.buffer.ChannelBuffer encode() throws Exception {
+        if (factory == null) {
+            com.alibaba.dubbo.remoting.buffer.ChannelBuffer buffer =
+                    com.alibaba.dubbo.remoting.buffer.ChannelBuffers.dynamicBuffer(1024);
+            codec.encode(channel, buffer, response);
+            return ChannelBuffers.wrappedBuffer(buffer.toByteBuffer());
+        }
+        org.jboss.netty.buffer.ChannelBuffer out = ChannelBuffers.dynamicBuffer(encodeSizeHint, factory);
+        codec.encode(channel, new NettyBackedChannelBuffer(out), response);
+        encodeSizeHint = Math.min(out.readableBytes(), Constants.DEFAULT_BUFFER_SIZE);
+        return out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(EncodeBufferBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
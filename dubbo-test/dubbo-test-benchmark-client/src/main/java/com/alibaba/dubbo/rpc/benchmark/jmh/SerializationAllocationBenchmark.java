@@ -0,0 +1,117 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.io.UnsafeByteArrayInputStream;
+import com.alibaba.dubbo.common.io.UnsafeByteArrayOutputStream;
+import com.alibaba.dubbo.common.serialize.Cleanable;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.Serialization;
+import com.alibaba.dubbo.rpc.benchmark.BidRequest;
+
+/**
+ * Writes and reads a bid request with kryo and fst, with the stream wrappers kept per thread, or with none kept
+ * (<code>serialization.retained.buffer=0</code>), which allocates their buffers for each message.
+ * <p>
+ * Run with the gc profiler to get the allocation per message (gc.alloc.rate.norm):
+ * <code>java -cp ... com.alibaba.dubbo.rpc.benchmark.jmh.SerializationAllocationBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializationAllocationBenchmark {
+
+    @Param({"kryo", "fst"})
+    public String serialization;
+
+    @Param({"65536", "0"})
+    public int retainedBuffer;
+
+    @Param({"1", "64"})
+    public int impressions;
+
+    private Serialization codec;
+
+    private URL url;
+
+    private BidRequest request;
+
+    private UnsafeByteArrayOutputStream bos;
+
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        codec = ExtensionLoader.getExtensionLoader(Serialization.class).getExtension(serialization);
+        url = URL.valueOf("dubbo://127.0.0.1:20880?" + Constants.SERIALIZATION_RETAINED_BUFFER_KEY + "=" + retainedBuffer);
+        request = BidRequests.create(impressions);
+        bos = new UnsafeByteArrayOutputStream(1024);
+        write();
+        body = bos.toByteArray();
+    }
+
+    @Benchmark
+    public int write() throws Exception {
+        bos.reset();
+        ObjectOutput out = codec.serialize(url, bos);
+        out.writeObject(request);
+        out.flushBuffer();
+        ((Cleanable) out).cleanup();
+        return bos.size();
+    }
+
+    @Benchmark
+    public Object read() throws Exception {
+        ObjectInput in = codec.deserialize(url, new UnsafeByteArrayInputStream(body));
+        Object request = in.readObject();
+        ((Cleanable) in).cleanup();
+        return request;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SerializationAllocationBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
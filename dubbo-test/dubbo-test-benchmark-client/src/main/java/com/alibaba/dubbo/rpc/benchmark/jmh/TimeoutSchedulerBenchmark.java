@@ -0,0 +1,144 @@
+/*
+ * Copyright 1999-2011 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.rpc.benchmark.jmh;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alibaba.dubbo.common.timer.HashedWheelTimer;
+import com.alibaba.dubbo.common.timer.Timeout;
+import com.alibaba.dubbo.common.timer.TimerTask;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
+
+/**
+ * Compares the response timeout scan thread that DefaultFuture used to run every 30ms with the
+ * hashed wheel timer, with {@link #pending} requests in flight.
+ * <ul>
+ * <li>scanPass: one pass of the scan thread, its cpu share is scanPass / 30ms.</li>
+ * <li>scanRegisterAndComplete / wheelRegisterAndComplete: the per request cost of registering a
+ * timeout and discarding it when the response arrives.</li>
+ * </ul>
+ * The wheel worker only walks pending / ticksPerWheel timeouts per tick, no matter how many are pending.
+ * <p>
+ * Run with <code>java -cp ... com.alibaba.dubbo.rpc.benchmark.jmh.TimeoutSchedulerBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimeoutSchedulerBenchmark {
+
+    private static final int TIMEOUT = (int) TimeUnit.HOURS.toMillis(1);
+
+    private static final TimerTask NOOP = new TimerTask() {
+        public void run(Timeout timeout) {
+        }
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int pending;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private Map<Long, PendingRequest> futures;
+
+    private HashedWheelTimer timer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        futures = new ConcurrentHashMap<Long, PendingRequest>();
+        timer = new HashedWheelTimer(new NamedThreadFactory("BenchmarkTimeoutTimer", true), 10, TimeUnit.MILLISECONDS, 512);
+        for (int i = 0; i < pending; i++) {
+            long id = ids.incrementAndGet();
+            futures.put(id, new PendingRequest(TIMEOUT));
+            timer.newTimeout(NOOP, TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.stop();
+        futures.clear();
+    }
+
+    @Benchmark
+    public int scanPass() {
+        int expired = 0;
+        for (PendingRequest request : futures.values()) {
+            if (request == null || request.done) {
+                continue;
+            }
+            if (System.currentTimeMillis() - request.start > request.timeout) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    @Benchmark
+    public PendingRequest scanRegisterAndComplete() {
+        long id = ids.incrementAndGet();
+        futures.put(id, new PendingRequest(TIMEOUT));
+        return futures.remove(id);
+    }
+
+    @Benchmark
+    public boolean wheelRegisterAndComplete() {
+        return timer.newTimeout(NOOP, TIMEOUT, TimeUnit.MILLISECONDS).cancel();
+    }
+
+    public static class PendingRequest {
+
+        final long start = System.currentTimeMillis();
+
+        final int timeout;
+
+        volatile boolean done;
+
+        PendingRequest(int timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(TimeoutSchedulerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}